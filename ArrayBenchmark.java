@@ -0,0 +1,138 @@
+package assign11;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares BetterDynamicArray and GapBufferArray on the kinds of edits the
+ * editors make. Each case fills an array with a given number of elements,
+ * times every edit of a workload, and prints one line of JSON with the time
+ * per edit, so results can be collected and compared over time.
+ *
+ * The workloads are:
+ * <ul>
+ * <li>random - insert and remove at random positions</li>
+ * <li>sequential - insert a run of elements one after another in the
+ * middle</li>
+ * <li>clustered - insert and remove near a position that moves now and then,
+ * like drawing notes in one bar before moving to the next</li>
+ * <li>append - add to the end, where the time of the slowest add shows the cost
+ * of growing</li>
+ * </ul>
+ *
+ * A segmented array, which stored its elements in fixed-size chunks so that
+ * growing never copied them, was also measured here and then dropped. At a
+ * million elements it cut the slowest append from 1.1 ms to 0.31 ms, but every
+ * other workload was as slow or slower (clustered edits took 111 us against 89
+ * us), since an edit in the middle still shifts every later element. The
+ * sequencer's large copies are already avoided elsewhere: playback reads the
+ * chunked EventSnapshot, and adding a batch of events with addAll grows the
+ * backing array at most once.
+ *
+ * Run with: java assign11.ArrayBenchmark [edits]
+ *
+ * @author Olivia Styler
+ * @version December 20, 2024
+ */
+public class ArrayBenchmark {
+
+	private static final int[] SIZES = { 10_000, 100_000, 1_000_000 };
+	private static final String[] WORKLOADS = { "random", "sequential", "clustered", "append" };
+	private static final String[] ARRAYS = { "BetterDynamicArray", "GapBufferArray" };
+
+	// Clustered edits stay within this many elements of the current position
+	private static final int CLUSTER_RADIUS = 32;
+
+	/**
+	 * Runs every case and prints the results, one JSON object per line.
+	 *
+	 * @param args - optionally, the number of edits to time per case
+	 */
+	public static void main(String[] args) {
+		int edits = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+		for (String workload : WORKLOADS) {
+			for (int size : SIZES) {
+				for (String array : ARRAYS) {
+					// A first run warms up the JIT, the second is reported
+					run(array, workload, size, edits);
+					System.out.println(run(array, workload, size, edits));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fills an array and times one workload on it.
+	 *
+	 * @param array    - name of the class to test
+	 * @param workload - random, sequential, clustered or append
+	 * @param size     - number of elements to start with
+	 * @param edits    - number of edits to time
+	 * @return the results as a JSON object
+	 */
+	private static String run(String array, String workload, int size, int edits) {
+		Random random = new Random(size * 31L + edits);
+		EditableArray<Integer> elements = create(array);
+		Integer value = 42;
+		if (!workload.equals("append")) {
+			for (int i = 0; i < size; i++)
+				elements.add(value);
+		}
+		int count = workload.equals("append") ? size : edits;
+		long[] times = new long[count];
+		int position = elements.size() / 2;
+
+		for (int i = 0; i < count; i++) {
+			long start = System.nanoTime();
+			switch (workload) {
+			case "random":
+				// Alternate so the size stays the same
+				if (i % 2 == 0)
+					elements.insert(random.nextInt(elements.size() + 1), value);
+				else
+					elements.remove(random.nextInt(elements.size()));
+				break;
+			case "sequential":
+				elements.insert(position++, value);
+				break;
+			case "clustered":
+				int at = Math.max(0, Math.min(elements.size() - 1,
+						position + random.nextInt(2 * CLUSTER_RADIUS + 1) - CLUSTER_RADIUS));
+				if (i % 2 == 0)
+					elements.insert(at, value);
+				else
+					elements.remove(at);
+				break;
+			default:
+				elements.add(value);
+			}
+			times[i] = System.nanoTime() - start;
+
+			// Move on to another bar every so often, outside the timed edit
+			if (workload.equals("clustered") && i % 256 == 255)
+				position = random.nextInt(elements.size());
+		}
+
+		long total = 0;
+		for (long time : times)
+			total += time;
+		Arrays.sort(times);
+		return String.format(
+				"{\"array\":\"%s\",\"workload\":\"%s\",\"size\":%d,\"edits\":%d,\"meanNanos\":%.1f,"
+						+ "\"p50Nanos\":%d,\"p99Nanos\":%d,\"maxNanos\":%d}",
+				array, workload, size, count, (double) total / count, times[count / 2],
+				times[Math.min(count - 1, count * 99 / 100)], times[count - 1]);
+	}
+
+	/**
+	 * Creates an empty array of the named class.
+	 *
+	 * @param array - name of the class
+	 * @return the array
+	 */
+	private static EditableArray<Integer> create(String array) {
+		if (array.equals("GapBufferArray"))
+			return new GapBufferArray<>();
+		return new BetterDynamicArray<>();
+	}
+}
@@ -6,27 +6,47 @@ package assign11;
  * implementation for executing, completing, and canceling the event. Implements
  * the Comparable interface to allow sorting by time and type.
  * 
+ * Every event carries a sort key, worked out once when it is created, that
+ * orders events the same way compareTo does. Sorting compares the keys instead
+ * of calling compareTo.
+ * 
  * @author Olivia Styler
  * @version November 22, 2024
  */
 
 public abstract class AudioEvent implements Comparable<AudioEvent> {
 
+	/** Order of ChangeEvents among events at the same time. */
+	public static final int CHANGE_RANK = 0;
+
+	/** Order of NoteEvents among events at the same time. */
+	public static final int NOTE_RANK = 1;
+
+	/** Order of TrackEvents among events at the same time. */
+	public static final int TRACK_RANK = 2;
+
+	/** Number of low bits of a sort key that are always zero. */
+	public static final int SORT_KEY_FREE_BITS = 30;
+
 	private int time;
 	private String name;
 	private int channel;
+	private final long sortKey;
 
 	/**
-	 * Constructs an AudioEvent with the specified time, name, and channel.
+	 * Constructs an AudioEvent with the specified time, name, channel, and rank
+	 * among events at the same time.
 	 * 
-	 * @param time    the time at which the event occurs
-	 * @param name    a descriptive name for the event
-	 * @param channel the channel number for the event
+	 * @param time     the time at which the event occurs
+	 * @param name     a descriptive name for the event
+	 * @param channel  the channel number for the event
+	 * @param typeRank CHANGE_RANK, NOTE_RANK or TRACK_RANK
 	 */
-	public AudioEvent(int time, String name, int channel) {
+	public AudioEvent(int time, String name, int channel, int typeRank) {
 		this.time = time;
 		this.name = name;
 		this.channel = channel;
+		this.sortKey = ((long) time << 32) | ((long) (typeRank & 3) << SORT_KEY_FREE_BITS);
 	}
 
 	/**
@@ -38,6 +58,17 @@ public abstract class AudioEvent implements Comparable<AudioEvent> {
 		return time;
 	}
 
+	/**
+	 * Returns a number that orders events by time and then by type: the time in
+	 * the high 32 bits, then two bits of type rank. The lowest 30 bits are zero,
+	 * so a sort can pack an event's position into them.
+	 * 
+	 * @return the sort key
+	 */
+	public final long getSortKey() {
+		return sortKey;
+	}
+
 	/**
 	 * Returns the name of the event.
 	 * 
@@ -1,19 +1,35 @@
 package assign11;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class represents a better dynamic array that stores elements of a
  * generic type, doubling the length of the backing array when more space is
- * needed and never shrinking.
+ * needed and only shrinking when trimToSize is called.
+ * 
+ * Bulk operations (addAll, removeIf, removeRange) move elements with one
+ * System.arraycopy per call rather than one shift per element, so batch edits
+ * take linear time.
+ * 
+ * The elements can also be streamed, in parallel if wanted. Streams and
+ * spliterators read the backing array directly and see the elements present
+ * when they were created, so the array must not be changed while they are in
+ * use.
  * 
  * @param <T> the type of elements stored in this dynamic array
  * 
  * @author Prof. Parker, Prof. Heisler, and Olivia Styler
  * @version November 22, 2024
  */
-public class BetterDynamicArray<T> implements Iterable<T> {
+public class BetterDynamicArray<T> implements EditableArray<T> {
 
 	// DO NOT ADD OR REMOVE ANY INSTANCE VARIABLES
 	private Object[] elements; // the backing array
@@ -57,25 +73,68 @@ public class BetterDynamicArray<T> implements Iterable<T> {
 			doubleBackingArray();
 		}
 
-		for (int i = elementCount; i > index; i--) {
-			elements[i] = elements[i - 1];
-		}
-
+		System.arraycopy(elements, index, elements, index + 1, elementCount - index);
 		elements[index] = value;
 
 		elementCount++;
 	}
 
+	/**
+	 * Appends every element of another dynamic array to the end of this one, in
+	 * order. The backing array grows at most once.
+	 * 
+	 * @param values - the elements to append
+	 */
+	public void addAll(BetterDynamicArray<? extends T> values) {
+		int count = values.elementCount; // read first, values may be this array
+		ensureCapacity(elementCount + count);
+		System.arraycopy(values.elements, 0, elements, elementCount, count);
+		elementCount += count;
+	}
+
+	/**
+	 * Makes sure the backing array can hold at least the given number of elements
+	 * without growing again.
+	 * 
+	 * @param capacity - the number of elements to make room for
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity > elements.length) {
+			// Grow by at least double, so repeated calls stay amortized constant time
+			resize(Math.max(capacity, elements.length * 2));
+		}
+	}
+
+	/**
+	 * Shrinks the backing array to exactly the number of elements, to give back
+	 * memory after many elements were removed.
+	 */
+	public void trimToSize() {
+		if (elements.length > elementCount) {
+			resize(elementCount);
+		}
+	}
+
 	/**
 	 * Creates a new array with twice the length as the backing array. Copies all
 	 * elements from the backing array to the new array. Sets the backing array
 	 * reference to the new array.
 	 */
-	@SuppressWarnings("unchecked")
 	private void doubleBackingArray() {
-		T[] largerArray = (T[]) new Object[elements.length * 2]; // Create a larger generic array
-		System.arraycopy(elements, 0, largerArray, 0, elements.length);
-		elements = largerArray;
+		resize(Math.max(10, elements.length * 2)); // a trimmed array may be empty
+	}
+
+	/**
+	 * Replaces the backing array with one of the given length holding the same
+	 * elements.
+	 * 
+	 * @param length - of the new backing array, at least the number of elements
+	 */
+	@SuppressWarnings("unchecked")
+	private void resize(int length) {
+		T[] newArray = (T[]) new Object[length]; // Create a new generic array
+		System.arraycopy(elements, 0, newArray, 0, elementCount);
+		elements = newArray;
 	}
 
 	/**
@@ -129,16 +188,71 @@ public class BetterDynamicArray<T> implements Iterable<T> {
 			throw new IndexOutOfBoundsException();
 		}
 
-		for (int i = index; i < elementCount - 1; i++) {
-			elements[i] = elements[i + 1];
-		}
-
+		System.arraycopy(elements, index + 1, elements, index, elementCount - index - 1);
 		elements[elementCount - 1] = null;
 
 		elementCount--;
 
 	}
 
+	/**
+	 * Removes the elements from fromIndex, inclusive, to toIndex, exclusive. The
+	 * elements after them are moved down once.
+	 * 
+	 * @param fromIndex - index of the first element to remove
+	 * @param toIndex   - index after the last element to remove
+	 * @throws IndexOutOfBoundsException if the range is out of bounds
+	 */
+	public void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > elementCount || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("Range out of bounds: " + fromIndex + " to " + toIndex);
+		}
+		System.arraycopy(elements, toIndex, elements, fromIndex, elementCount - toIndex);
+		int newCount = elementCount - (toIndex - fromIndex);
+		Arrays.fill(elements, newCount, elementCount, null);
+		elementCount = newCount;
+	}
+
+	/**
+	 * Removes every element that matches a condition, keeping the order of the
+	 * rest. The array is compacted in one pass.
+	 * 
+	 * @param filter - returns true for elements to remove
+	 * @return the number of elements removed
+	 */
+	public int removeIf(Predicate<? super T> filter) {
+		return removeIf(0, elementCount, filter);
+	}
+
+	/**
+	 * Removes every element between fromIndex, inclusive, and toIndex, exclusive,
+	 * that matches a condition, keeping the order of the rest. Only that range is
+	 * tested, and the elements after it are moved down once.
+	 * 
+	 * @param fromIndex - index of the first element to test
+	 * @param toIndex   - index after the last element to test
+	 * @param filter    - returns true for elements to remove
+	 * @return the number of elements removed
+	 * @throws IndexOutOfBoundsException if the range is out of bounds
+	 */
+	@SuppressWarnings("unchecked")
+	public int removeIf(int fromIndex, int toIndex, Predicate<? super T> filter) {
+		if (fromIndex < 0 || toIndex > elementCount || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("Range out of bounds: " + fromIndex + " to " + toIndex);
+		}
+		int kept = fromIndex;
+		for (int i = fromIndex; i < toIndex; i++) {
+			if (!filter.test((T) elements[i])) {
+				elements[kept++] = elements[i];
+			}
+		}
+		int removed = toIndex - kept;
+		if (removed > 0) {
+			removeRange(kept, toIndex);
+		}
+		return removed;
+	}
+
 	/**
 	 * Removes the first element in the array that is equal to the given value. If
 	 * no equal element is found, the array is not changed.
@@ -159,6 +273,7 @@ public class BetterDynamicArray<T> implements Iterable<T> {
 	 * Removes all elements from the dynamic array.
 	 */
 	public void clear() {
+		Arrays.fill(elements, 0, elementCount, null); // let the elements be garbage collected
 		elementCount = 0;
 	}
 
@@ -203,16 +318,63 @@ public class BetterDynamicArray<T> implements Iterable<T> {
 
 			@Override
 			public boolean hasNext() {
-				return index < size(); // Assuming size() is implemented
+				return index < elementCount;
 			}
 
 			@Override
+			@SuppressWarnings("unchecked")
 			public T next() {
 				if (!hasNext()) {
 					throw new NoSuchElementException();
 				}
-				return get(index++); // Assuming get() retrieves the element at index
+				return (T) elements[index++]; // hasNext already checked the bounds
 			}
 		};
 	}
+
+	/**
+	 * Performs an action on every element, in order, reading the backing array
+	 * directly without creating an iterator.
+	 * 
+	 * @param action - to perform on each element
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(Consumer<? super T> action) {
+		Object[] array = elements;
+		int count = elementCount;
+		for (int i = 0; i < count; i++) {
+			action.accept((T) array[i]);
+		}
+	}
+
+	/**
+	 * Creates a spliterator over the backing array. It knows its exact size, and
+	 * splits into halves that also know theirs, so parallel streams divide the
+	 * work evenly.
+	 * 
+	 * @return the spliterator
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return Spliterators.spliterator(elements, 0, elementCount, Spliterator.ORDERED);
+	}
+
+	/**
+	 * Creates a sequential stream of the elements, in order.
+	 * 
+	 * @return the stream
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Creates a stream of the elements that may be processed on several threads.
+	 * 
+	 * @return the parallel stream
+	 */
+	public Stream<T> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+package assign11;
+
+import java.util.HashMap;
+
+/**
+ * A spatial index over the cells of a GridCanvas. The grid is divided into
+ * buckets one row high and a fixed number of columns wide, and each cell is
+ * listed in every bucket it overlaps. Finding the cells inside a rectangle only
+ * looks at the buckets that rectangle covers, so painting a thin strip touches
+ * only a few cells.
+ *
+ * Cells are also hashed by the row and column they start at, so the cells at a
+ * clicked position are found without a scan.
+ *
+ * This is the CellSource a GridCanvas uses when its subclass doesn't provide
+ * one.
+ *
+ * @author Olivia Styler
+ * @version December 13, 2024
+ */
+public class CellIndex implements CellSource {
+
+	/** The number of columns covered by one bucket. */
+	public static final int BUCKET_COLUMNS = 16;
+
+	private HashMap<Long, BetterDynamicArray<Cell>> buckets;
+	private HashMap<Long, BetterDynamicArray<Cell>> starts;
+	private int size;
+
+	/**
+	 * Creates an empty index.
+	 */
+	public CellIndex() {
+		buckets = new HashMap<>();
+		starts = new HashMap<>();
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of cells in the index.
+	 *
+	 * @return number of cells
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int getCellCount() {
+		return size;
+	}
+
+	/**
+	 * Adds a cell to the index.
+	 *
+	 * @param cell - to add
+	 */
+	public void add(Cell cell) {
+		listFor(starts, key(cell.row, cell.col)).add(cell);
+		for (int row = cell.row; row < cell.row + cell.rowSpan; row++) {
+			for (int bucket = bucketOf(cell.col); bucket <= bucketOf(cell.col + cell.colSpan - 1); bucket++)
+				listFor(buckets, key(row, bucket)).add(cell);
+		}
+		size++;
+	}
+
+	/**
+	 * Removes every cell that starts at the given row and column.
+	 *
+	 * @param row - vertical position of the cells
+	 * @param col - horizontal position of the cells
+	 * @return the number of cells removed
+	 */
+	public int removeAt(int row, int col) {
+		BetterDynamicArray<Cell> removed = starts.remove(key(row, col));
+		if (removed == null)
+			return 0;
+		for (Cell cell : removed) {
+			for (int r = cell.row; r < cell.row + cell.rowSpan; r++) {
+				for (int bucket = bucketOf(cell.col); bucket <= bucketOf(cell.col + cell.colSpan - 1); bucket++)
+					removeFrom(buckets, key(r, bucket), cell);
+			}
+		}
+		size -= removed.size();
+		return removed.size();
+	}
+
+	/**
+	 * Removes all cells.
+	 */
+	public void clear() {
+		buckets.clear();
+		starts.clear();
+		size = 0;
+	}
+
+	/**
+	 * Passes every cell that overlaps a range of rows and columns to a visitor.
+	 * Each cell is passed once, even if it spans several buckets.
+	 *
+	 * @param minRow  - lowest row of the range
+	 * @param maxRow  - highest row of the range
+	 * @param minCol  - first column of the range
+	 * @param maxCol  - last column of the range
+	 * @param visitor - to call for each cell
+	 */
+	@Override
+	public void visitCells(int minRow, int maxRow, int minCol, int maxCol, CellVisitor visitor) {
+		int minBucket = bucketOf(minCol);
+		int maxBucket = bucketOf(maxCol);
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int bucket = minBucket; bucket <= maxBucket; bucket++) {
+				BetterDynamicArray<Cell> list = buckets.get(key(row, bucket));
+				if (list == null)
+					continue;
+				for (int i = 0; i < list.size(); i++) {
+					Cell cell = list.get(i);
+					if (cell.col > maxCol || cell.col + cell.colSpan - 1 < minCol)
+						continue;
+					// Only the first row and bucket of the range the cell is in passes it on
+					if (row == Math.max(cell.row, minRow) && bucket == Math.max(bucketOf(cell.col), minBucket))
+						visitor.visit(cell.row, cell.col, cell.rowSpan, cell.colSpan);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the bucket a column falls in.
+	 *
+	 * @param col - column index
+	 * @return bucket index
+	 */
+	private static int bucketOf(int col) {
+		return Math.floorDiv(col, BUCKET_COLUMNS);
+	}
+
+	/**
+	 * Packs a row and a column or bucket into one map key.
+	 *
+	 * @param row - row index
+	 * @param col - column or bucket index
+	 * @return the key
+	 */
+	private static long key(int row, int col) {
+		return ((long) row << 32) | (col & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Gets the list stored under a key, creating it if needed.
+	 *
+	 * @param map - to look in
+	 * @param key - of the list
+	 * @return the list
+	 */
+	private static BetterDynamicArray<Cell> listFor(HashMap<Long, BetterDynamicArray<Cell>> map, long key) {
+		BetterDynamicArray<Cell> list = map.get(key);
+		if (list == null) {
+			list = new BetterDynamicArray<>();
+			map.put(key, list);
+		}
+		return list;
+	}
+
+	/**
+	 * Removes one cell from the list stored under a key, dropping the list once it
+	 * is empty. The last cell is moved into the removed one's place, so nothing is
+	 * shifted.
+	 *
+	 * @param map  - to look in
+	 * @param key  - of the list
+	 * @param cell - to remove
+	 */
+	private static void removeFrom(HashMap<Long, BetterDynamicArray<Cell>> map, long key, Cell cell) {
+		BetterDynamicArray<Cell> list = map.get(key);
+		if (list == null)
+			return;
+		for (int i = 0; i < list.size(); i++) {
+			if (list.get(i) == cell) {
+				int last = list.size() - 1;
+				list.set(i, list.get(last));
+				list.remove(last);
+				break;
+			}
+		}
+		if (list.size() == 0)
+			map.remove(key);
+	}
+
+	/**
+	 * Represents a cell in the grid.
+	 */
+	public static class Cell {
+		public final int row;
+		public final int col;
+		public final int rowSpan;
+		public final int colSpan;
+
+		/**
+		 * Constructs a cell object
+		 *
+		 * @param row     - vertical position
+		 * @param col     - horizontal position
+		 * @param rowSpan - height
+		 * @param colSpan - width
+		 */
+		public Cell(int row, int col, int rowSpan, int colSpan) {
+			this.row = row;
+			this.col = col;
+			this.rowSpan = rowSpan;
+			this.colSpan = colSpan;
+		}
+	}
+}
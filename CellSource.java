@@ -0,0 +1,48 @@
+package assign11;
+
+/**
+ * Provides the cells a GridCanvas paints. A GridCanvas keeps its own cells by
+ * default, but an editor can instead show cells straight from the data it
+ * already stores, so nothing is kept twice.
+ *
+ * @author Olivia Styler
+ * @version December 14, 2024
+ */
+public interface CellSource {
+
+	/**
+	 * Passes every cell that overlaps a range of rows and columns to a visitor.
+	 * Cells outside the range may also be passed.
+	 *
+	 * @param minRow  - lowest row of the range
+	 * @param maxRow  - highest row of the range
+	 * @param minCol  - first column of the range
+	 * @param maxCol  - last column of the range
+	 * @param visitor - to call for each cell
+	 */
+	void visitCells(int minRow, int maxRow, int minCol, int maxCol, CellVisitor visitor);
+
+	/**
+	 * Gets the number of cells the source holds, including those never painted
+	 * because they are out of view.
+	 *
+	 * @return number of cells
+	 */
+	int getCellCount();
+
+	/**
+	 * Receives the position and size of cells from a CellSource.
+	 */
+	interface CellVisitor {
+
+		/**
+		 * Called for one cell.
+		 *
+		 * @param row     - vertical position of the cell
+		 * @param col     - horizontal position of the cell
+		 * @param rowSpan - height of the cell
+		 * @param colSpan - width of the cell
+		 */
+		void visit(int row, int col, int rowSpan, int colSpan);
+	}
+}
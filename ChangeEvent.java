@@ -21,7 +21,7 @@ public class ChangeEvent extends AudioEvent {
 	 * @param value   the new value for the property being changed
 	 */
 	public ChangeEvent(int time, String type, int channel, int value, SimpleSynthesizer synthesizer) {
-		super(time, type, channel);
+		super(time, type, channel, CHANGE_RANK);
 		this.value = value;
 		this.synthesizer = synthesizer;
 	}
@@ -57,16 +57,8 @@ public class ChangeEvent extends AudioEvent {
 	 */
 	@Override
 	public int compareTo(AudioEvent other) {
-
-		if (this.getTime() != other.getTime()) {
-			return Integer.compare(this.getTime(), other.getTime());
-		}
-
-		if (other instanceof NoteEvent || other instanceof TrackEvent) {
-			return -1;
-		} else {
-			return 0;
-		}
+		// The sort keys hold the time and the class ordering
+		return Long.compare(getSortKey(), other.getSortKey());
 	}
 
 	/**
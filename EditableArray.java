@@ -0,0 +1,104 @@
+package assign11;
+
+import java.util.function.Predicate;
+
+/**
+ * The editing methods shared by the dynamic arrays, so code that only adds,
+ * inserts, removes and reads by index can be given either one. BetterDynamicArray
+ * shifts the tail of its backing array on every edit in the middle, while
+ * GapBufferArray keeps free slots at the last edit and is much faster when edits
+ * stay close together. ArrayBenchmark drives both through this interface, and
+ * is its only user; the rest of the program uses BetterDynamicArray directly.
+ *
+ * @param <T> the type of elements stored in the array
+ *
+ * @author Olivia Styler
+ * @version December 24, 2024
+ */
+public interface EditableArray<T> extends Iterable<T> {
+
+	/**
+	 * Appends the given element to the end of the array.
+	 *
+	 * @param value - the element to append
+	 */
+	void add(T value);
+
+	/**
+	 * Inserts a given element into the array at a given index.
+	 *
+	 * @param index - the index at which to insert
+	 * @param value - the element to insert
+	 * @throws IndexOutOfBoundsException if the given index is out of bounds
+	 */
+	void insert(int index, T value);
+
+	/**
+	 * Gets the element stored in the array at the given index.
+	 *
+	 * @param index - the index of the element to get
+	 * @return the element at the given index
+	 * @throws IndexOutOfBoundsException if the given index is out of bounds
+	 */
+	T get(int index);
+
+	/**
+	 * Changes the element stored in the array at the given index.
+	 *
+	 * @param index - the index of the element to set
+	 * @param value - the new value for the element
+	 * @throws IndexOutOfBoundsException if the given index is out of bounds
+	 */
+	void set(int index, T value);
+
+	/**
+	 * Returns the number of elements in the array.
+	 *
+	 * @return the number of elements
+	 */
+	int size();
+
+	/**
+	 * Removes the element at the given index.
+	 *
+	 * @param index - the index of the element to delete
+	 * @throws IndexOutOfBoundsException if the given index is out of bounds
+	 */
+	void remove(int index);
+
+	/**
+	 * Removes the first element that is equal to the given value, if there is one.
+	 *
+	 * @param value - the element to be removed
+	 */
+	void remove(T value);
+
+	/**
+	 * Removes the elements from fromIndex, inclusive, to toIndex, exclusive.
+	 *
+	 * @param fromIndex - index of the first element to remove
+	 * @param toIndex   - index after the last element to remove
+	 * @throws IndexOutOfBoundsException if the range is out of bounds
+	 */
+	void removeRange(int fromIndex, int toIndex);
+
+	/**
+	 * Removes every element that matches a condition, keeping the order of the
+	 * rest.
+	 *
+	 * @param filter - returns true for elements to remove
+	 * @return the number of elements removed
+	 */
+	int removeIf(Predicate<? super T> filter);
+
+	/**
+	 * Removes all elements.
+	 */
+	void clear();
+
+	/**
+	 * Sorts the elements from smallest to largest. The elements must implement
+	 * Comparable.
+	 */
+	void sort();
+}
@@ -0,0 +1,356 @@
+package assign11;
+
+import java.lang.reflect.InvocationTargetException;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Watches how quickly the Event Dispatch Thread responds. A background thread
+ * keeps posting small heartbeat tasks to the EDT and measures how long each
+ * waits in the queue. Every wait is counted in a latency histogram. When a
+ * heartbeat waits longer than the stall threshold, the EDT's stack trace is
+ * captured while it is still stuck, and the stall is logged along with the
+ * user action that was running, such as Save, Load or Play.
+ *
+ * The frame names its actions with setAction, on the EDT. Everything else may
+ * be called from any thread.
+ *
+ * @author Olivia Styler
+ * @version December 19, 2024
+ */
+public class EdtWatchdog {
+
+	/** Milliseconds between heartbeats. */
+	public static final int HEARTBEAT_MILLIS = 50;
+
+	/** Default wait, in milliseconds, after which the EDT counts as stalled. */
+	public static final int DEFAULT_STALL_MILLIS = 200;
+
+	/**
+	 * Number of histogram buckets. Bucket 0 counts waits under 1 ms, and bucket i
+	 * counts waits from 2^(i-1) up to 2^i ms. The last bucket counts everything
+	 * longer.
+	 */
+	public static final int BUCKETS = 16;
+
+	// Only the most recent stalls are kept
+	private static final int MAX_STALLS = 32;
+
+	private static EdtWatchdog instance;
+
+	private volatile int stallMillis;
+	private volatile String action;
+	private volatile Thread edt;
+	private Thread thread;
+
+	// Guarded by this
+	private long[] histogram;
+	private BetterDynamicArray<Stall> stalls;
+	private long stallCount;
+
+	/**
+	 * Creates a watchdog that is not yet running.
+	 */
+	private EdtWatchdog() {
+		stallMillis = DEFAULT_STALL_MILLIS;
+		histogram = new long[BUCKETS];
+		stalls = new BetterDynamicArray<>();
+	}
+
+	/**
+	 * Gets the watchdog shared by the whole application.
+	 *
+	 * @return the watchdog
+	 */
+	public static synchronized EdtWatchdog getInstance() {
+		if (instance == null)
+			instance = new EdtWatchdog();
+		return instance;
+	}
+
+	/**
+	 * Starts sending heartbeats, if not already started. The EDT is found first,
+	 * so a stall during the very first heartbeat is captured too. If this is not
+	 * called on the EDT, it waits for the EDT to run a task.
+	 */
+	public void start() {
+		if (edt == null)
+			edt = findEdt(); // not holding the lock, in case the EDT is waiting for it
+		synchronized (this) {
+			if (thread != null)
+				return;
+			thread = new Thread(this::watch, "EDT Watchdog");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Gets the Event Dispatch Thread, by asking it to report itself.
+	 *
+	 * @return the EDT, or null if interrupted while waiting for it
+	 */
+	private static Thread findEdt() {
+		if (SwingUtilities.isEventDispatchThread())
+			return Thread.currentThread();
+		Thread[] found = new Thread[1];
+		try {
+			SwingUtilities.invokeAndWait(() -> found[0] = Thread.currentThread());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (InvocationTargetException e) {
+			// the task only stores the thread, so it cannot throw
+		}
+		return found[0];
+	}
+
+	/**
+	 * Stops sending heartbeats. The statistics collected so far are kept.
+	 */
+	public synchronized void stop() {
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	/**
+	 * Sets how long a heartbeat may wait before the EDT counts as stalled.
+	 *
+	 * @param millis - the stall threshold in milliseconds, at least 1
+	 */
+	public void setStallMillis(int millis) {
+		stallMillis = Math.max(1, millis);
+	}
+
+	/**
+	 * Names the user action the EDT is about to perform, so stalls during it can be
+	 * blamed on it. Restore the returned name once the action is done.
+	 *
+	 * @param name - of the action, or null for none
+	 * @return the name that was set before
+	 */
+	public String setAction(String name) {
+		String previous = action;
+		action = name;
+		return previous;
+	}
+
+	/**
+	 * Gets a copy of the latency histogram.
+	 *
+	 * @return the number of heartbeats in each bucket
+	 */
+	public synchronized long[] getLatencyHistogram() {
+		return histogram.clone();
+	}
+
+	/**
+	 * Gets the upper limit of a histogram bucket.
+	 *
+	 * @param bucket - index of the bucket
+	 * @return the wait in milliseconds that is just too long for the bucket, or
+	 *         Long.MAX_VALUE for the last bucket
+	 */
+	public static long getBucketLimitMillis(int bucket) {
+		return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+	}
+
+	/**
+	 * Gets the number of stalls seen since the watchdog was created.
+	 *
+	 * @return number of stalls
+	 */
+	public synchronized long getStallCount() {
+		return stallCount;
+	}
+
+	/**
+	 * Gets the most recent stalls, oldest first.
+	 *
+	 * @return the stalls
+	 */
+	public synchronized Stall[] getStalls() {
+		Stall[] copy = new Stall[stalls.size()];
+		for (int i = 0; i < copy.length; i++)
+			copy[i] = stalls.get(i);
+		return copy;
+	}
+
+	/**
+	 * Describes the histogram and the number of stalls, one bucket per line.
+	 *
+	 * @return the report
+	 */
+	public synchronized String getReport() {
+		long total = 0;
+		for (long count : histogram)
+			total += count;
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%d heartbeats, %d stalls over %d ms%n", total, stallCount, stallMillis));
+		for (int i = 0; i < BUCKETS; i++) {
+			if (histogram[i] == 0)
+				continue;
+			String range = i == 0 ? "< 1 ms"
+					: i == BUCKETS - 1 ? ">= " + (1L << (i - 1)) + " ms"
+							: (1L << (i - 1)) + "-" + (1L << i) + " ms";
+			report.append(String.format("%-14s %d%n", range, histogram[i]));
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Runs on the watchdog thread: posts a heartbeat, waits for it, and records how
+	 * long it took, over and over until stopped.
+	 */
+	private void watch() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				Heartbeat beat = new Heartbeat();
+				SwingUtilities.invokeLater(beat);
+				StackTraceElement[] stack = null;
+				String stalledAction = null;
+				synchronized (beat) {
+					while (!beat.ran) {
+						long waited = (System.nanoTime() - beat.postedNanos) / 1_000_000;
+						Thread target = edt;
+						if (stack == null && waited >= stallMillis && target != null) {
+							// Capture the EDT while it is still stuck
+							stack = target.getStackTrace();
+							stalledAction = action;
+						}
+						beat.wait(stack == null ? Math.max(1, stallMillis - waited) : HEARTBEAT_MILLIS);
+					}
+				}
+				record(beat, stack, stalledAction);
+				Thread.sleep(HEARTBEAT_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			// stopped
+		}
+	}
+
+	/**
+	 * Counts one heartbeat in the histogram, and logs it as a stall if it waited
+	 * too long.
+	 *
+	 * @param beat          - the heartbeat, after it ran
+	 * @param stack         - of the EDT during the stall, or null if not captured
+	 * @param stalledAction - the action running during the stall
+	 */
+	private void record(Heartbeat beat, StackTraceElement[] stack, String stalledAction) {
+		long waitedNanos = beat.ranNanos - beat.postedNanos;
+		long millis = waitedNanos / 1_000_000;
+		int bucket = millis == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+		Stall stall = null;
+		synchronized (this) {
+			histogram[bucket]++;
+			if (millis >= stallMillis) {
+				stall = new Stall(beat.postedMillis, millis, stalledAction, stack);
+				if (stalls.size() == MAX_STALLS)
+					stalls.remove(0);
+				stalls.add(stall);
+				stallCount++;
+			}
+		}
+		if (stall != null)
+			System.err.println(stall);
+	}
+
+	/**
+	 * A task posted to the EDT that notes when it ran.
+	 */
+	private class Heartbeat implements Runnable {
+		private final long postedNanos = System.nanoTime();
+		private final long postedMillis = System.currentTimeMillis();
+		private long ranNanos;
+		private boolean ran;
+
+		@Override
+		public void run() {
+			edt = Thread.currentThread(); // the EDT is replaced if a task throws
+			synchronized (this) {
+				ranNanos = System.nanoTime();
+				ran = true;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * One time the EDT stopped responding.
+	 */
+	public static class Stall {
+		private final long startMillis;
+		private final long durationMillis;
+		private final String action;
+		private final StackTraceElement[] stackTrace;
+
+		/**
+		 * Creates a record of a stall.
+		 *
+		 * @param startMillis    - wall clock time the stall was first noticed from
+		 * @param durationMillis - how long the EDT did not respond
+		 * @param action         - running during the stall, or null if unknown
+		 * @param stackTrace     - of the EDT during the stall, or null if not captured
+		 */
+		private Stall(long startMillis, long durationMillis, String action, StackTraceElement[] stackTrace) {
+			this.startMillis = startMillis;
+			this.durationMillis = durationMillis;
+			this.action = action;
+			this.stackTrace = stackTrace == null ? new StackTraceElement[0] : stackTrace;
+		}
+
+		/**
+		 * Gets the time the stall started, as from System.currentTimeMillis.
+		 *
+		 * @return start time in milliseconds
+		 */
+		public long getStartMillis() {
+			return startMillis;
+		}
+
+		/**
+		 * Gets how long the EDT did not respond.
+		 *
+		 * @return duration in milliseconds
+		 */
+		public long getDurationMillis() {
+			return durationMillis;
+		}
+
+		/**
+		 * Gets the user action that was running during the stall.
+		 *
+		 * @return name of the action, or null if none was named
+		 */
+		public String getAction() {
+			return action;
+		}
+
+		/**
+		 * Gets what the EDT was doing during the stall.
+		 *
+		 * @return the stack trace, empty if the stall ended before it was captured
+		 */
+		public StackTraceElement[] getStackTrace() {
+			return stackTrace.clone();
+		}
+
+		/**
+		 * Describes the stall and the EDT's stack trace, one frame per line.
+		 *
+		 * @return the description
+		 */
+		@Override
+		public String toString() {
+			StringBuilder text = new StringBuilder();
+			text.append("EDT stalled for ").append(durationMillis).append(" ms");
+			if (action != null)
+				text.append(" during ").append(action);
+			for (StackTraceElement frame : stackTrace)
+				text.append(System.lineSeparator()).append("\tat ").append(frame);
+			return text.toString();
+		}
+	}
+}
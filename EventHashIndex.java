@@ -0,0 +1,240 @@
+package assign11;
+
+import java.util.function.Consumer;
+
+/**
+ * A hash index from (channel, pitch, time) to the events with those values, so
+ * the notes under a clicked cell are found in constant time however many notes
+ * the track holds. Only the lookup is constant time: taking the events out of a
+ * sorted sequence still moves the events after them. Events without a pitch,
+ * such as TrackEvents, are indexed with the pitch NO_PITCH.
+ *
+ * The three values are packed into one long key. Keys and events are stored in
+ * two parallel arrays with open addressing and linear probing, so a lookup
+ * reads neighbouring slots of a primitive array instead of following the nodes
+ * of a HashMap. Several events may share a key. Only the pitch and time are
+ * hashed, so the events of every channel at one pitch and time share a probe
+ * run, and a lookup with ANY_CHANNEL finds them all. Removal shifts the
+ * following entries back instead of leaving markers, so lookups never slow
+ * down as events come and go.
+ *
+ * @author Olivia Styler
+ * @version December 22, 2024
+ */
+public class EventHashIndex {
+
+	/** The pitch used for events that have none. */
+	public static final int NO_PITCH = -1;
+
+	/** The channel used to look up events of every channel. */
+	public static final int ANY_CHANNEL = -1;
+
+	// The pitch and time bits of a key, which are all that is hashed
+	private static final long PITCH_TIME = 0xFFFF_FFFF_FFFFL;
+
+	// The table is at most half full
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private AudioEvent[] events; // null marks an empty slot
+	private int size;
+
+	/**
+	 * Creates an empty index.
+	 */
+	public EventHashIndex() {
+		keys = new long[MIN_CAPACITY];
+		events = new AudioEvent[MIN_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Packs a channel, pitch and time into one key.
+	 *
+	 * @param channel - channel of the event
+	 * @param pitch   - pitch of the event, or NO_PITCH
+	 * @param time    - start time of the event
+	 * @return the key
+	 */
+	public static long key(int channel, int pitch, int time) {
+		return ((long) (channel & 0xFFFF) << 48) | ((long) (pitch & 0xFFFF) << 32) | (time & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Gets the key an event is indexed under.
+	 *
+	 * @param event - an event
+	 * @return its key
+	 */
+	public static long keyOf(AudioEvent event) {
+		int pitch = event instanceof NoteEvent ? ((NoteEvent) event).getPitch() : NO_PITCH;
+		return key(event.getChannel(), pitch, event.getTime());
+	}
+
+	/**
+	 * Gets the number of events in the index.
+	 *
+	 * @return number of events
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every event.
+	 */
+	public void clear() {
+		keys = new long[MIN_CAPACITY];
+		events = new AudioEvent[MIN_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Replaces the contents of the index with the given events.
+	 *
+	 * @param all - the events to index
+	 */
+	public void rebuild(BetterDynamicArray<AudioEvent> all) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < all.size() * 2) {
+			capacity <<= 1;
+		}
+		keys = new long[capacity];
+		events = new AudioEvent[capacity];
+		size = 0;
+		all.forEach(this::add);
+	}
+
+	/**
+	 * Adds an event.
+	 *
+	 * @param event - to add
+	 */
+	public void add(AudioEvent event) {
+		if ((size + 1) * 2 > events.length) {
+			resize(events.length * 2);
+		}
+		long key = keyOf(event);
+		int mask = events.length - 1;
+		int slot = hash(key) & mask;
+		while (events[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		events[slot] = event;
+		size++;
+	}
+
+	/**
+	 * Removes an event. The event must be the same object that was added.
+	 *
+	 * @param event - to remove
+	 * @return true if the event was in the index
+	 */
+	public boolean remove(AudioEvent event) {
+		long key = keyOf(event);
+		int mask = events.length - 1;
+		for (int slot = hash(key) & mask; events[slot] != null; slot = (slot + 1) & mask) {
+			if (events[slot] == event) {
+				deleteSlot(slot);
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Passes every event with the given channel, pitch and time to an action.
+	 *
+	 * @param channel - channel of the events, or ANY_CHANNEL
+	 * @param pitch   - pitch of the events, or NO_PITCH
+	 * @param time    - start time of the events
+	 * @param action  - to call for each event
+	 */
+	public void visit(int channel, int pitch, int time, Consumer<AudioEvent> action) {
+		long key = key(channel, pitch, time);
+		long mask = channel == ANY_CHANNEL ? PITCH_TIME : -1L;
+		int slotMask = events.length - 1;
+		for (int slot = hash(key) & slotMask; events[slot] != null; slot = (slot + 1) & slotMask) {
+			if ((keys[slot] & mask) == (key & mask)) {
+				action.accept(events[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Gets every event with the given channel, pitch and time.
+	 *
+	 * @param channel - channel of the events, or ANY_CHANNEL
+	 * @param pitch   - pitch of the events, or NO_PITCH
+	 * @param time    - start time of the events
+	 * @return the events, in no particular order
+	 */
+	public BetterDynamicArray<AudioEvent> find(int channel, int pitch, int time) {
+		BetterDynamicArray<AudioEvent> found = new BetterDynamicArray<>();
+		visit(channel, pitch, time, found::add);
+		return found;
+	}
+
+	/**
+	 * Empties a slot, then moves back any later entries of the same probe run
+	 * that could no longer be reached past the gap.
+	 *
+	 * @param slot - the slot to empty
+	 */
+	private void deleteSlot(int slot) {
+		int mask = events.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (events[next] != null) {
+			int home = hash(keys[next]) & mask;
+			// The entry can fill the gap if its home is not between the gap and it
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				events[gap] = events[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		events[gap] = null;
+	}
+
+	/**
+	 * Moves every entry into new arrays of the given capacity.
+	 *
+	 * @param capacity - a power of two larger than twice the size
+	 */
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		AudioEvent[] oldEvents = events;
+		keys = new long[capacity];
+		events = new AudioEvent[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldEvents.length; i++) {
+			if (oldEvents[i] != null) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (events[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				events[slot] = oldEvents[i];
+			}
+		}
+	}
+
+	/**
+	 * Mixes the pitch and time bits of a key so that keys differing only in time
+	 * or pitch spread across the table. The channel is left out.
+	 *
+	 * @param key - a packed key
+	 * @return the hash
+	 */
+	private static int hash(long key) {
+		key &= PITCH_TIME;
+		key ^= key >>> 33;
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
@@ -0,0 +1,397 @@
+package assign11;
+
+import java.util.function.Consumer;
+
+/**
+ * An index of the time spans of events, answering which events are sounding at
+ * a tic, or overlap a range of tics, without scanning every event. An event
+ * spans the tics from its time up to, but not including, its time plus its
+ * duration. Events without a duration, such as ChangeEvents, are not indexed.
+ *
+ * The spans are kept in a balanced binary search tree ordered by start time,
+ * where every node also records the latest end of any span below it. A query
+ * skips every subtree that ends before the range or starts after it, so it
+ * takes O(log n + k) time for k results. Adding and removing an event take
+ * O(log n) time.
+ *
+ * @author Olivia Styler
+ * @version December 21, 2024
+ */
+public class EventIntervalTree {
+
+	private Node root;
+	private int size;
+	private long nextId; // breaks ties between events that start together
+
+	/**
+	 * Creates an empty tree.
+	 */
+	public EventIntervalTree() {
+		root = null;
+		size = 0;
+		nextId = 0;
+	}
+
+	/**
+	 * Gets the number of events in the tree.
+	 *
+	 * @return number of events
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every event.
+	 */
+	public void clear() {
+		root = null;
+		size = 0;
+	}
+
+	/**
+	 * Replaces the contents of the tree with the events of a sorted sequence,
+	 * building a balanced tree in linear time.
+	 *
+	 * @param events - sorted by time
+	 */
+	public void rebuild(BetterDynamicArray<AudioEvent> events) {
+		Node[] nodes = new Node[events.size()];
+		int count = 0;
+		for (AudioEvent event : events) {
+			int duration = SimpleSequencer.getDuration(event);
+			if (duration > 0) {
+				nodes[count++] = new Node(event, duration, nextId++);
+			}
+		}
+		root = build(nodes, 0, count - 1);
+		size = count;
+	}
+
+	/**
+	 * Adds an event, if it has a duration.
+	 *
+	 * @param event - to add
+	 */
+	public void add(AudioEvent event) {
+		int duration = SimpleSequencer.getDuration(event);
+		if (duration > 0) {
+			root = insert(root, new Node(event, duration, nextId++));
+			size++;
+		}
+	}
+
+	/**
+	 * Removes an event. The event must be the same object that was added.
+	 *
+	 * @param event - to remove
+	 * @return true if the event was in the tree
+	 */
+	public boolean remove(AudioEvent event) {
+		Node node = find(root, event);
+		if (node == null) {
+			return false;
+		}
+		root = delete(root, node.start, node.id);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Passes every event sounding at a tic to an action, in order of start time.
+	 *
+	 * @param tic    - the time to look at
+	 * @param action - to call for each event
+	 */
+	public void visitSounding(int tic, Consumer<AudioEvent> action) {
+		visitOverlapping(tic, tic + 1, action);
+	}
+
+	/**
+	 * Passes every event whose span overlaps a range of tics to an action, in
+	 * order of start time.
+	 *
+	 * @param from   - first tic of the range
+	 * @param to     - tic after the last one of the range
+	 * @param action - to call for each event
+	 */
+	public void visitOverlapping(int from, int to, Consumer<AudioEvent> action) {
+		visit(root, from, to, action);
+	}
+
+	/**
+	 * Gets every event sounding at a tic, in order of start time.
+	 *
+	 * @param tic - the time to look at
+	 * @return the events
+	 */
+	public BetterDynamicArray<AudioEvent> getSounding(int tic) {
+		BetterDynamicArray<AudioEvent> sounding = new BetterDynamicArray<>();
+		visitSounding(tic, sounding::add);
+		return sounding;
+	}
+
+	/**
+	 * Visits the events in a subtree that overlap a range.
+	 *
+	 * @param node   - root of the subtree
+	 * @param from   - first tic of the range
+	 * @param to     - tic after the last one of the range
+	 * @param action - to call for each event
+	 */
+	private static void visit(Node node, int from, int to, Consumer<AudioEvent> action) {
+		while (node != null && node.maxEnd > from) {
+			visit(node.left, from, to, action);
+			if (node.start >= to) {
+				return; // everything to the right starts later still
+			}
+			if (node.end > from) {
+				action.accept(node.event);
+			}
+			node = node.right;
+		}
+	}
+
+	/**
+	 * Finds the node holding an event, looking only at nodes with the same start
+	 * time.
+	 *
+	 * @param node  - root of the subtree to search
+	 * @param event - to look for
+	 * @return the node, or null if not found
+	 */
+	private static Node find(Node node, AudioEvent event) {
+		int start = event.getTime();
+		while (node != null) {
+			if (start < node.start) {
+				node = node.left;
+			} else if (start > node.start) {
+				node = node.right;
+			} else {
+				// Events with this start may be on both sides
+				if (node.event == event) {
+					return node;
+				}
+				Node found = find(node.left, event);
+				return found != null ? found : find(node.right, event);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Builds a balanced subtree from sorted nodes.
+	 *
+	 * @param nodes - sorted by start time
+	 * @param low   - index of the first node of the subtree
+	 * @param high  - index of the last node of the subtree
+	 * @return root of the subtree
+	 */
+	private static Node build(Node[] nodes, int low, int high) {
+		if (low > high) {
+			return null;
+		}
+		int mid = (low + high) >>> 1;
+		Node node = nodes[mid];
+		node.left = build(nodes, low, mid - 1);
+		node.right = build(nodes, mid + 1, high);
+		update(node);
+		return node;
+	}
+
+	/**
+	 * Inserts a node into a subtree and rebalances it.
+	 *
+	 * @param node  - root of the subtree
+	 * @param added - the node to insert
+	 * @return new root of the subtree
+	 */
+	private static Node insert(Node node, Node added) {
+		if (node == null) {
+			return added;
+		}
+		if (compare(added.start, added.id, node) < 0) {
+			node.left = insert(node.left, added);
+		} else {
+			node.right = insert(node.right, added);
+		}
+		return balance(node);
+	}
+
+	/**
+	 * Deletes the node with a given start and id from a subtree and rebalances it.
+	 *
+	 * @param node  - root of the subtree
+	 * @param start - start time of the node to delete
+	 * @param id    - id of the node to delete
+	 * @return new root of the subtree
+	 */
+	private static Node delete(Node node, int start, long id) {
+		if (node == null) {
+			return null;
+		}
+		int order = compare(start, id, node);
+		if (order < 0) {
+			node.left = delete(node.left, start, id);
+		} else if (order > 0) {
+			node.right = delete(node.right, start, id);
+		} else {
+			if (node.left == null) {
+				return node.right;
+			}
+			if (node.right == null) {
+				return node.left;
+			}
+			// Replace the node with the first node of its right subtree
+			Node next = node.right;
+			while (next.left != null) {
+				next = next.left;
+			}
+			next.right = deleteFirst(node.right);
+			next.left = node.left;
+			node = next;
+		}
+		return balance(node);
+	}
+
+	/**
+	 * Deletes the first node of a subtree and rebalances it.
+	 *
+	 * @param node - root of the subtree
+	 * @return new root of the subtree
+	 */
+	private static Node deleteFirst(Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		node.left = deleteFirst(node.left);
+		return balance(node);
+	}
+
+	/**
+	 * Compares a start and id to those of a node, ordering by start and then id.
+	 *
+	 * @param start - start time
+	 * @param id    - id
+	 * @param node  - to compare to
+	 * @return negative, zero or positive as the start and id come before, with or
+	 *         after the node
+	 */
+	private static int compare(int start, long id, Node node) {
+		if (start != node.start) {
+			return Integer.compare(start, node.start);
+		}
+		return Long.compare(id, node.id);
+	}
+
+	/**
+	 * Rotates a node if its subtrees differ in height by more than one, and
+	 * updates its height and latest end.
+	 *
+	 * @param node - to balance
+	 * @return new root of the subtree
+	 */
+	private static Node balance(Node node) {
+		update(node);
+		int difference = height(node.left) - height(node.right);
+		if (difference > 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		}
+		if (difference < -1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Rotates a subtree to the right, making the left child its root.
+	 *
+	 * @param node - root of the subtree
+	 * @return new root of the subtree
+	 */
+	private static Node rotateRight(Node node) {
+		Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		update(node);
+		update(left);
+		return left;
+	}
+
+	/**
+	 * Rotates a subtree to the left, making the right child its root.
+	 *
+	 * @param node - root of the subtree
+	 * @return new root of the subtree
+	 */
+	private static Node rotateLeft(Node node) {
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		update(node);
+		update(right);
+		return right;
+	}
+
+	/**
+	 * Recomputes the height and latest end of a node from its children.
+	 *
+	 * @param node - to update
+	 */
+	private static void update(Node node) {
+		node.height = 1 + Math.max(height(node.left), height(node.right));
+		long maxEnd = node.end;
+		if (node.left != null) {
+			maxEnd = Math.max(maxEnd, node.left.maxEnd);
+		}
+		if (node.right != null) {
+			maxEnd = Math.max(maxEnd, node.right.maxEnd);
+		}
+		node.maxEnd = maxEnd;
+	}
+
+	/**
+	 * Gets the height of a subtree.
+	 *
+	 * @param node - root of the subtree, or null
+	 * @return its height, 0 if empty
+	 */
+	private static int height(Node node) {
+		return node == null ? 0 : node.height;
+	}
+
+	/**
+	 * One event in the tree.
+	 */
+	private static class Node {
+		private final AudioEvent event;
+		private final int start;
+		private final long end; // long, so time plus duration cannot overflow
+		private final long id;
+		private long maxEnd; // latest end in this subtree
+		private int height;
+		private Node left, right;
+
+		/**
+		 * Creates a node with no children.
+		 *
+		 * @param event    - the event
+		 * @param duration - of the event
+		 * @param id       - unique among the nodes of the tree
+		 */
+		private Node(AudioEvent event, int duration, long id) {
+			this.event = event;
+			this.start = event.getTime();
+			this.end = (long) start + duration;
+			this.id = id;
+			this.maxEnd = end;
+			this.height = 1;
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package assign11;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * An immutable list of events, used to hand the events of a sequencer to the
+ * playback thread. A snapshot never changes once created. Editing produces a
+ * new snapshot, which is then published, so a thread holding an old one keeps
+ * reading consistent events without locks.
+ *
+ * The events are stored in small chunks. A new snapshot shares every chunk the
+ * edit did not touch with the old one, so replacing a few events copies one or
+ * two chunks and the list of chunks, not every event.
+ *
+ * Snapshots can be streamed from any thread. The spliterator splits the events
+ * by index range, on chunk boundaries where it can, so a parallel stream shares
+ * the chunks between threads without copying them.
+ *
+ * @author Olivia Styler
+ * @version December 22, 2024
+ */
+public final class EventSnapshot implements Iterable<AudioEvent> {
+
+	/** The usual number of events in a chunk. Chunks hold up to twice this. */
+	public static final int CHUNK_SIZE = 64;
+
+	private static final EventSnapshot EMPTY = new EventSnapshot(new AudioEvent[0][], new int[] { 0 });
+
+	private final AudioEvent[][] chunks; // never changed after construction
+	private final int[] starts; // index of each chunk's first event, then the size
+
+	/**
+	 * Creates a snapshot from chunks that are not shared with any caller.
+	 *
+	 * @param chunks - the events, in order, none of them empty
+	 * @param starts - index of each chunk's first event, followed by the size
+	 */
+	private EventSnapshot(AudioEvent[][] chunks, int[] starts) {
+		this.chunks = chunks;
+		this.starts = starts;
+	}
+
+	/**
+	 * Gets the snapshot with no events.
+	 *
+	 * @return the empty snapshot
+	 */
+	public static EventSnapshot empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Creates a snapshot holding a copy of the given events.
+	 *
+	 * @param events - the events, in order
+	 * @return the snapshot
+	 */
+	public static EventSnapshot of(BetterDynamicArray<AudioEvent> events) {
+		AudioEvent[] all = new AudioEvent[events.size()];
+		for (int i = 0; i < all.length; i++) {
+			all[i] = events.get(i);
+		}
+		return EMPTY.replace(0, 0, all);
+	}
+
+	/**
+	 * Gets the number of events.
+	 *
+	 * @return number of events
+	 */
+	public int size() {
+		return starts[chunks.length];
+	}
+
+	/**
+	 * Gets the event at a position.
+	 *
+	 * @param index - of the event
+	 * @return the event
+	 * @throws IndexOutOfBoundsException if the index is out of bounds
+	 */
+	public AudioEvent get(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index out of bounds: " + index);
+		}
+		int chunk = chunkOf(index);
+		return chunks[chunk][index - starts[chunk]];
+	}
+
+	/**
+	 * Copies the events into a new array.
+	 *
+	 * @return the events, in order
+	 */
+	public AudioEvent[] toArray() {
+		AudioEvent[] all = new AudioEvent[size()];
+		copyOut(0, all.length, all, 0);
+		return all;
+	}
+
+	/**
+	 * Creates a snapshot with the event inserted at a position.
+	 *
+	 * @param index - where to insert
+	 * @param event - to insert
+	 * @return the new snapshot
+	 */
+	public EventSnapshot insert(int index, AudioEvent event) {
+		return replace(index, index, new AudioEvent[] { event });
+	}
+
+	/**
+	 * Creates a snapshot without the event at a position.
+	 *
+	 * @param index - of the event to leave out
+	 * @return the new snapshot
+	 */
+	public EventSnapshot remove(int index) {
+		return replace(index, index + 1, new AudioEvent[0]);
+	}
+
+	/**
+	 * Creates a snapshot with the events from fromIndex, inclusive, to toIndex,
+	 * exclusive, replaced by others. Only the chunks the range touches are
+	 * copied; the rest are shared with this snapshot.
+	 *
+	 * @param fromIndex   - index of the first event to replace
+	 * @param toIndex     - index after the last event to replace
+	 * @param replacement - the events to put in their place
+	 * @return the new snapshot
+	 * @throws IndexOutOfBoundsException if the range is out of bounds
+	 */
+	public EventSnapshot replace(int fromIndex, int toIndex, AudioEvent[] replacement) {
+		if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("Range out of bounds: " + fromIndex + " to " + toIndex);
+		}
+
+		// The chunks from firstChunk up to lastChunk, exclusive, are rebuilt
+		int firstChunk = fromIndex == size() ? chunks.length : chunkOf(fromIndex);
+		int lastChunk = toIndex == fromIndex ? firstChunk : chunkOf(toIndex - 1) + 1;
+		if (firstChunk == lastChunk) {
+			if (firstChunk > 0 && fromIndex == starts[firstChunk]) {
+				firstChunk--; // inserting between chunks grows the one before
+			} else if (firstChunk < chunks.length) {
+				lastChunk++; // inserting inside a chunk
+			}
+		}
+		int length = starts[lastChunk] - starts[firstChunk] - (toIndex - fromIndex) + replacement.length;
+		if (length < CHUNK_SIZE && lastChunk < chunks.length) {
+			length += chunks[lastChunk++].length; // merge a shrinking chunk into the next
+		}
+
+		// Lay out the events of the rebuilt chunks
+		int rebuildStart = starts[firstChunk];
+		int rebuildEnd = starts[lastChunk];
+		AudioEvent[] middle = new AudioEvent[length];
+		int filled = copyOut(rebuildStart, fromIndex, middle, 0);
+		System.arraycopy(replacement, 0, middle, filled, replacement.length);
+		copyOut(toIndex, rebuildEnd, middle, filled + replacement.length);
+
+		// Cut them into chunks of between CHUNK_SIZE and twice that, if possible
+		int pieces = middle.length == 0 ? 0 : Math.max(1, middle.length / CHUNK_SIZE);
+		AudioEvent[][] newChunks = new AudioEvent[chunks.length - (lastChunk - firstChunk) + pieces][];
+		System.arraycopy(chunks, 0, newChunks, 0, firstChunk);
+		for (int p = 0; p < pieces; p++) {
+			int from = (int) ((long) middle.length * p / pieces);
+			int to = (int) ((long) middle.length * (p + 1) / pieces);
+			newChunks[firstChunk + p] = Arrays.copyOfRange(middle, from, to);
+		}
+		System.arraycopy(chunks, lastChunk, newChunks, firstChunk + pieces, chunks.length - lastChunk);
+
+		int[] newStarts = new int[newChunks.length + 1];
+		System.arraycopy(starts, 0, newStarts, 0, firstChunk + 1);
+		for (int c = firstChunk; c < newChunks.length; c++) {
+			newStarts[c + 1] = newStarts[c] + newChunks[c].length;
+		}
+		return new EventSnapshot(newChunks, newStarts);
+	}
+
+	/**
+	 * Copies a range of events into an array.
+	 *
+	 * @param fromIndex - index of the first event to copy
+	 * @param toIndex   - index after the last event to copy
+	 * @param target    - to copy into
+	 * @param offset    - where in the target to start
+	 * @return the offset after the last event copied
+	 */
+	private int copyOut(int fromIndex, int toIndex, AudioEvent[] target, int offset) {
+		int index = fromIndex;
+		while (index < toIndex) {
+			int chunk = chunkOf(index);
+			int start = index - starts[chunk];
+			int count = Math.min(chunks[chunk].length - start, toIndex - index);
+			System.arraycopy(chunks[chunk], start, target, offset, count);
+			index += count;
+			offset += count;
+		}
+		return offset;
+	}
+
+	/**
+	 * Finds the chunk holding an event, with a binary search over the chunk
+	 * starts.
+	 *
+	 * @param index - of an event, less than the size
+	 * @return index of its chunk
+	 */
+	private int chunkOf(int index) {
+		int low = 0;
+		int high = chunks.length - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (starts[mid] <= index)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	@Override
+	public Iterator<AudioEvent> iterator() {
+		return new Iterator<AudioEvent>() {
+			private int chunk = 0;
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				return chunk < chunks.length;
+			}
+
+			@Override
+			public AudioEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				AudioEvent event = chunks[chunk][position++];
+				if (position == chunks[chunk].length) {
+					chunk++;
+					position = 0;
+				}
+				return event;
+			}
+		};
+	}
+
+	/**
+	 * Performs an action on every event, in order, a chunk at a time.
+	 *
+	 * @param action - to perform on each event
+	 */
+	@Override
+	public void forEach(Consumer<? super AudioEvent> action) {
+		for (AudioEvent[] chunk : chunks) {
+			for (AudioEvent event : chunk) {
+				action.accept(event);
+			}
+		}
+	}
+
+	/**
+	 * Creates a spliterator over the events, which knows its size and splits in
+	 * half for parallel streams.
+	 *
+	 * @return the spliterator
+	 */
+	@Override
+	public Spliterator<AudioEvent> spliterator() {
+		return new ChunkSpliterator(0, size());
+	}
+
+	/**
+	 * Walks a range of the events, a chunk at a time when the rest is wanted.
+	 */
+	private final class ChunkSpliterator implements Spliterator<AudioEvent> {
+		private int index; // next event to visit
+		private final int end; // index after the last event to visit
+
+		/**
+		 * Creates a spliterator over the events from index, inclusive, to end,
+		 * exclusive.
+		 *
+		 * @param index - index of the first event
+		 * @param end   - index after the last event
+		 */
+		private ChunkSpliterator(int index, int end) {
+			this.index = index;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super AudioEvent> action) {
+			if (index >= end) {
+				return false;
+			}
+			action.accept(get(index++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super AudioEvent> action) {
+			int next = index;
+			index = end;
+			while (next < end) {
+				int chunk = chunkOf(next);
+				AudioEvent[] events = chunks[chunk];
+				int stop = Math.min(events.length, end - starts[chunk]);
+				for (int i = next - starts[chunk]; i < stop; i++) {
+					action.accept(events[i]);
+				}
+				next = starts[chunk] + stop;
+			}
+		}
+
+		@Override
+		public Spliterator<AudioEvent> trySplit() {
+			if (end - index < 2) {
+				return null;
+			}
+			int middle = (index + end) >>> 1;
+			int boundary = starts[chunkOf(middle)];
+			if (boundary > index) {
+				middle = boundary; // keep whole chunks on each side
+			}
+			Spliterator<AudioEvent> prefix = new ChunkSpliterator(index, middle);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return SIZED | SUBSIZED | ORDERED | IMMUTABLE | NONNULL;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package assign11;
+
+import java.util.Arrays;
+
+/**
+ * Sorts AudioEvents by their sort keys instead of by compareTo. Each event's key
+ * is packed together with its position into one long, the longs are sorted as
+ * plain numbers, and the events are then put in the order the positions came
+ * out in. Because the position is part of the number, events that compare equal
+ * keep their order, as they do with Arrays.sort.
+ *
+ * Smaller arrays are sorted with a least significant digit radix sort, which
+ * takes a pass per byte of the key that actually differs between events.
+ * Larger ones use Arrays.parallelSort on the same longs.
+ *
+ * @author Olivia Styler
+ * @version December 21, 2024
+ */
+public class EventSorter {
+
+	/** Arrays with at least this many events are sorted on several threads. */
+	public static final int PARALLEL_THRESHOLD = 1 << 17;
+
+	// Positions are packed into the low bits of the keys, which are always zero
+	private static final int INDEX_BITS = AudioEvent.SORT_KEY_FREE_BITS;
+	private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1 << RADIX_BITS;
+
+	/**
+	 * Sorts events from earliest to latest, in the same order compareTo gives.
+	 *
+	 * @param events - to sort in place
+	 */
+	public static void sort(BetterDynamicArray<AudioEvent> events) {
+		int count = events.size();
+		if (count < 2) {
+			return;
+		}
+		if (count > INDEX_MASK) {
+			events.sort(); // too many positions to pack
+			return;
+		}
+
+		long[] packed = new long[count];
+		boolean sorted = true;
+		for (int i = 0; i < count; i++) {
+			packed[i] = events.get(i).getSortKey() | i;
+			if (i > 0 && packed[i] < packed[i - 1]) {
+				sorted = false;
+			}
+		}
+		if (sorted) {
+			return;
+		}
+
+		if (count >= PARALLEL_THRESHOLD) {
+			Arrays.parallelSort(packed);
+		} else {
+			radixSort(packed);
+		}
+
+		AudioEvent[] original = new AudioEvent[count];
+		for (int i = 0; i < count; i++) {
+			original[i] = events.get(i);
+		}
+		for (int i = 0; i < count; i++) {
+			events.set(i, original[(int) (packed[i] & INDEX_MASK)]);
+		}
+	}
+
+	/**
+	 * Sorts packed keys with a least significant digit radix sort over the bits
+	 * above the packed positions. The positions were packed in increasing order
+	 * and each pass is stable, so they need no passes of their own. A pass is
+	 * skipped when every key has the same digit.
+	 *
+	 * @param packed - keys with positions in the low bits, sorted in place
+	 */
+	private static void radixSort(long[] packed) {
+		int count = packed.length;
+		long[] source = packed;
+		long[] target = new long[count];
+		int[] offsets = new int[RADIX];
+		for (int shift = INDEX_BITS; shift < Long.SIZE; shift += RADIX_BITS) {
+			Arrays.fill(offsets, 0);
+			// The top digit is signed, so negative times sort first
+			boolean top = shift + RADIX_BITS >= Long.SIZE;
+			for (long value : source) {
+				offsets[digit(value, shift, top)]++;
+			}
+			if (offsets[digit(source[0], shift, top)] == count) {
+				continue; // every key has this digit
+			}
+			int total = 0;
+			for (int d = 0; d < RADIX; d++) {
+				int digitCount = offsets[d];
+				offsets[d] = total;
+				total += digitCount;
+			}
+			for (long value : source) {
+				target[offsets[digit(value, shift, top)]++] = value;
+			}
+			long[] swap = source;
+			source = target;
+			target = swap;
+		}
+		if (source != packed) {
+			System.arraycopy(source, 0, packed, 0, count);
+		}
+	}
+
+	/**
+	 * Gets one digit of a packed key.
+	 *
+	 * @param value - the packed key
+	 * @param shift - position of the digit's lowest bit
+	 * @param top   - true for the digit holding the sign bit
+	 * @return the digit, between 0 and 255
+	 */
+	private static int digit(long value, int shift, boolean top) {
+		if (top) {
+			value ^= Long.MIN_VALUE;
+		}
+		return (int) (value >>> shift) & (RADIX - 1);
+	}
+}
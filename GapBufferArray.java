@@ -0,0 +1,307 @@
+package assign11;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * A dynamic array with a gap of free slots kept at the last edit position.
+ * Inserting or removing at the gap takes constant time, and the gap is only
+ * moved when an edit happens somewhere else, shifting just the elements between
+ * the old and new position. Runs of edits close together, such as drawing
+ * several notes in one bar, cost about as much as appending, where
+ * BetterDynamicArray shifts the whole tail on every edit.
+ *
+ * It offers the same methods as BetterDynamicArray, and both implement
+ * EditableArray. Reading by index costs one extra comparison. Edits that jump
+ * around at random are slower than there: each one moves the gap once, across
+ * about a third of the array on average where BetterDynamicArray shifts about
+ * half, but moving the gap also clears every slot it leaves behind so the
+ * elements can be garbage collected, which nearly doubles the writes.
+ *
+ * Only ArrayBenchmark uses it. The sequencer keeps its events in a sorted
+ * BetterDynamicArray and plays them from an EventSnapshot, whose chunks already
+ * make an edit in the middle cheap, so a gap would not pay for itself there.
+ *
+ * @param <T> the type of elements stored in this array
+ *
+ * @author Olivia Styler
+ * @version December 20, 2024
+ */
+public class GapBufferArray<T> implements EditableArray<T> {
+
+	private Object[] buffer; // elements before the gap, the gap, elements after it
+	private int gapStart; // index of the first free slot
+	private int gapEnd; // index after the last free slot
+
+	/**
+	 * Creates an empty array with space for ten elements.
+	 */
+	public GapBufferArray() {
+		buffer = new Object[10];
+		gapStart = 0;
+		gapEnd = buffer.length;
+	}
+
+	/**
+	 * Appends the given element to the end of this array.
+	 *
+	 * @param value - the element to append
+	 */
+	public void add(T value) {
+		insert(size(), value);
+	}
+
+	/**
+	 * Inserts a given element into this array at a given index, first moving the
+	 * gap there if it is somewhere else.
+	 *
+	 * @param index - the index at which to insert
+	 * @param value - the element to insert
+	 * @throws IndexOutOfBoundsException if the given index is out of bounds
+	 */
+	public void insert(int index, T value) {
+		if (index < 0 || index > size()) { // index must be between 0 and size inclusive
+			throw new IndexOutOfBoundsException("Index out of bounds: " + index);
+		}
+		if (gapStart == gapEnd) {
+			grow(buffer.length + 1);
+		}
+		moveGap(index);
+		buffer[gapStart++] = value;
+	}
+
+	/**
+	 * Appends every element of another gap buffer to the end of this one, in
+	 * order.
+	 *
+	 * @param values - the elements to append
+	 */
+	public void addAll(GapBufferArray<? extends T> values) {
+		Object[] copy = values.toArray(); // values may be this array
+		grow(size() + copy.length);
+		moveGap(size());
+		System.arraycopy(copy, 0, buffer, gapStart, copy.length);
+		gapStart += copy.length;
+	}
+
+	/**
+	 * Gets the element stored in this array at the given index.
+	 *
+	 * @param index - the index of the element to get
+	 * @return the element at the given index
+	 * @throws IndexOutOfBoundsException if the given index is out of bounds
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException();
+		}
+		return (T) buffer[slot(index)];
+	}
+
+	/**
+	 * Returns the number of elements in this array.
+	 *
+	 * @return the number of elements
+	 */
+	public int size() {
+		return buffer.length - (gapEnd - gapStart);
+	}
+
+	/**
+	 * Changes the element stored in this array at the given index. The gap does
+	 * not move.
+	 *
+	 * @param index - the index of the element to set
+	 * @param value - the new value for the element
+	 * @throws IndexOutOfBoundsException if the given index is out of bounds
+	 */
+	public void set(int index, T value) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException();
+		}
+		buffer[slot(index)] = value;
+	}
+
+	/**
+	 * Removes the element at the given index, first moving the gap there if it is
+	 * somewhere else.
+	 *
+	 * @param index - the index of the element to delete
+	 * @throws IndexOutOfBoundsException if the given index is out of bounds
+	 */
+	public void remove(int index) {
+		removeRange(index, index + 1);
+	}
+
+	/**
+	 * Removes the first element in the array that is equal to the given value. If
+	 * no equal element is found, the array is not changed.
+	 *
+	 * @param value - the element to be removed
+	 */
+	public void remove(T value) {
+		int size = size();
+		for (int i = 0; i < size; i++) {
+			if (buffer[slot(i)].equals(value)) {
+				remove(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Removes the elements from fromIndex, inclusive, to toIndex, exclusive, by
+	 * moving the gap to fromIndex and widening it over them.
+	 *
+	 * @param fromIndex - index of the first element to remove
+	 * @param toIndex   - index after the last element to remove
+	 * @throws IndexOutOfBoundsException if the range is out of bounds
+	 */
+	public void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("Range out of bounds: " + fromIndex + " to " + toIndex);
+		}
+		moveGap(fromIndex);
+		int newGapEnd = gapEnd + (toIndex - fromIndex);
+		Arrays.fill(buffer, gapEnd, newGapEnd, null); // let the elements be garbage collected
+		gapEnd = newGapEnd;
+	}
+
+	/**
+	 * Removes every element that matches a condition, keeping the order of the
+	 * rest. The gap is moved to the end and the elements are compacted in one
+	 * pass.
+	 *
+	 * @param filter - returns true for elements to remove
+	 * @return the number of elements removed
+	 */
+	@SuppressWarnings("unchecked")
+	public int removeIf(Predicate<? super T> filter) {
+		moveGap(size());
+		int kept = 0;
+		for (int i = 0; i < gapStart; i++) {
+			if (!filter.test((T) buffer[i])) {
+				buffer[kept++] = buffer[i];
+			}
+		}
+		int removed = gapStart - kept;
+		Arrays.fill(buffer, kept, gapStart, null);
+		gapStart = kept;
+		return removed;
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public void clear() {
+		Arrays.fill(buffer, null);
+		gapStart = 0;
+		gapEnd = buffer.length;
+	}
+
+	/**
+	 * Sorts the elements of this array from smallest to largest. The elements
+	 * must implement Comparable. The gap is moved to the end first, so the
+	 * elements are sorted in place.
+	 */
+	public void sort() {
+		moveGap(size());
+		Arrays.sort(buffer, 0, gapStart);
+	}
+
+	/**
+	 * Copies the elements, in order, into a new array.
+	 *
+	 * @return the elements
+	 */
+	public Object[] toArray() {
+		Object[] copy = new Object[size()];
+		System.arraycopy(buffer, 0, copy, 0, gapStart);
+		System.arraycopy(buffer, gapEnd, copy, gapStart, buffer.length - gapEnd);
+		return copy;
+	}
+
+	/**
+	 * Converts an index into the position in the buffer that holds it.
+	 *
+	 * @param index - of an element
+	 * @return its slot in the buffer
+	 */
+	private int slot(int index) {
+		return index < gapStart ? index : index + (gapEnd - gapStart);
+	}
+
+	/**
+	 * Moves the gap so it starts at the given index, shifting only the elements
+	 * between the old and new position. The slots left behind are cleared.
+	 *
+	 * @param index - where the gap should start
+	 */
+	private void moveGap(int index) {
+		if (index < gapStart) {
+			int count = gapStart - index;
+			System.arraycopy(buffer, index, buffer, gapEnd - count, count);
+			Arrays.fill(buffer, index, Math.min(gapStart, gapEnd - count), null);
+			gapStart = index;
+			gapEnd -= count;
+		} else if (index > gapStart) {
+			int count = index - gapStart;
+			System.arraycopy(buffer, gapEnd, buffer, gapStart, count);
+			Arrays.fill(buffer, Math.max(gapEnd, index), gapEnd + count, null);
+			gapStart = index;
+			gapEnd += count;
+		}
+	}
+
+	/**
+	 * Makes the buffer large enough for the given number of elements, at least
+	 * doubling it when it grows. The gap stays at the same index.
+	 *
+	 * @param capacity - number of elements to make room for
+	 */
+	private void grow(int capacity) {
+		if (capacity <= buffer.length) {
+			return;
+		}
+		int length = Math.max(capacity, buffer.length * 2);
+		Object[] larger = new Object[length];
+		int after = buffer.length - gapEnd;
+		System.arraycopy(buffer, 0, larger, 0, gapStart);
+		System.arraycopy(buffer, gapEnd, larger, length - after, after);
+		buffer = larger;
+		gapEnd = length - after;
+	}
+
+	/**
+	 * Generates a textual representation of this array.
+	 *
+	 * @return the textual representation
+	 */
+	public String toString() {
+		return Arrays.toString(toArray()) + " gap: " + gapStart + " to " + gapEnd;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < size();
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return (T) buffer[slot(index++)];
+			}
+		};
+	}
+}
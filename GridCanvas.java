@@ -2,32 +2,81 @@ package assign11;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.TexturePaint;
+import java.awt.image.BufferedImage;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
 
 import javax.swing.JPanel;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  * A grid of rectangles that can be clicked and dragged to draw cells. Creating
  * or removing a cell results in some task being performed. That task must be
  * specified by the subclass.
  * 
+ * Inside a JScrollPane the grid can be zoomed with the mouse wheel while
+ * holding control (add shift to zoom rows instead of columns). Once zoomed,
+ * every row and column has a fixed size in pixels and the grid scrolls, and
+ * only the part of it that is visible is painted.
+ * 
+ * Every paint is timed into a PaintStats. Turning on the paint stats overlay
+ * shows those numbers in the corner of every grid that is on screen.
+ * 
  * @author Eric Heisler and Olivia Styler
  * @version November 22, 2024
  */
-public abstract class GridCanvas extends JPanel implements MouseListener, MouseMotionListener {
+public abstract class GridCanvas extends JPanel
+		implements MouseListener, MouseMotionListener, MouseWheelListener, Scrollable {
+
+	// Limits for the size of a row or column when zoomed, in pixels
+	private static final int MIN_ZOOM = 2;
+	private static final int MAX_ZOOM = 64;
 
-	// Grid information
+	// How often the paint stats overlay refreshes, in milliseconds
+	private static final int OVERLAY_MILLIS = 500;
+	private static volatile boolean paintStatsVisible = false;
+
+	// Grid information. When zoomed, width and height are the size of the whole
+	// grid rather than of the component.
 	private int width, height;
+	private Dimension fitSize;
+	private int columnWidth, rowHeight; // pixels per column and row, or 0 to fit
 	private int columns, rows;
 	private int columnMajorTickSpacing, rowMajorTickSpacing;
 	private int rowRestriction, colRestriction;
 
-	// The collection of cells (active, colored rectangles)
-	// Note that Cell is a nested class at the end of this file
-	private BetterDynamicArray<Cell> cells;
+	// The grid lines are drawn once into this image and copied on every paint.
+	// It is redrawn when the size, rows or columns change. When zoomed, the grid
+	// repeats every major tick, so one tile of it is painted across the visible
+	// area instead.
+	private BufferedImage gridImage;
+	private TexturePaint gridTile;
+	private boolean gridChanged;
+
+	// Pixel boundaries of every row and column, filled in with the grid image
+	private int[] rowPixels, colPixels;
+
+	// The collection of cells (active, colored rectangles), indexed by position.
+	// Painting reads cells from cellSource, which is this index unless a subclass
+	// provides its own.
+	private CellIndex cells;
+	private CellSource cellSource;
 
 	// Feel free to change coloring however you want.
 	// To get started, just set one color in the constructor.
@@ -37,6 +86,17 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 	private boolean drawing;
 	private int currentRow, currentColumn, currentWidth, currentHeight;
 
+	// While drawing, the areas the preview cell moved across are collected here
+	// and repainted together at most once per frame
+	private Rectangle dirtyArea;
+	private Timer previewTimer;
+
+	// Timing of recent paints, and the number of cells the current paint drew
+	private PaintStats paintStats;
+	private int cellsDrawn;
+	private Rectangle overlayBounds;
+	private Timer overlayTimer;
+
 	/**
 	 * Construct a grid with a given configuration.
 	 * 
@@ -64,18 +124,29 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 		currentHeight = -1;
 		rowRestriction = -1;
 		colRestriction = -1;
-		cells = new BetterDynamicArray<Cell>();
-
-		setPreferredSize(new Dimension(width, height));
+		previewTimer = new Timer(PlayheadAnimator.FRAME_MILLIS, this::repaintDirtyArea);
+		previewTimer.setRepeats(false);
+		paintStats = new PaintStats();
+		overlayTimer = new Timer(OVERLAY_MILLIS, this::refreshOverlay);
+		cells = new CellIndex();
+		cellSource = cells;
+		gridChanged = true;
+
+		fitSize = new Dimension(width, height);
+		columnWidth = 0;
+		rowHeight = 0;
+
+		setPreferredSize(fitSize);
 		setBackground(Color.WHITE);
 		addMouseListener(this);
 		addMouseMotionListener(this);
+		addMouseWheelListener(this);
 
 	}
 
 	/**
-	 * Set the number of columns in the grid. Then repaint the component. If the
-	 * number is < 1, set to 1.
+	 * Set the number of columns in the grid. Then repaint the component if the
+	 * number changed. If the number is < 1, set to 1.
 	 * 
 	 * @param columns - new number of columns
 	 */
@@ -83,13 +154,17 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 		if (newColumns < 1) {
 			newColumns = 1;
 		}
-		columns = newColumns;
-		repaint();
+		if (newColumns != columns) {
+			columns = newColumns;
+			gridChanged = true;
+			updatePreferredSize();
+			repaint();
+		}
 	}
 
 	/**
-	 * Set the number of rows in the grid. Then repaint the component. If the number
-	 * is < 1, set to 1.
+	 * Set the number of rows in the grid. Then repaint the component if the number
+	 * changed. If the number is < 1, set to 1.
 	 * 
 	 * @param rows - new number of rows
 	 */
@@ -97,10 +172,90 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 		if (newRows < 1) {
 			newRows = 1;
 		}
-		rows = newRows;
+		if (newRows != rows) {
+			rows = newRows;
+			gridChanged = true;
+			updatePreferredSize();
+			repaint();
+		}
+	}
+
+	/**
+	 * Sets the size of every column and row in pixels. The grid then no longer
+	 * fits the component, and should be placed in a JScrollPane. Sizes are kept
+	 * between 2 and 64 pixels.
+	 * 
+	 * @param newColumnWidth - pixels per column
+	 * @param newRowHeight   - pixels per row
+	 */
+	public void setZoom(int newColumnWidth, int newRowHeight) {
+		columnWidth = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newColumnWidth));
+		rowHeight = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newRowHeight));
+		gridChanged = true;
+		updatePreferredSize();
 		repaint();
 	}
 
+	/**
+	 * Makes the grid fit the component again, undoing setZoom.
+	 */
+	public void fitToView() {
+		columnWidth = 0;
+		rowHeight = 0;
+		gridChanged = true;
+		updatePreferredSize();
+		repaint();
+	}
+
+	/**
+	 * Returns true if the grid has been zoomed rather than fitting the component.
+	 * 
+	 * @return true if zoomed
+	 */
+	public boolean isZoomed() {
+		return columnWidth > 0;
+	}
+
+	/**
+	 * Makes the preferred size the size of the whole grid when zoomed, or the
+	 * size given to the constructor otherwise.
+	 */
+	private void updatePreferredSize() {
+		if (isZoomed())
+			setPreferredSize(new Dimension(columns * columnWidth, rows * rowHeight));
+		else
+			setPreferredSize(fitSize);
+		revalidate();
+	}
+
+	/**
+	 * Gets the timing of this grid's recent paints.
+	 * 
+	 * @return the paint statistics
+	 */
+	public PaintStats getPaintStats() {
+		return paintStats;
+	}
+
+	/**
+	 * Shows or hides the paint stats overlay on every grid. Grids on screen show
+	 * the change the next time they are painted.
+	 * 
+	 * @param visible - true to show the overlay
+	 */
+	public static void setPaintStatsVisible(boolean visible) {
+		paintStatsVisible = visible;
+	}
+
+	/**
+	 * Returns true if the paint stats overlay is shown.
+	 * 
+	 * @return true if shown
+	 */
+	public static boolean isPaintStatsVisible() {
+		return paintStatsVisible;
+	}
+
 	/**
 	 * Set restrictions for the width or height of cells. Setting to a non-positive
 	 * number means that dimension is not restricted.
@@ -113,9 +268,22 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 		this.colRestriction = colRestriction;
 	}
 
+	/**
+	 * Sets where the cells that are painted come from. When a subclass provides its
+	 * own source, drawing or removing a cell no longer changes the grid's own
+	 * collection, and the subclass is expected to update its source in
+	 * onCellReleased and onCellRemoved.
+	 * 
+	 * @param source - of the cells to paint
+	 */
+	protected void setCellSource(CellSource source) {
+		cellSource = source;
+		repaint();
+	}
+
 	/**
 	 * Adds a cell to the collection with the given position and size. Then repaints
-	 * the component. This is where colors can be set.
+	 * the component.
 	 * 
 	 * @param row    - vertical position of cell
 	 * @param column - horizontal position of cell
@@ -123,7 +291,7 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 	 * @param height - of cell
 	 */
 	public void addCell(int row, int column, int height, int width) {
-		Cell newCell = new Cell(row, column, height, width, cellColor);
+		CellIndex.Cell newCell = new CellIndex.Cell(row, column, height, width);
 		cells.add(newCell);
 		repaint();
 	}
@@ -148,9 +316,209 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 	 */
 	@Override
 	public void paintComponent(Graphics g) {
+		long start = System.nanoTime();
+		cellsDrawn = 0;
+		paintGrid(g);
+		paintStats.record(start, System.nanoTime() - start, cellsDrawn, cellSource.getCellCount());
+		if (paintStatsVisible)
+			paintOverlay(g);
+	}
+
+	/**
+	 * Paints the grid lines, the cells in the area being painted, and the preview
+	 * cell.
+	 * 
+	 * @param g - graphics context to draw onto
+	 */
+	private void paintGrid(Graphics g) {
 		super.paintComponent(g);
-		width = getWidth();
-		height = getHeight();
+		int newWidth = isZoomed() ? columns * columnWidth : getWidth();
+		int newHeight = isZoomed() ? rows * rowHeight : getHeight();
+		if (gridChanged || newWidth != width || newHeight != height) {
+			width = newWidth;
+			height = newHeight;
+			updateGrid();
+		}
+		Rectangle clip = g.getClipBounds();
+		if (clip == null)
+			clip = new Rectangle(0, 0, width, height);
+		clip = clip.intersection(new Rectangle(0, 0, width, height));
+		if (clip.isEmpty())
+			return;
+
+		if (gridTile != null) {
+			Graphics2D g2 = (Graphics2D) g.create();
+			g2.setPaint(gridTile);
+			g2.fill(clip);
+			g2.dispose();
+		} else if (gridImage != null) {
+			g.drawImage(gridImage, 0, 0, null);
+		}
+
+		// Draw the cells that overlap the area being painted, with a row and column
+		// of margin for rounding
+		int minRow = Math.max(0, pixelToRow(clip.y + clip.height - 1) - 1);
+		int maxRow = Math.min(rows - 1, pixelToRow(clip.y) + 1);
+		int minCol = Math.max(0, pixelToCol(clip.x) - 1);
+		int maxCol = Math.min(columns - 1, pixelToCol(clip.x + clip.width - 1) + 1);
+		cellSource.visitCells(minRow, maxRow, minCol, maxCol, (row, col, rowSpan, colSpan) -> {
+			int x = colToPixel(col);
+			int y = rowToPixel(row);
+			int cellWidth = (int) ((long) colSpan * width / columns);
+			int cellHeight = (int) ((long) rowSpan * height / rows);
+			paintCell(g, row, col, rowSpan, colSpan, new Rectangle(x, y - cellHeight, cellWidth, cellHeight));
+			cellsDrawn++;
+		});
+
+		// Draw the preview cell if currently drawing
+		Rectangle preview = getPreviewBounds();
+		if (preview != null) {
+			g.setColor(cellColor.darker());
+			g.fillRect(preview.x, preview.y, preview.width, preview.height);
+		}
+
+	}
+
+	/**
+	 * Draws the paint statistics in the top left corner of the visible part of the
+	 * grid, and keeps them refreshing while the overlay is shown.
+	 * 
+	 * @param g - graphics context to draw onto
+	 */
+	private void paintOverlay(Graphics g) {
+		String[] lines = { String.format("%.1f fps", paintStats.getFramesPerSecond()),
+				String.format("paint p50 %.2f ms", paintStats.getPaintMillis(50)),
+				String.format("paint p95 %.2f ms", paintStats.getPaintMillis(95)),
+				String.format("paint p99 %.2f ms", paintStats.getPaintMillis(99)),
+				"cells drawn " + paintStats.getLastCellsDrawn(), "cells culled " + paintStats.getLastCellsCulled() };
+		FontMetrics metrics = g.getFontMetrics();
+		int textWidth = 0;
+		for (String line : lines)
+			textWidth = Math.max(textWidth, metrics.stringWidth(line));
+		Rectangle visible = getVisibleRect();
+		overlayBounds = new Rectangle(visible.x + 4, visible.y + 4, textWidth + 8,
+				lines.length * metrics.getHeight() + 8);
+
+		g.setColor(new Color(0, 0, 0, 160));
+		g.fillRect(overlayBounds.x, overlayBounds.y, overlayBounds.width, overlayBounds.height);
+		g.setColor(Color.WHITE);
+		int y = overlayBounds.y + 4 + metrics.getAscent();
+		for (String line : lines) {
+			g.drawString(line, overlayBounds.x + 4, y);
+			y += metrics.getHeight();
+		}
+		if (!overlayTimer.isRunning())
+			overlayTimer.start();
+	}
+
+	/**
+	 * Repaints the overlay with the latest numbers, or stops refreshing once the
+	 * overlay is hidden or the grid is no longer on screen. The paint this causes
+	 * is itself counted, so an idle grid shows about two frames per second.
+	 * 
+	 * @param e - the timer event
+	 */
+	private void refreshOverlay(ActionEvent e) {
+		if (!paintStatsVisible || !isShowing()) {
+			overlayTimer.stop();
+			return;
+		}
+		Rectangle visible = getVisibleRect();
+		if (overlayBounds != null && !visible.contains(overlayBounds))
+			repaint(visible); // scrolled since the last paint
+		else if (overlayBounds != null)
+			repaint(overlayBounds);
+	}
+
+	/**
+	 * Gets the rectangle the preview cell is drawn in.
+	 * 
+	 * @return the preview's pixel bounds, or null if there is no preview to draw
+	 */
+	private Rectangle getPreviewBounds() {
+		if (!drawing || currentRow < 0 || currentColumn < 0 || currentWidth <= 0 || currentHeight <= 0)
+			return null;
+		int x = colToPixel(currentColumn);
+		int y = rowToPixel(currentRow);
+		int previewWidth = (int) ((long) currentWidth * width / columns);
+		int previewHeight = (int) ((long) currentHeight * height / rows);
+		return new Rectangle(x, y - previewHeight, previewWidth, previewHeight);
+	}
+
+	/**
+	 * Marks the area covered by the preview cell before and after a change as
+	 * needing a repaint, and starts the frame timer if it isn't waiting already.
+	 * 
+	 * @param before - bounds of the preview before the change, or null
+	 */
+	private void previewChanged(Rectangle before) {
+		Rectangle after = getPreviewBounds();
+		Rectangle area = before == null ? after : after == null ? before : before.union(after);
+		if (area == null)
+			return;
+		dirtyArea = dirtyArea == null ? area : dirtyArea.union(area);
+		if (!previewTimer.isRunning())
+			previewTimer.start();
+	}
+
+	/**
+	 * Repaints everything the preview cell moved across since the last frame.
+	 * 
+	 * @param e - the timer event
+	 */
+	private void repaintDirtyArea(ActionEvent e) {
+		if (dirtyArea != null) {
+			repaint(dirtyArea.x, dirtyArea.y, dirtyArea.width + 1, dirtyArea.height + 1);
+			dirtyArea = null;
+		}
+	}
+
+	/**
+	 * Paints one cell as a filled rectangle. Subclasses can override this to draw
+	 * more inside the cell.
+	 * 
+	 * @param g       - graphics context to draw onto
+	 * @param row     - vertical position of the cell
+	 * @param col     - horizontal position of the cell
+	 * @param rowSpan - height of the cell
+	 * @param colSpan - width of the cell
+	 * @param bounds  - of the cell in pixels
+	 */
+	protected void paintCell(Graphics g, int row, int col, int rowSpan, int colSpan, Rectangle bounds) {
+		g.setColor(cellColor);
+		g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+	}
+
+	/**
+	 * Recomputes the pixel boundaries of the rows and columns and redraws the grid
+	 * lines into the grid image, or into the grid tile when zoomed.
+	 */
+	private void updateGrid() {
+		gridChanged = false;
+		rowPixels = new int[rows + 1];
+		for (int i = 0; i <= rows; i++)
+			rowPixels[i] = height - (int) ((long) i * height / rows);
+		colPixels = new int[columns + 1];
+		for (int i = 0; i <= columns; i++)
+			colPixels[i] = (int) ((long) i * width / columns);
+
+		gridImage = null;
+		gridTile = null;
+		if (width <= 0 || height <= 0)
+			return;
+		if (isZoomed()) {
+			gridTile = createGridTile();
+			return;
+		}
+		GraphicsConfiguration config = getGraphicsConfiguration();
+		if (config != null)
+			gridImage = config.createCompatibleImage(width, height);
+		else
+			gridImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+		Graphics g = gridImage.getGraphics();
+		g.setColor(getBackground());
+		g.fillRect(0, 0, width, height);
 
 		g.setColor(Color.LIGHT_GRAY); // Grid line color
 		for (int i = 0; i <= rows; i++) {
@@ -174,29 +542,35 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 			int x = colToPixel(i);
 			g.fillRect(x, 0, 2, height); // Thicker line for major ticks
 		}
-		
-		
-		// Draw all cells in the collection
-		for (int i = 0; i < cells.size(); i++) {
-			Cell cell = cells.get(i);
-			g.setColor(cell.color);
-			int x = colToPixel(cell.col);
-			int y = rowToPixel(cell.row);
-			int cellWidth = cell.colSpan * width / columns;
-			int cellHeight = cell.rowSpan * height / rows;
-			g.fillRect(x, y - cellHeight, cellWidth, cellHeight);
-		}
+		g.dispose();
+	}
 
-		// Draw the preview cell if currently drawing
-		if (drawing && currentRow >= 0 && currentColumn >= 0) {
-			g.setColor(cellColor.darker());
-			int x = colToPixel(currentColumn);
-			int y = rowToPixel(currentRow);
-			int previewWidth = currentWidth * width / columns;
-			int previewHeight = currentHeight * height / rows;
-			g.fillRect(x, y - previewHeight, previewWidth, previewHeight);
-		}
+	/**
+	 * Draws one repeat of the zoomed grid, from one major tick to the next in both
+	 * directions. The tile is anchored so that a major tick of both rows and
+	 * columns falls on the bottom left corner of the grid.
+	 * 
+	 * @return the grid tile
+	 */
+	private TexturePaint createGridTile() {
+		int tileWidth = columnWidth * columnMajorTickSpacing;
+		int tileHeight = rowHeight * rowMajorTickSpacing;
+		BufferedImage tile = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+		Graphics g = tile.getGraphics();
+		g.setColor(getBackground());
+		g.fillRect(0, 0, tileWidth, tileHeight);
+
+		g.setColor(Color.LIGHT_GRAY); // Grid line color
+		for (int y = 0; y < tileHeight; y += rowHeight)
+			g.drawLine(0, y, tileWidth, y); // Horizontal lines
+		for (int x = 0; x < tileWidth; x += columnWidth)
+			g.drawLine(x, 0, x, tileHeight); // Vertical lines
 
+		g.setColor(Color.GRAY); // Major tick color
+		g.fillRect(0, 0, tileWidth, 2);
+		g.fillRect(0, 0, 2, tileHeight);
+		g.dispose();
+		return new TexturePaint(tile, new Rectangle(0, height, tileWidth, tileHeight));
 	}
 
 	//////////////////////////////////////////////////////////////////////
@@ -253,28 +627,31 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 
 	/**
 	 * This is called when a mouse button is pressed. Initialize values for a
-	 * preview cell and call onCellPressed before repainting.
+	 * preview cell and call onCellPressed before repainting the preview.
 	 */
 	@Override
 	public void mousePressed(MouseEvent e) {
 		if (e.getButton() == 1) {
+			Rectangle before = getPreviewBounds();
 			drawing = true;
 			currentRow = pixelToRow(e.getY());
 			currentColumn = pixelToCol(e.getX());
 			currentHeight = Math.max(1, rowRestriction);
 			currentWidth = Math.max(1, colRestriction);
 			onCellPressed(currentRow, currentColumn, currentHeight, currentWidth);
-			repaint();
+			previewChanged(before);
 		}
 	}
 
 	/**
 	 * This is called when a mouse is moved while a button is pressed. Update values
-	 * for the preview cell and call onCellDragged before repainting.
+	 * for the preview cell and call onCellDragged. Only the area the preview moved
+	 * across is repainted, once per frame however many events arrive.
 	 */
 	@Override
 	public void mouseDragged(MouseEvent e) {
 		if (drawing) {
+			Rectangle before = getPreviewBounds();
 			if (rowRestriction > 0) {
 				currentRow = pixelToRow(e.getY());
 				currentHeight = Math.max(1, rowRestriction);
@@ -286,19 +663,22 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 			} else
 				currentWidth = pixelToCol(e.getX()) - currentColumn + 1;
 			onCellDragged(currentRow, currentColumn, currentHeight, currentWidth);
+			previewChanged(before);
 		}
-		repaint();
 	}
 
 	/**
 	 * This is called when a mouse button is released. If there is a valid preview
-	 * cell, add it to the collection and call onCellReleased before repainting.
+	 * cell, add it to the collection (unless a subclass provides the cells) and
+	 * call onCellReleased before repainting where the preview was, which is where
+	 * the new cell is.
 	 */
 	@Override
 	public void mouseReleased(MouseEvent e) {
 		if (drawing) {
-			if (currentHeight > 0 && currentWidth > 0) {
-				addCell(currentRow, currentColumn, currentHeight, currentWidth);
+			Rectangle before = getPreviewBounds();
+			if (currentHeight > 0 && currentWidth > 0 && cellSource == cells) {
+				cells.add(new CellIndex.Cell(currentRow, currentColumn, currentHeight, currentWidth));
 			}
 			onCellReleased(currentRow, currentColumn, currentHeight, currentWidth);
 			currentRow = -1;
@@ -306,7 +686,7 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 			currentWidth = -1;
 			currentHeight = -1;
 			drawing = false;
-			repaint();
+			previewChanged(before);
 		}
 	}
 
@@ -322,11 +702,7 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 			// remove all cells from the list with this row and column
 			int row = pixelToRow(e.getY());
 			int col = pixelToCol(e.getX());
-			for (int i = 0; i < cells.size(); i++)
-				if (cells.get(i).row == row && cells.get(i).col == col) {
-					cells.remove(i);
-					i--;
-				}
+			cells.removeAt(row, col);
 			onCellRemoved(row, col);
 			repaint();
 		}
@@ -347,8 +723,84 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 	public void mouseMoved(MouseEvent e) {
 	} // currently unused
 
+	/**
+	 * Zooms the grid when the wheel turns with control held, keeping the row and
+	 * column under the mouse in place. Other wheel events are passed on, so the
+	 * enclosing JScrollPane still scrolls.
+	 */
+	@Override
+	public void mouseWheelMoved(MouseWheelEvent e) {
+		JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+		if (viewport == null || (e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) == 0) {
+			if (getParent() != null)
+				getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+			return;
+		}
+
+		double column = (double) e.getX() * columns / width;
+		double row = (double) e.getY() * rows / height;
+		Point position = viewport.getViewPosition();
+		int offsetX = e.getX() - position.x;
+		int offsetY = e.getY() - position.y;
+
+		// Start from the current size of a row and column
+		int newColumnWidth = isZoomed() ? columnWidth : Math.max(MIN_ZOOM, width / columns);
+		int newRowHeight = isZoomed() ? rowHeight : Math.max(MIN_ZOOM, height / rows);
+		int step = e.getWheelRotation() < 0 ? 1 : -1;
+		if ((e.getModifiersEx() & InputEvent.SHIFT_DOWN_MASK) != 0)
+			newRowHeight += step * Math.max(1, newRowHeight / 4);
+		else
+			newColumnWidth += step * Math.max(1, newColumnWidth / 4);
+
+		// Zooming out until the whole grid fits goes back to fitting the view
+		Dimension extent = viewport.getExtentSize();
+		if (step < 0 && columns * newColumnWidth <= extent.width && rows * newRowHeight <= extent.height) {
+			fitToView();
+			return;
+		}
+		setZoom(newColumnWidth, newRowHeight);
+		viewport.validate();
+		int x = (int) (column * columnWidth) - offsetX;
+		int y = (int) (row * rowHeight) - offsetY;
+		viewport.setViewPosition(new Point(Math.max(0, x), Math.max(0, y)));
+	}
+
+	//////////////////////////////////////////////////////////////////////
+	// Scrollable methods, so the grid fits the JScrollPane it is in until it
+	// is zoomed.
+	//////////////////////////////////////////////////////////////////////
+
+	@Override
+	public Dimension getPreferredScrollableViewportSize() {
+		return fitSize;
+	}
+
+	@Override
+	public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+		if (orientation == SwingConstants.HORIZONTAL)
+			return Math.max(1, columnWidth);
+		return Math.max(1, rowHeight);
+	}
+
+	@Override
+	public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+		if (orientation == SwingConstants.HORIZONTAL)
+			return visibleRect.width;
+		return visibleRect.height;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportWidth() {
+		return !isZoomed();
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportHeight() {
+		return !isZoomed();
+	}
+
 	//////////////////////////////////////////////////////////////////////
-	// Private helper methods and Cell class below.
+	// Private helper methods below.
 	// You can modify if desired, but you don't need to.
 	//////////////////////////////////////////////////////////////////////
 
@@ -359,7 +811,9 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 	 * @return pixel y value of the top edge
 	 */
 	private int rowToPixel(int row) {
-		return height - row * height / rows;
+		if (rowPixels != null && row >= 0 && row < rowPixels.length)
+			return rowPixels[row];
+		return height - (int) ((long) row * height / rows);
 	}
 
 	/**
@@ -369,7 +823,9 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 	 * @return pixel x value of the left side
 	 */
 	private int colToPixel(int col) {
-		return col * width / (columns);
+		if (colPixels != null && col >= 0 && col < colPixels.length)
+			return colPixels[col];
+		return (int) ((long) col * width / (columns));
 	}
 
 	/**
@@ -379,7 +835,7 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 	 * @return index of row containing that pixel
 	 */
 	private int pixelToRow(int py) {
-		return rows * (height - 1 - py) / height;
+		return (int) ((long) rows * (height - 1 - py) / height);
 	}
 
 	/**
@@ -389,35 +845,7 @@ public abstract class GridCanvas extends JPanel implements MouseListener, MouseM
 	 * @return index of column containing that pixel
 	 */
 	private int pixelToCol(int px) {
-		return columns * px / width;
-	}
-
-	/**
-	 * Represents a colored cell in the grid.
-	 */
-	private class Cell {
-		public int row;
-		public int col;
-		public int rowSpan;
-		public int colSpan;
-		public Color color;
-
-		/**
-		 * Constructs a cell object
-		 * 
-		 * @param row     - vertical position
-		 * @param col     - horizontal position
-		 * @param rowSpan - height
-		 * @param colSpan - width
-		 * @param color   - of cell
-		 */
-		public Cell(int row, int col, int rowSpan, int colSpan, Color color) {
-			this.row = row;
-			this.col = col;
-			this.color = color;
-			this.rowSpan = rowSpan;
-			this.colSpan = colSpan;
-		}
+		return (int) ((long) columns * px / width);
 	}
 
 	// Required by a serializable class (ignore for now)
@@ -0,0 +1,458 @@
+package assign11;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends notes to a SimpleSynthesizer from a dedicated output thread, so a slow
+ * MIDI call never delays the timer thread that schedules events. Each thread
+ * that plays notes gets its own MidiRingBuffer of encoded messages, which makes
+ * every ring single-producer, single-consumer and lock-free. The output thread
+ * passes the messages of all rings through a MidiPipeline of live transforms
+ * and on to the synthesizer.
+ *
+ * Every message is stamped from one counter as it is sent, and the output
+ * thread merges the rings by stamp. A message is only sent once the rings have
+ * been read again after it was seen, so any message sent before it, on any
+ * thread, has been seen too and goes first. A note off sent after a note on
+ * therefore always arrives after it, whichever threads sent them.
+ *
+ * When a ring is full, a note on is dropped, since playing it late would be
+ * worse than not playing it. Other messages wait at most SPILL_WAIT_NANOS for
+ * room, then go to a small spill list beside the ring, which the output thread
+ * merges by stamp like the rings. A note is therefore never left sounding, and
+ * a thread that sends notes, such as the Event Dispatch Thread playing a
+ * preview, is never held up for long by a slow device. Full rings are counted
+ * as overruns, and messages that had to be spilled are counted too.
+ *
+ * @author Olivia Styler
+ * @version December 22, 2024
+ */
+public class MidiOutput {
+
+	/** Command of an encoded note on message. */
+	public static final int NOTE_ON = 0x90;
+
+	/** Command of an encoded note off message. */
+	public static final int NOTE_OFF = 0x80;
+
+	/** Velocity of the notes the events play. */
+	public static final int DEFAULT_VELOCITY = 100;
+
+	/** Number of messages each producing thread can have waiting. */
+	public static final int RING_CAPACITY = 1024;
+
+	/** Longest a message that must not be dropped waits for room in a full ring. */
+	public static final long SPILL_WAIT_NANOS = 1_000_000;
+
+	// Producers wake the idle output thread, so this is only a safety net
+	private static final long IDLE_NANOS = 100_000_000;
+
+	private static final ConcurrentHashMap<SimpleSynthesizer, MidiOutput> outputs = new ConcurrentHashMap<>();
+
+	private final SimpleSynthesizer synthesizer;
+	private final MidiPipeline pipeline;
+	private final CopyOnWriteArrayList<Producer> producers;
+	private final ThreadLocal<Producer> ownRing;
+	private final AtomicLong stamps; // the next message's place in the order
+	private final AtomicLong spills; // messages that found their ring full for too long
+	private final Thread thread;
+	private volatile boolean idle;
+	private volatile long delivered; // written by the output thread only
+	private volatile int maxDepth; // written by the output thread only
+	private volatile long retiredOverruns; // from rings of ended threads, likewise
+
+	/**
+	 * Creates an output for a synthesizer and starts its thread.
+	 *
+	 * @param synthesizer - to send the messages to
+	 */
+	private MidiOutput(SimpleSynthesizer synthesizer) {
+		this.synthesizer = synthesizer;
+		pipeline = new MidiPipeline();
+		producers = new CopyOnWriteArrayList<>();
+		ownRing = ThreadLocal.withInitial(this::register);
+		stamps = new AtomicLong();
+		spills = new AtomicLong();
+		thread = new Thread(this::run, "MIDI output");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Gets the output for a synthesizer, creating it the first time.
+	 *
+	 * @param synthesizer - the synthesizer
+	 * @return its output
+	 */
+	public static MidiOutput of(SimpleSynthesizer synthesizer) {
+		return outputs.computeIfAbsent(synthesizer, MidiOutput::new);
+	}
+
+	/**
+	 * Packs a message into a long, 16 bits per field.
+	 *
+	 * @param command  - NOTE_ON or NOTE_OFF
+	 * @param channel  - channel of the note
+	 * @param pitch    - pitch of the note
+	 * @param velocity - velocity of the note
+	 * @return the encoded message
+	 */
+	public static long encode(int command, int channel, int pitch, int velocity) {
+		return ((long) command << 48) | ((long) (channel & 0xFFFF) << 32) | ((long) (pitch & 0xFFFF) << 16)
+				| (velocity & 0xFFFF);
+	}
+
+	/**
+	 * Gets the command of an encoded message.
+	 *
+	 * @param message - the encoded message
+	 * @return NOTE_ON or NOTE_OFF
+	 */
+	public static int getCommand(long message) {
+		return (int) (message >>> 48);
+	}
+
+	/**
+	 * Gets the channel of an encoded message.
+	 *
+	 * @param message - the encoded message
+	 * @return the channel
+	 */
+	public static int getChannel(long message) {
+		return (int) (message >>> 32) & 0xFFFF;
+	}
+
+	/**
+	 * Gets the pitch of an encoded message.
+	 *
+	 * @param message - the encoded message
+	 * @return the pitch
+	 */
+	public static int getPitch(long message) {
+		return (int) (message >>> 16) & 0xFFFF;
+	}
+
+	/**
+	 * Gets the velocity of an encoded message.
+	 *
+	 * @param message - the encoded message
+	 * @return the velocity
+	 */
+	public static int getVelocity(long message) {
+		return (int) message & 0xFFFF;
+	}
+
+	/**
+	 * Gets the stages every message passes through before reaching the
+	 * synthesizer.
+	 *
+	 * @return the pipeline
+	 */
+	public MidiPipeline getPipeline() {
+		return pipeline;
+	}
+
+	/**
+	 * Queues a note on.
+	 *
+	 * @param channel - to use
+	 * @param pitch   - to turn on
+	 */
+	public void noteOn(int channel, int pitch) {
+		send(encode(NOTE_ON, channel, pitch, DEFAULT_VELOCITY));
+	}
+
+	/**
+	 * Queues a note off.
+	 *
+	 * @param channel - to use
+	 * @param pitch   - to turn off
+	 */
+	public void noteOff(int channel, int pitch) {
+		send(encode(NOTE_OFF, channel, pitch, 0));
+	}
+
+	/**
+	 * Queues an encoded message on the calling thread's ring and wakes the output
+	 * thread if it is idle. If the ring is full, a note on is dropped, and any
+	 * other message waits a little for room and is then spilled.
+	 *
+	 * @param message - the encoded message
+	 */
+	public void send(long message) {
+		Producer producer = ownRing.get();
+		MidiRingBuffer ring = producer.ring;
+		long stamp = stamps.getAndIncrement();
+		if (!ring.offer(stamp, message)) {
+			if (getCommand(message) == NOTE_ON) {
+				return;
+			}
+			LockSupport.unpark(thread);
+			long deadline = System.nanoTime() + SPILL_WAIT_NANOS;
+			boolean added = false;
+			while (!added && System.nanoTime() - deadline < 0) {
+				Thread.yield();
+				// Only this thread adds to the ring, so room now is room for the offer
+				added = ring.size() < ring.getCapacity() && ring.offer(stamp, message);
+			}
+			if (!added) {
+				producer.spill(stamp, message);
+				spills.incrementAndGet();
+			}
+		}
+		if (idle) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Gets the number of messages waiting to be sent, over all threads.
+	 *
+	 * @return number of messages waiting
+	 */
+	public int getQueueDepth() {
+		int depth = 0;
+		for (Producer producer : producers) {
+			depth += producer.ring.size() + producer.getSpillSize();
+		}
+		return depth;
+	}
+
+	/**
+	 * Gets the most messages the output thread has found waiting at once.
+	 *
+	 * @return the deepest queue seen
+	 */
+	public int getMaxQueueDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Gets the number of times a message found its ring full. Counts from threads
+	 * that have since ended are included.
+	 *
+	 * @return number of overruns
+	 */
+	public long getOverrunCount() {
+		long count = retiredOverruns;
+		for (Producer producer : producers) {
+			count += producer.ring.getOverrunCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the number of messages that found their ring full for longer than
+	 * SPILL_WAIT_NANOS and were spilled instead.
+	 *
+	 * @return number of spilled messages
+	 */
+	public long getSpillCount() {
+		return spills.get();
+	}
+
+	/**
+	 * Gets the number of messages sent to the synthesizer.
+	 *
+	 * @return number of messages sent
+	 */
+	public long getDeliveredCount() {
+		return delivered;
+	}
+
+	/**
+	 * Creates a ring for the calling thread. Runs once per thread.
+	 *
+	 * @return the thread's producer record
+	 */
+	private Producer register() {
+		Producer producer = new Producer(Thread.currentThread());
+		producers.add(producer);
+		return producer;
+	}
+
+	/**
+	 * The output thread: merges the rings and spill lists by stamp, and sleeps
+	 * when all are empty. Each round reads the tail of every ring and the count of
+	 * every spill list. Messages seen in an earlier round are ready: everything
+	 * sent before them was visible by this round, so it is among the heads
+	 * compared here. The ring or spill list with the oldest head sends its ready
+	 * messages until another one's head is older.
+	 *
+	 * Rings of threads that have ended are dropped once empty; the sequencers
+	 * replace their timer threads each time they stop.
+	 */
+	private void run() {
+		while (true) {
+			Producer oldest = null;
+			boolean oldestSpilled = false;
+			long oldestStamp = Long.MAX_VALUE;
+			long nextStamp = Long.MAX_VALUE;
+			int depth = 0;
+			for (Producer producer : producers) {
+				MidiRingBuffer ring = producer.ring;
+				boolean ended = !producer.owner.isAlive(); // checked before the tail
+				producer.ready = producer.seen;
+				producer.seen = ring.getTail();
+				producer.spillReady = producer.spillSeen;
+				producer.spillSeen = producer.spilled;
+				long head = ring.getHead();
+				boolean spillEmpty = producer.taken == producer.spillSeen;
+				if (head == producer.seen && spillEmpty) {
+					if (ended) {
+						retiredOverruns += ring.getOverrunCount();
+						producers.remove(producer);
+					}
+					continue;
+				}
+				depth += (int) (producer.seen - head + producer.spillSeen - producer.taken);
+				for (int lane = 0; lane < 2; lane++) {
+					boolean spilled = lane == 1;
+					if (spilled ? spillEmpty : head == producer.seen) {
+						continue;
+					}
+					long stamp = spilled ? producer.peekSpill()[0] : ring.getStamp(head);
+					if (stamp < oldestStamp) {
+						nextStamp = oldestStamp;
+						oldestStamp = stamp;
+						oldest = producer;
+						oldestSpilled = spilled;
+					} else if (stamp < nextStamp) {
+						nextStamp = stamp;
+					}
+				}
+			}
+			if (depth > maxDepth) {
+				maxDepth = depth;
+			}
+
+			if (oldest != null && oldestSpilled) {
+				long start = oldest.taken;
+				while (oldest.taken < oldest.spillReady && oldest.peekSpill()[0] < nextStamp) {
+					deliver(oldest.takeSpill()[1]);
+				}
+				delivered += oldest.taken - start;
+			} else if (oldest != null) {
+				MidiRingBuffer ring = oldest.ring;
+				long start = ring.getHead();
+				long position = start;
+				while (position < oldest.ready && ring.getStamp(position) < nextStamp) {
+					deliver(ring.getMessage(position));
+					position++;
+				}
+				ring.release(position);
+				delivered += position - start;
+			} else {
+				// Announce the sleep, then look once more so no wake-up is missed
+				idle = true;
+				if (getQueueDepth() == 0) {
+					LockSupport.parkNanos(this, IDLE_NANOS);
+				}
+				idle = false;
+			}
+		}
+	}
+
+	/**
+	 * Passes a message through the pipeline, then decodes it and passes it to the
+	 * synthesizer.
+	 *
+	 * @param message - the encoded message
+	 */
+	private void deliver(long message) {
+		try {
+			message = pipeline.process(message);
+			if (message == MidiPipeline.DROP) {
+				return;
+			}
+			if (getCommand(message) == NOTE_ON) {
+				synthesizer.noteOn(getChannel(message), getPitch(message), getVelocity(message));
+			} else {
+				synthesizer.noteOff(getChannel(message), getPitch(message));
+			}
+		} catch (RuntimeException e) {
+			// One bad message must not stop the output thread
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * The ring of one producing thread, and the spill list for messages that
+	 * found it full. Spilled messages are rare, so the list is simply locked.
+	 */
+	private static class Producer {
+		private final Thread owner;
+		private final MidiRingBuffer ring;
+		private final ArrayDeque<long[]> spill; // stamp and message pairs, guarded by itself
+		private volatile long spilled; // messages ever spilled, written by the owner only
+		private long taken; // messages ever taken from the spill list, by the output thread
+		private long seen; // tail read in the latest round, by the output thread
+		private long ready; // tail read in the round before
+		private long spillSeen; // spilled count read in the latest round
+		private long spillReady; // spilled count read in the round before
+
+		/**
+		 * Creates an empty ring for a thread.
+		 *
+		 * @param owner - the only thread that writes to it
+		 */
+		private Producer(Thread owner) {
+			this.owner = owner;
+			this.ring = new MidiRingBuffer(RING_CAPACITY);
+			this.spill = new ArrayDeque<>();
+		}
+
+		/**
+		 * Adds a message to the spill list. Called by the owner only.
+		 *
+		 * @param stamp   - place of the message in the order of all messages
+		 * @param message - the encoded message
+		 */
+		private void spill(long stamp, long message) {
+			synchronized (spill) {
+				spill.addLast(new long[] { stamp, message });
+			}
+			spilled++; // publishes the message to the output thread
+		}
+
+		/**
+		 * Gets the oldest spilled message without taking it. Called by the output
+		 * thread only, when the list holds a message it has seen.
+		 *
+		 * @return its stamp and message
+		 */
+		private long[] peekSpill() {
+			synchronized (spill) {
+				return spill.peekFirst();
+			}
+		}
+
+		/**
+		 * Takes the oldest spilled message. Called by the output thread only.
+		 *
+		 * @return its stamp and message
+		 */
+		private long[] takeSpill() {
+			synchronized (spill) {
+				taken++;
+				return spill.pollFirst();
+			}
+		}
+
+		/**
+		 * Gets the number of spilled messages waiting. May be called from any thread.
+		 *
+		 * @return number of spilled messages waiting
+		 */
+		private int getSpillSize() {
+			synchronized (spill) {
+				return spill.size();
+			}
+		}
+	}
+}
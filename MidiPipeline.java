@@ -0,0 +1,317 @@
+package assign11;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The stages notes pass through between the sequencers and the synthesizer,
+ * such as transposing or muting channels. The stages change the notes as they
+ * play, so the stored events never need rewriting or re-sorting.
+ *
+ * The pipeline runs on the MIDI output thread and works on the encoded longs of
+ * MidiOutput, without allocating. The list of stages is replaced as a whole
+ * through a volatile field, so stages can be added or removed from any thread
+ * while notes are playing.
+ *
+ * Only note ons pass through the stages. The pipeline remembers what each note
+ * on became, and sends the matching note off to the same channel and pitch. A
+ * stage changed while a note sounds therefore can never leave it stuck. Note
+ * ons of the same channel and pitch can overlap, for example a long note under
+ * a short one, so each channel and pitch keeps a small stack of what its
+ * sounding notes became, and each note off ends the newest. A note on that
+ * would overflow the stack is dropped, and so is the note off that pairs with
+ * it. Notes outside the usual 16 channels are not remembered, and their note
+ * offs pass through the stages as well.
+ *
+ * @author Olivia Styler
+ * @version December 23, 2024
+ */
+public class MidiPipeline {
+
+	/** Returned by a stage to stop a message. Never a valid message. */
+	public static final long DROP = 0;
+
+	// Notes are remembered for the usual 16 channels and 128 pitches
+	private static final int CHANNELS = 16;
+	private static final int PITCHES = 128;
+	private static final int DEPTH = 8; // overlapping notes remembered per channel and pitch
+	private static final long DROPPED_NOTE = -1; // a note on that was stopped
+
+	private volatile MidiStage[] stages;
+
+	// Used on the output thread only
+	private final long[] sounding; // what each note on became, DEPTH entries per channel and pitch
+	private final int[] counts; // entries in use per channel and pitch
+	private final int[] overflows; // note ons dropped per channel and pitch because the stack was full
+
+	/**
+	 * Creates a pipeline with no stages, which passes every message unchanged.
+	 */
+	public MidiPipeline() {
+		stages = new MidiStage[0];
+		sounding = new long[CHANNELS * PITCHES * DEPTH];
+		counts = new int[CHANNELS * PITCHES];
+		overflows = new int[CHANNELS * PITCHES];
+	}
+
+	/**
+	 * Replaces all the stages. Notes already sounding still end normally.
+	 *
+	 * @param newStages - the stages, in the order notes pass through them
+	 */
+	public synchronized void setStages(MidiStage... newStages) {
+		stages = newStages.clone();
+	}
+
+	/**
+	 * Adds a stage at the end.
+	 *
+	 * @param stage - to add
+	 */
+	public synchronized void add(MidiStage stage) {
+		MidiStage[] current = stages;
+		MidiStage[] added = new MidiStage[current.length + 1];
+		System.arraycopy(current, 0, added, 0, current.length);
+		added[current.length] = stage;
+		stages = added;
+	}
+
+	/**
+	 * Removes a stage, if present.
+	 *
+	 * @param stage - to remove
+	 */
+	public synchronized void remove(MidiStage stage) {
+		MidiStage[] current = stages;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == stage) {
+				MidiStage[] removed = new MidiStage[current.length - 1];
+				System.arraycopy(current, 0, removed, 0, i);
+				System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+				stages = removed;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Passes a message through the stages. Called on the output thread only.
+	 *
+	 * @param message - an encoded message
+	 * @return the message to send, or DROP
+	 */
+	public long process(long message) {
+		int channel = MidiOutput.getChannel(message);
+		int pitch = MidiOutput.getPitch(message);
+		int slot = channel < CHANNELS && pitch >= 0 && pitch < PITCHES ? channel * PITCHES + pitch : -1;
+
+		if (MidiOutput.getCommand(message) == MidiOutput.NOTE_OFF && slot >= 0) {
+			if (overflows[slot] > 0) {
+				overflows[slot]--;
+				return DROP; // pairs with a note on that was never sent
+			}
+			if (counts[slot] == 0) {
+				return message; // not a note that was played
+			}
+			long on = sounding[slot * DEPTH + --counts[slot]];
+			if (on == DROPPED_NOTE) {
+				return DROP;
+			}
+			return MidiOutput.encode(MidiOutput.NOTE_OFF, MidiOutput.getChannel(on), MidiOutput.getPitch(on), 0);
+		}
+		if (slot >= 0 && counts[slot] == DEPTH) {
+			overflows[slot]++;
+			return DROP;
+		}
+
+		for (MidiStage stage : stages) {
+			message = stage.process(message);
+			if (message == DROP) {
+				break;
+			}
+		}
+		if (slot >= 0) {
+			sounding[slot * DEPTH + counts[slot]++] = message == DROP ? DROPPED_NOTE : message;
+		}
+		return message;
+	}
+
+	/**
+	 * Shifts the pitch of every note by a number of semitones. Notes shifted
+	 * outside the MIDI range are dropped.
+	 */
+	public static class Transpose implements MidiStage {
+		private volatile int semitones;
+
+		/**
+		 * Sets the shift.
+		 *
+		 * @param semitones - semitones up, or down if negative
+		 */
+		public void setSemitones(int semitones) {
+			this.semitones = semitones;
+		}
+
+		/**
+		 * Gets the shift.
+		 *
+		 * @return semitones up, or down if negative
+		 */
+		public int getSemitones() {
+			return semitones;
+		}
+
+		@Override
+		public long process(long message) {
+			int pitch = MidiOutput.getPitch(message) + semitones;
+			if (pitch < 0 || pitch >= PITCHES) {
+				return DROP;
+			}
+			return MidiOutput.encode(MidiOutput.getCommand(message), MidiOutput.getChannel(message), pitch,
+					MidiOutput.getVelocity(message));
+		}
+	}
+
+	/**
+	 * Scales the velocity of every note by a percentage, keeping it between 1 and
+	 * 127 so no note is silenced.
+	 */
+	public static class VelocityScale implements MidiStage {
+		private volatile int percent = 100;
+
+		/**
+		 * Sets the scale.
+		 *
+		 * @param percent - 100 leaves velocities unchanged
+		 * @throws IllegalArgumentException if the percentage is negative
+		 */
+		public void setPercent(int percent) {
+			if (percent < 0) {
+				throw new IllegalArgumentException("Invalid percentage: " + percent);
+			}
+			this.percent = percent;
+		}
+
+		/**
+		 * Gets the scale.
+		 *
+		 * @return the percentage
+		 */
+		public int getPercent() {
+			return percent;
+		}
+
+		@Override
+		public long process(long message) {
+			int velocity = MidiOutput.getVelocity(message) * percent / 100;
+			velocity = Math.max(1, Math.min(127, velocity));
+			return MidiOutput.encode(MidiOutput.getCommand(message), MidiOutput.getChannel(message),
+					MidiOutput.getPitch(message), velocity);
+		}
+	}
+
+	/**
+	 * Mutes and solos channels. Notes on a muted channel are dropped, and while
+	 * any channel is soloed, notes on every other channel are dropped too.
+	 */
+	public static class ChannelFilter implements MidiStage {
+		private volatile int muted; // one bit per channel
+		private volatile int soloed;
+
+		/**
+		 * Mutes or unmutes a channel.
+		 *
+		 * @param channel - between 0 and 15
+		 * @param mute    - true to mute
+		 */
+		public synchronized void setMuted(int channel, boolean mute) {
+			muted = mute ? muted | bit(channel) : muted & ~bit(channel);
+		}
+
+		/**
+		 * Solos or unsolos a channel.
+		 *
+		 * @param channel - between 0 and 15
+		 * @param solo    - true to solo
+		 */
+		public synchronized void setSoloed(int channel, boolean solo) {
+			soloed = solo ? soloed | bit(channel) : soloed & ~bit(channel);
+		}
+
+		/**
+		 * Returns true if notes on a channel are let through.
+		 *
+		 * @param channel - between 0 and 15
+		 * @return true if audible
+		 */
+		public boolean isAudible(int channel) {
+			int solos = soloed;
+			return (muted & bit(channel)) == 0 && (solos == 0 || (solos & bit(channel)) != 0);
+		}
+
+		@Override
+		public long process(long message) {
+			return isAudible(MidiOutput.getChannel(message)) ? message : DROP;
+		}
+
+		/**
+		 * Gets the bit of a channel.
+		 *
+		 * @param channel - between 0 and 15
+		 * @return its bit, or 0 for channels that cannot be muted
+		 */
+		private static int bit(int channel) {
+			if (channel < 0 || channel >= CHANNELS) {
+				return 0;
+			}
+			return 1 << channel;
+		}
+	}
+
+	/**
+	 * Moves the notes of one channel to another, for example to play a track
+	 * with the instrument of a different channel.
+	 */
+	public static class ChannelRemap implements MidiStage {
+		private final AtomicIntegerArray targets;
+
+		/**
+		 * Creates a remap that leaves every channel where it is.
+		 */
+		public ChannelRemap() {
+			targets = new AtomicIntegerArray(CHANNELS);
+			for (int i = 0; i < CHANNELS; i++) {
+				targets.set(i, i);
+			}
+		}
+
+		/**
+		 * Sends the notes of one channel to another.
+		 *
+		 * @param from - channel of the events, between 0 and 15
+		 * @param to   - channel to play them on
+		 */
+		public void setTarget(int from, int to) {
+			targets.set(from, to);
+		}
+
+		/**
+		 * Gets where the notes of a channel are sent.
+		 *
+		 * @param from - channel of the events, between 0 and 15
+		 * @return channel they are played on
+		 */
+		public int getTarget(int from) {
+			return targets.get(from);
+		}
+
+		@Override
+		public long process(long message) {
+			int channel = MidiOutput.getChannel(message);
+			if (channel >= CHANNELS) {
+				return message;
+			}
+			return MidiOutput.encode(MidiOutput.getCommand(message), targets.get(channel),
+					MidiOutput.getPitch(message), MidiOutput.getVelocity(message));
+		}
+	}
+}
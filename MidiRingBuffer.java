@@ -0,0 +1,155 @@
+package assign11;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size queue of encoded MIDI messages between exactly one producer
+ * thread and exactly one consumer thread, without locks. Each message is stored
+ * with a stamp, its place in the order of all messages, in two neighbouring
+ * elements of a long[] used as a ring. The producer only writes the tail counter
+ * and the consumer only writes the head counter, so neither ever waits for the
+ * other.
+ *
+ * Positions count every message ever offered, so they only grow. The consumer
+ * reads the messages between its head and the tail it last read, then releases
+ * them by moving the head. The producer keeps a cached copy of the head and
+ * rereads it only when the ring looks full.
+ *
+ * @author Olivia Styler
+ * @version December 22, 2024
+ */
+public class MidiRingBuffer {
+
+	private final long[] slots; // stamp, then message, for each position
+	private final int mask;
+
+	private final AtomicLong head; // next position to read, written by the consumer
+	private final AtomicLong tail; // next position to write, written by the producer
+	private long cachedHead; // the producer's copy of head
+
+	private volatile long overruns; // written by the producer only
+
+	/**
+	 * Creates an empty ring.
+	 *
+	 * @param capacity - most messages it can hold, rounded up to a power of two
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public MidiRingBuffer(int capacity) {
+		if (capacity < 1 || capacity > 1 << 29) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		slots = new long[size * 2];
+		mask = size - 1;
+		head = new AtomicLong();
+		tail = new AtomicLong();
+	}
+
+	/**
+	 * Gets the most messages the ring can hold.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Adds a message, if there is room. Called by the producer only.
+	 *
+	 * @param stamp   - place of the message in the order of all messages
+	 * @param message - an encoded message
+	 * @return true if added, false if the ring was full
+	 */
+	public boolean offer(long stamp, long message) {
+		long position = tail.get();
+		if (position - cachedHead > mask) {
+			cachedHead = head.get();
+			if (position - cachedHead > mask) {
+				overruns++;
+				return false;
+			}
+		}
+		int slot = ((int) position & mask) * 2;
+		slots[slot] = stamp;
+		slots[slot + 1] = message;
+		tail.set(position + 1); // publishes the slot to the consumer
+		return true;
+	}
+
+	/**
+	 * Gets the position of the oldest message not yet released. Called by the
+	 * consumer only.
+	 *
+	 * @return the head position
+	 */
+	public long getHead() {
+		return head.get();
+	}
+
+	/**
+	 * Gets the position after the newest message offered. Every message before it
+	 * may be read. Called by the consumer only.
+	 *
+	 * @return the tail position
+	 */
+	public long getTail() {
+		return tail.get();
+	}
+
+	/**
+	 * Gets the stamp of a message between the head and the last tail read.
+	 * Called by the consumer only.
+	 *
+	 * @param position - of the message
+	 * @return its stamp
+	 */
+	public long getStamp(long position) {
+		return slots[((int) position & mask) * 2];
+	}
+
+	/**
+	 * Gets a message between the head and the last tail read. Called by the
+	 * consumer only.
+	 *
+	 * @param position - of the message
+	 * @return the encoded message
+	 */
+	public long getMessage(long position) {
+		return slots[((int) position & mask) * 2 + 1];
+	}
+
+	/**
+	 * Frees every message before a position for the producer to reuse. Called by
+	 * the consumer only.
+	 *
+	 * @param position - the new head, no later than the last tail read
+	 */
+	public void release(long position) {
+		head.set(position);
+	}
+
+	/**
+	 * Gets the number of messages waiting. May be called from any thread, and is
+	 * only a snapshot while the other threads keep working.
+	 *
+	 * @return number of messages waiting
+	 */
+	public int size() {
+		long readAt = head.get();
+		return (int) Math.max(0, tail.get() - readAt);
+	}
+
+	/**
+	 * Gets the number of times an offer found the ring full.
+	 *
+	 * @return number of failed offers
+	 */
+	public long getOverrunCount() {
+		return overruns;
+	}
+}
@@ -0,0 +1,26 @@
+package assign11;
+
+/**
+ * One step of a MidiPipeline, such as a transpose or a channel filter. A stage
+ * takes a message encoded by MidiOutput.encode, normally a note on, and returns
+ * the message to pass on, or MidiPipeline.DROP to stop it.
+ *
+ * Stages run on the MIDI output thread for every note, so process must not
+ * allocate or block. Settings changed from other threads must be kept in
+ * volatile or atomic fields, so a change takes effect on the next note without
+ * stopping playback. Note offs normally skip the stages: the pipeline sends
+ * each note off to wherever its note on went.
+ *
+ * @author Olivia Styler
+ * @version December 23, 2024
+ */
+public interface MidiStage {
+
+	/**
+	 * Transforms a message, keeping its command.
+	 *
+	 * @param message - the encoded message
+	 * @return the encoded message to pass on, or MidiPipeline.DROP
+	 */
+	long process(long message);
+}
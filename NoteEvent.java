@@ -23,7 +23,7 @@ public class NoteEvent extends AudioEvent {
 	 * @param pitch      the pitch of the note
 	 */
 	public NoteEvent(int time, String instrument, int channel, int duration, int pitch, SimpleSynthesizer synthesizer) {
-		super(time, instrument, channel);
+		super(time, instrument, channel, NOTE_RANK);
 		this.duration = duration;
 		this.pitch = pitch;
 		this.synthesizer = synthesizer;
@@ -69,43 +69,33 @@ public class NoteEvent extends AudioEvent {
 	 */
 	@Override
 	public int compareTo(AudioEvent other) {
-		// First compare by time
-		if (this.getTime() != other.getTime()) {
-			return Integer.compare(this.getTime(), other.getTime());
-		}
-		// If times are equal, apply class ordering
-		if (other instanceof ChangeEvent) {
-			return 1; // ChangeEvents should come before NoteEvents
-		} else if (other instanceof TrackEvent) {
-			return -1; // NoteEvents should come before TrackEvents
-		} else {
-			return 0; // Same class, so equal ordering
-		}
+		// The sort keys hold the time and the class ordering
+		return Long.compare(getSortKey(), other.getSortKey());
 	}
 
 	/**
-	 * Executes the note event by printing a description of the event.
+	 * Executes the note event by queueing a note on for the synthesizer's output
+	 * thread.
 	 */
 	@Override
 	public void execute() {
-		synthesizer.noteOn(getChannel(), pitch);
+		MidiOutput.of(synthesizer).noteOn(getChannel(), pitch);
 	}
 
 	/**
-	 * Completes the note event. Currently, this method does not perform any
-	 * actions.
+	 * Completes the note event by queueing a note off.
 	 */
 	@Override
 	public void complete() {
-		synthesizer.noteOff(getChannel(), pitch);
+		MidiOutput.of(synthesizer).noteOff(getChannel(), pitch);
 	}
 
 	/**
-	 * Cancels the note event. Currently, this method does not perform any actions.
+	 * Cancels the note event by queueing a note off.
 	 */
 	@Override
 	public void cancel() {
-		synthesizer.noteOff(getChannel(), pitch);
+		MidiOutput.of(synthesizer).noteOff(getChannel(), pitch);
 	}
 
 }
@@ -0,0 +1,131 @@
+package assign11;
+
+import java.util.Arrays;
+
+/**
+ * Timing of the most recent paints of one GridCanvas. Recording a paint only
+ * stores a few numbers in ring buffers, so it is always on. Frames per second
+ * and percentiles are worked out only when asked for.
+ *
+ * Paints are recorded on the Event Dispatch Thread. The getters may be called
+ * from any thread, but then only give approximate results.
+ *
+ * @author Olivia Styler
+ * @version December 19, 2024
+ */
+public class PaintStats {
+
+	/** The number of paints kept. */
+	public static final int HISTORY = 128;
+
+	private final long[] startTimes;
+	private final long[] durations;
+	private long paintCount;
+	private int lastCellsDrawn;
+	private int lastCellsCulled;
+
+	/**
+	 * Creates empty statistics.
+	 */
+	public PaintStats() {
+		startTimes = new long[HISTORY];
+		durations = new long[HISTORY];
+	}
+
+	/**
+	 * Records one paint.
+	 *
+	 * @param startNanos    - System.nanoTime when the paint started
+	 * @param durationNanos - how long the paint took
+	 * @param cellsDrawn    - number of cells painted
+	 * @param cellsTotal    - number of cells the canvas holds
+	 */
+	public void record(long startNanos, long durationNanos, int cellsDrawn, int cellsTotal) {
+		int slot = (int) (paintCount % HISTORY);
+		startTimes[slot] = startNanos;
+		durations[slot] = durationNanos;
+		paintCount++;
+		lastCellsDrawn = cellsDrawn;
+		lastCellsCulled = Math.max(0, cellsTotal - cellsDrawn);
+	}
+
+	/**
+	 * Gets the number of paints recorded since the canvas was created.
+	 *
+	 * @return number of paints
+	 */
+	public long getPaintCount() {
+		return paintCount;
+	}
+
+	/**
+	 * Gets the number of paints during the last second.
+	 *
+	 * @return frames per second
+	 */
+	public double getFramesPerSecond() {
+		int kept = (int) Math.min(paintCount, HISTORY);
+		if (kept == 0)
+			return 0;
+		long now = System.nanoTime();
+		long oldest = now;
+		int frames = 0;
+		for (int i = 0; i < kept; i++) {
+			if (now - startTimes[i] <= 1_000_000_000L) {
+				frames++;
+				oldest = Math.min(oldest, startTimes[i]);
+			}
+		}
+		// If every kept paint was in the last second, there may have been more
+		if (frames == HISTORY && now > oldest)
+			return frames * 1e9 / (now - oldest);
+		return frames;
+	}
+
+	/**
+	 * Gets a percentile of the time the kept paints took.
+	 *
+	 * @param percent - between 0 and 100, such as 50 for the median
+	 * @return paint time in milliseconds, or 0 if nothing was painted yet
+	 */
+	public double getPaintMillis(double percent) {
+		int kept = (int) Math.min(paintCount, HISTORY);
+		if (kept == 0)
+			return 0;
+		long[] sorted = Arrays.copyOf(durations, kept);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percent / 100 * kept) - 1;
+		return sorted[Math.max(0, Math.min(kept - 1, index))] / 1e6;
+	}
+
+	/**
+	 * Gets the number of cells painted by the last paint.
+	 *
+	 * @return cells drawn
+	 */
+	public int getLastCellsDrawn() {
+		return lastCellsDrawn;
+	}
+
+	/**
+	 * Gets the number of cells the last paint skipped because they were outside
+	 * the area being painted.
+	 *
+	 * @return cells culled
+	 */
+	public int getLastCellsCulled() {
+		return lastCellsCulled;
+	}
+
+	/**
+	 * Gives a one line summary of the statistics.
+	 *
+	 * @return the summary
+	 */
+	@Override
+	public String toString() {
+		return String.format("%.1f fps, paint p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, %d cells drawn, %d culled",
+				getFramesPerSecond(), getPaintMillis(50), getPaintMillis(95), getPaintMillis(99), lastCellsDrawn,
+				lastCellsCulled);
+	}
+}
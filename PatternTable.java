@@ -0,0 +1,160 @@
+package assign11;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Scanner;
+
+/**
+ * A content-addressed table of note patterns. A pattern is the set of notes
+ * that start inside one fixed-length segment of a track, stored relative to the
+ * start of the segment as packed (time, pitch, duration) triples. Each unique
+ * pattern is stored once and referred to by the 64-bit hash of its contents.
+ *
+ * Patterns handed out by the table are shared, so callers must not modify the
+ * returned arrays.
+ *
+ * @author Olivia Styler
+ * @version December 6, 2024
+ */
+public class PatternTable {
+
+	/** The number of tics in one segment (one bar of the track editor grid). */
+	public static final int SEGMENT_LENGTH = 16;
+
+	private HashMap<Long, int[]> patterns;
+	private BetterDynamicArray<Long> order; // hashes in the order they were added
+
+	/**
+	 * Creates an empty pattern table.
+	 */
+	public PatternTable() {
+		patterns = new HashMap<>();
+		order = new BetterDynamicArray<>();
+	}
+
+	/**
+	 * Adds a pattern to the table if an equal one isn't already there.
+	 *
+	 * @param pattern - packed (time, pitch, duration) triples in canonical order
+	 * @return the hash the pattern is stored under
+	 */
+	public long intern(int[] pattern) {
+		long hash = hash(pattern);
+		while (true) {
+			int[] existing = patterns.get(hash);
+			if (existing == null) {
+				patterns.put(hash, pattern);
+				order.add(hash);
+				return hash;
+			}
+			if (Arrays.equals(existing, pattern))
+				return hash;
+			hash++; // a different pattern with the same hash, probe the next one
+		}
+	}
+
+	/**
+	 * Gets the pattern stored under a hash.
+	 *
+	 * @param hash - of the pattern
+	 * @return the shared pattern array
+	 * @throws IllegalStateException if no pattern has that hash
+	 */
+	public int[] get(long hash) {
+		int[] pattern = patterns.get(hash);
+		if (pattern == null)
+			throw new IllegalStateException("Unknown pattern: " + Long.toHexString(hash));
+		return pattern;
+	}
+
+	/**
+	 * Gets the number of unique patterns.
+	 *
+	 * @return number of patterns
+	 */
+	public int size() {
+		return order.size();
+	}
+
+	/**
+	 * Builds a pattern from notes given as separate arrays. The notes are put in
+	 * canonical order, so the same notes always produce the same pattern.
+	 *
+	 * @param times     - start of each note relative to the segment
+	 * @param pitches   - pitch of each note
+	 * @param durations - duration of each note
+	 * @param count     - number of notes
+	 * @return packed (time, pitch, duration) triples
+	 */
+	public static int[] pack(int[] times, int[] pitches, int[] durations, int count) {
+		// Times are below SEGMENT_LENGTH and pitches below 128, so a note's sort key
+		// fits in one long with the duration in the low bits
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++)
+			keys[i] = ((long) times[i] << 48) | ((long) (pitches[i] & 0xFFFF) << 32) | (durations[i] & 0xFFFFFFFFL);
+		Arrays.sort(keys);
+
+		int[] pattern = new int[count * 3];
+		for (int i = 0; i < count; i++) {
+			pattern[3 * i] = (int) (keys[i] >>> 48);
+			pattern[3 * i + 1] = (short) (keys[i] >>> 32);
+			pattern[3 * i + 2] = (int) keys[i];
+		}
+		return pattern;
+	}
+
+	/**
+	 * Computes the 64-bit FNV-1a hash of a pattern.
+	 *
+	 * @param pattern - to hash
+	 * @return the hash
+	 */
+	public static long hash(int[] pattern) {
+		long hash = 0xcbf29ce484222325L;
+		for (int value : pattern) {
+			for (int shift = 0; shift < 32; shift += 8) {
+				hash ^= (value >>> shift) & 0xFF;
+				hash *= 0x100000001b3L;
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Writes the table as a pattern block.
+	 *
+	 * @param sb - the StringBuilder to append to
+	 */
+	public void write(StringBuilder sb) {
+		sb.append("patterns\n");
+		sb.append(order.size()).append("\n");
+		for (long hash : order) {
+			int[] pattern = patterns.get(hash);
+			sb.append(Long.toHexString(hash)).append(" ").append(pattern.length / 3);
+			for (int value : pattern)
+				sb.append(" ").append(value);
+			sb.append("\n");
+		}
+	}
+
+	/**
+	 * Reads a pattern block written by write.
+	 *
+	 * @param scanner - positioned at the start of the block
+	 * @return the table
+	 */
+	public static PatternTable read(Scanner scanner) {
+		scanner.next(); // skip "patterns"
+		int count = scanner.nextInt();
+		PatternTable table = new PatternTable();
+		for (int i = 0; i < count; i++) {
+			long hash = Long.parseUnsignedLong(scanner.next(), 16);
+			int[] pattern = new int[scanner.nextInt() * 3];
+			for (int j = 0; j < pattern.length; j++)
+				pattern[j] = scanner.nextInt();
+			table.patterns.put(hash, pattern);
+			table.order.add(hash);
+		}
+		return table;
+	}
+}
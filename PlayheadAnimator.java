@@ -0,0 +1,197 @@
+package assign11;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Moves the playback bar of every editor whose sequencer is playing. A single
+ * Swing Timer drives all editors at a fixed frame rate, and it only runs while
+ * at least one registered sequencer is playing. Each frame, only the strip
+ * between the old and new position of the bar is repainted, and only for
+ * editors that are currently showing. The bar is then painted at the position
+ * the frame computed, not at a newly computed one, so it always lands inside
+ * the strip that was repainted.
+ *
+ * All methods except wake must be called on the Event Dispatch Thread.
+ *
+ * @author Olivia Styler
+ * @version December 12, 2024
+ */
+public class PlayheadAnimator implements ActionListener {
+
+	/** Milliseconds between frames, about 60 frames per second. */
+	public static final int FRAME_MILLIS = 16;
+
+	/** Width of the playback bar in pixels. */
+	public static final int PLAYHEAD_WIDTH = 5;
+
+	private static final Color PLAYHEAD_COLOR = new Color(230, 179, 255);
+
+	private static PlayheadAnimator instance;
+
+	private BetterDynamicArray<Target> targets;
+	private Timer timer;
+
+	/**
+	 * Creates an animator with no editors.
+	 */
+	private PlayheadAnimator() {
+		targets = new BetterDynamicArray<>();
+		timer = new Timer(FRAME_MILLIS, this);
+		timer.setCoalesce(true);
+	}
+
+	/**
+	 * Gets the animator shared by all editors.
+	 *
+	 * @return the animator
+	 */
+	public static synchronized PlayheadAnimator getInstance() {
+		if (instance == null)
+			instance = new PlayheadAnimator();
+		return instance;
+	}
+
+	/**
+	 * Starts animating an editor. Editors register when they are added to a
+	 * window.
+	 *
+	 * @param editor    - the component the bar is drawn on
+	 * @param sequencer - whose elapsed time the bar shows
+	 */
+	public void register(JComponent editor, SimpleSequencer sequencer) {
+		unregister(editor);
+		targets.add(new Target(editor, sequencer));
+		if (sequencer.isRunning())
+			timer.start();
+	}
+
+	/**
+	 * Stops animating an editor. Editors unregister when they are removed from a
+	 * window.
+	 *
+	 * @param editor - the component the bar is drawn on
+	 */
+	public void unregister(JComponent editor) {
+		for (int i = 0; i < targets.size(); i++) {
+			if (targets.get(i).editor == editor) {
+				targets.remove(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Starts the frame timer after playback begins. It stops by itself once
+	 * nothing is playing. This can be called on any thread.
+	 */
+	public void wake() {
+		if (SwingUtilities.isEventDispatchThread())
+			timer.start();
+		else
+			SwingUtilities.invokeLater(timer::start);
+	}
+
+	/**
+	 * Draws the playback bar of an editor where the last frame put it and
+	 * remembers where it was drawn. While no frames are running, the position is
+	 * computed again so that it follows changes in the editor's size. Editors
+	 * call this at the end of paintComponent.
+	 *
+	 * @param editor - the component being painted
+	 * @param g      - graphics context of the component
+	 */
+	public void paintPlayhead(JComponent editor, Graphics g) {
+		Target target = find(editor);
+		if (target == null)
+			return;
+		if (!timer.isRunning())
+			target.frameX = target.playheadX();
+		target.paintedX = target.frameX;
+		g.setColor(PLAYHEAD_COLOR);
+		g.fillRect(target.paintedX, 0, PLAYHEAD_WIDTH, editor.getHeight());
+	}
+
+	/**
+	 * Called by the timer once per frame. Repaints the strip each showing editor's
+	 * bar moved across, and stops the timer when no sequencer is playing.
+	 *
+	 * @param e - the timer event
+	 */
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		boolean anyRunning = false;
+		for (int i = 0; i < targets.size(); i++) {
+			Target target = targets.get(i);
+			anyRunning |= target.sequencer.isRunning();
+			if (!target.editor.isShowing())
+				continue;
+
+			// Includes the final move back to the start when playback stops
+			int x = target.playheadX();
+			target.frameX = x; // the strip below is computed from this position
+			if (x != target.paintedX) {
+				int left = Math.min(x, target.paintedX);
+				int right = Math.max(x, target.paintedX) + PLAYHEAD_WIDTH;
+				target.editor.repaint(left, 0, right - left, target.editor.getHeight());
+			}
+		}
+		if (!anyRunning)
+			timer.stop();
+	}
+
+	/**
+	 * Finds the target for an editor.
+	 *
+	 * @param editor - to look for
+	 * @return its target, or null if it isn't registered
+	 */
+	private Target find(JComponent editor) {
+		for (int i = 0; i < targets.size(); i++) {
+			if (targets.get(i).editor == editor)
+				return targets.get(i);
+		}
+		return null;
+	}
+
+	/**
+	 * An editor, the sequencer it shows, where the last frame put its bar and
+	 * where the bar was last drawn.
+	 */
+	private static class Target {
+		private final JComponent editor;
+		private final SimpleSequencer sequencer;
+		private int frameX;
+		private int paintedX;
+
+		/**
+		 * Creates a target.
+		 *
+		 * @param editor    - the component the bar is drawn on
+		 * @param sequencer - whose elapsed time the bar shows
+		 */
+		private Target(JComponent editor, SimpleSequencer sequencer) {
+			this.editor = editor;
+			this.sequencer = sequencer;
+			this.frameX = 0;
+			this.paintedX = 0;
+		}
+
+		/**
+		 * Computes the x position of the bar from the sequencer's elapsed time.
+		 *
+		 * @return pixel x value of the left edge of the bar
+		 */
+		private int playheadX() {
+			if (sequencer.getLength() <= 0)
+				return 0;
+			return (int) (sequencer.getElapsedTime() * editor.getWidth() / sequencer.getLength());
+		}
+	}
+}
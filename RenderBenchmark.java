@@ -0,0 +1,228 @@
+package assign11;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Measures how long the editors take to paint. Each case builds an editor with
+ * a given number of cells and columns, paints it into an offscreen image many
+ * times, and prints one line of JSON with the frame times and the bytes
+ * allocated per frame, so results can be collected and compared over time.
+ *
+ * Three kinds of paint are measured: the whole component ("full"), only the
+ * strip under the playback bar ("strip"), and one screen of a zoomed grid
+ * ("viewport"). A case that takes more than a few seconds stops early and
+ * reports how many frames it measured.
+ *
+ * Run with: java -Djava.awt.headless=true assign11.RenderBenchmark [frames]
+ *
+ * @author Olivia Styler
+ * @version December 18, 2024
+ */
+public class RenderBenchmark {
+
+	private static final int[] CELL_COUNTS = { 1_000, 10_000, 100_000 };
+	private static final int[] COLUMN_COUNTS = { 16, 256, 4096 };
+	private static final String[] MODES = { "full", "strip", "viewport" };
+
+	private static final int VIEW_WIDTH = 1600;
+	private static final int VIEW_HEIGHT = 960;
+	private static final int WARMUP_FRAMES = 20;
+
+	// Slow cases stop early, after at least MIN_FRAMES, so the suite finishes
+	private static final long CASE_BUDGET_NANOS = 5_000_000_000L;
+	private static final int MIN_FRAMES = 3;
+
+	private static SimpleSynthesizer synthesizer;
+
+	/**
+	 * Runs every case and prints the results, one JSON object per line.
+	 *
+	 * @param args - optionally, the number of frames to measure per case
+	 * @throws Exception if a case fails
+	 */
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		synthesizer = new SimpleSynthesizer();
+
+		for (String editor : new String[] { "GridCanvas", "TrackEditor", "SongEditor" }) {
+			for (int cells : CELL_COUNTS) {
+				for (int columns : COLUMN_COUNTS) {
+					GridCanvas[] canvas = new GridCanvas[1];
+					SwingUtilities.invokeAndWait(() -> canvas[0] = create(editor, cells, columns));
+					for (String mode : MODES)
+						System.out.println(run(editor, canvas[0], mode, cells, columns, frames));
+				}
+			}
+		}
+		// The sequencers' timer threads would keep the program running
+		System.exit(0);
+	}
+
+	/**
+	 * Builds an editor filled with cells placed at random, always the same way for
+	 * the same arguments.
+	 *
+	 * @param editor  - name of the class to build
+	 * @param cells   - number of cells
+	 * @param columns - number of columns
+	 * @return the editor
+	 */
+	private static GridCanvas create(String editor, int cells, int columns) {
+		Random random = new Random(cells * 31L + columns);
+		if (editor.equals("TrackEditor")) {
+			TrackEditor track = new TrackEditor(VIEW_WIDTH, VIEW_HEIGHT, 0, synthesizer);
+			track.setLength(columns);
+			BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
+			for (int i = 0; i < cells; i++)
+				events.add(new NoteEvent(random.nextInt(columns), "Note", 0, 1 + random.nextInt(4),
+						random.nextInt(128), synthesizer));
+			track.setEvents(events);
+			return track;
+		}
+		if (editor.equals("SongEditor")) {
+			BetterDynamicArray<TrackPanel> tracks = new BetterDynamicArray<>();
+			for (int t = 0; t < 16; t++) {
+				TrackPanel track = new TrackPanel(VIEW_WIDTH, VIEW_HEIGHT, t, synthesizer);
+				BetterDynamicArray<AudioEvent> notes = new BetterDynamicArray<>();
+				for (int i = 0; i < 16; i++)
+					notes.add(new NoteEvent(i, "Note", t, 1, random.nextInt(128), synthesizer));
+				track.setEvents(notes);
+				tracks.add(track);
+			}
+			SongEditor song = new SongEditor(VIEW_WIDTH, VIEW_HEIGHT);
+			song.setTrackList(tracks);
+			song.setLength(columns);
+			BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
+			for (int i = 0; i < cells; i++) {
+				int t = random.nextInt(16);
+				events.add(new TrackEvent(random.nextInt(columns), "Track" + t, t, 16,
+						tracks.get(t).getSequencer()));
+			}
+			song.setEvents(events);
+			return song;
+		}
+
+		GridCanvas grid = new GridCanvas(VIEW_WIDTH, VIEW_HEIGHT, 128, columns, 12, 16) {
+			@Override
+			public void onCellPressed(int row, int col, int rowSpan, int colSpan) {
+			}
+
+			@Override
+			public void onCellDragged(int row, int col, int rowSpan, int colSpan) {
+			}
+
+			@Override
+			public void onCellReleased(int row, int col, int rowSpan, int colSpan) {
+			}
+
+			@Override
+			public void onCellRemoved(int row, int col) {
+			}
+		};
+		for (int i = 0; i < cells; i++)
+			grid.addCell(random.nextInt(128), random.nextInt(columns), 1, 1 + random.nextInt(4));
+		return grid;
+	}
+
+	/**
+	 * Paints an editor repeatedly in one mode and reports the results.
+	 *
+	 * @param editor  - name of the editor's class
+	 * @param canvas  - the editor
+	 * @param mode    - full, strip or viewport
+	 * @param cells   - number of cells in the editor
+	 * @param columns - number of columns in the editor
+	 * @param frames  - most frames to measure
+	 * @return the results as a JSON object
+	 * @throws Exception if painting fails
+	 */
+	private static String run(String editor, GridCanvas canvas, String mode, int cells, int columns, int frames)
+			throws Exception {
+		long[] times = new long[frames];
+		long[] allocated = new long[1];
+		int[] measured = new int[1];
+		BufferedImage image = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		SwingUtilities.invokeAndWait(() -> {
+			if (mode.equals("viewport"))
+				canvas.setZoom(8, 8);
+			else
+				canvas.fitToView();
+			canvas.setSize(canvas.isZoomed() ? canvas.getPreferredSize()
+					: new Dimension(VIEW_WIDTH, VIEW_HEIGHT));
+			long warmupStart = System.nanoTime();
+			for (int i = 0; i < WARMUP_FRAMES && System.nanoTime() - warmupStart < CASE_BUDGET_NANOS / 5; i++)
+				paint(canvas, mode, image);
+		});
+		// Let background work started by the first frames, such as thumbnails, finish
+		Thread.sleep(200);
+		SwingUtilities.invokeAndWait(() -> {
+			long before = allocatedBytes();
+			long caseStart = System.nanoTime();
+			int count = 0;
+			while (count < frames && (count < MIN_FRAMES || System.nanoTime() - caseStart < CASE_BUDGET_NANOS)) {
+				long start = System.nanoTime();
+				paint(canvas, mode, image);
+				times[count++] = System.nanoTime() - start;
+			}
+			long after = allocatedBytes();
+			allocated[0] = before < 0 || after < 0 ? -1 : (after - before) / count;
+			measured[0] = count;
+		});
+
+		int count = measured[0];
+		long[] sorted = Arrays.copyOf(times, count);
+		long total = 0;
+		for (long time : sorted)
+			total += time;
+		Arrays.sort(sorted);
+		return String.format(
+				"{\"editor\":\"%s\",\"mode\":\"%s\",\"cells\":%d,\"columns\":%d,\"frames\":%d,"
+						+ "\"meanMicros\":%.1f,\"p50Micros\":%.1f,\"p95Micros\":%.1f,\"maxMicros\":%.1f,"
+						+ "\"allocatedBytesPerFrame\":%d}",
+				editor, mode, cells, columns, count, total / 1000.0 / count, sorted[count / 2] / 1000.0,
+				sorted[Math.min(count - 1, count * 95 / 100)] / 1000.0, sorted[count - 1] / 1000.0, allocated[0]);
+	}
+
+	/**
+	 * Paints one frame of an editor into an offscreen image.
+	 *
+	 * @param canvas - the editor
+	 * @param mode   - full, strip or viewport
+	 * @param image  - to paint into, reused for every frame
+	 */
+	private static void paint(GridCanvas canvas, String mode, BufferedImage image) {
+		Graphics2D g = image.createGraphics();
+		if (mode.equals("strip")) {
+			g.setClip(VIEW_WIDTH / 2, 0, PlayheadAnimator.PLAYHEAD_WIDTH * 2, VIEW_HEIGHT);
+		} else if (mode.equals("viewport")) {
+			// One screen from the middle of the grid
+			int x = Math.max(0, (canvas.getWidth() - VIEW_WIDTH) / 2);
+			g.translate(-x, 0);
+			g.setClip(x, 0, VIEW_WIDTH, VIEW_HEIGHT);
+		}
+		canvas.paint(g);
+		g.dispose();
+	}
+
+	/**
+	 * Gets the number of bytes the current thread has allocated, if the JVM can
+	 * tell.
+	 *
+	 * @return bytes allocated so far, or -1 if unknown
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+		return -1;
+	}
+}
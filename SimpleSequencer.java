@@ -2,8 +2,16 @@ package assign11;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A Sequencer maintains a sequence of AudioEvents and schedules their
@@ -15,12 +23,20 @@ import java.util.TimerTask;
  */
 public class SimpleSequencer implements Iterable<AudioEvent> {
 
+	// Longest stop waits for the playback timer to finish its current task
+	private static final long FINISH_MILLIS = 100;
+
 	private BetterDynamicArray<AudioEvent> sequence;
+	private EventIntervalTree spans; // the same events, indexed by the tics they cover
+	private EventHashIndex lookup; // and by channel, pitch and time
+	private volatile EventSnapshot snapshot; // the same events, for the timer thread
+	private int maxDuration; // longest event duration, or -1 if it must be recomputed
+	private int modificationCount;
 
 	private long startTime;
 	private int length;
 	private double speedFactor;
-	private boolean running;
+	private volatile boolean running; // set by the timer thread, read by the editors
 	private boolean loopSequence;
 	private Timer timer;
 
@@ -32,6 +48,11 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 	public SimpleSequencer(int sequenceLength) {
 
 		sequence = new BetterDynamicArray<AudioEvent>();
+		spans = new EventIntervalTree();
+		lookup = new EventHashIndex();
+		snapshot = EventSnapshot.empty();
+		maxDuration = -1;
+		modificationCount = 0;
 
 		startTime = 0;
 		running = false;
@@ -48,7 +69,7 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 	 */
 	public int getEventCount() {
 
-		return sequence.size();
+		return snapshot.size();
 	}
 
 	/**
@@ -58,7 +79,11 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 	 */
 	public void add(AudioEvent event) {
 		sequence.add(event);
-		sequence.sort();
+		EventSorter.sort(sequence);
+		spans.add(event);
+		lookup.add(event);
+		snapshot = snapshot.insert(indexOf(event), event);
+		changed();
 	}
 
 	/**
@@ -67,10 +92,12 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 	 * @param events - to add
 	 */
 	public void add(BetterDynamicArray<AudioEvent> events) {
-		for (int i = 0; i < events.size(); i++) {
-			sequence.add(events.get(i));
-		}
-		sequence.sort();
+		sequence.addAll(events);
+		EventSorter.sort(sequence);
+		events.forEach(spans::add);
+		events.forEach(lookup::add);
+		snapshot = EventSnapshot.of(sequence);
+		changed();
 	}
 
 	/**
@@ -80,19 +107,251 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 	 */
 	public void updateSequence(BetterDynamicArray<AudioEvent> newSequence) {
 		sequence = newSequence;
-		sequence.sort();
+		EventSorter.sort(sequence);
+		spans.rebuild(sequence);
+		lookup.rebuild(sequence);
+		snapshot = EventSnapshot.of(sequence);
+		changed();
 	}
 
 	/**
-	 * Removes the first event from the sequence that is equal to the given event.
-	 * Equality is determined by the equals method. If the event is not in the
-	 * sequence, nothing is changed.
+	 * Removes the given event from the sequence. Events are equal only to
+	 * themselves, so it is found with a binary search on its time. If the event is
+	 * not in the sequence, nothing is changed.
 	 * 
 	 * @param event - to remove
 	 */
 	public void remove(AudioEvent event) {
-		sequence.remove(event);
+		int index = indexOf(event);
+		if (index >= 0)
+			remove(index);
+	}
+
+	/**
+	 * Removes every event with the given channel, pitch and start time, found
+	 * through a hash index rather than a scan. Use EventHashIndex.ANY_CHANNEL to
+	 * remove the events of every channel, and EventHashIndex.NO_PITCH for events
+	 * without a pitch, such as TrackEvents.
+	 *
+	 * Only the search is constant time, and a cell with nothing in it costs no
+	 * more. Taking the events out is O(n) in the number of events: they are
+	 * removed by position with removeAt, which moves the rest of the sequence
+	 * once, however many events match.
+	 *
+	 * @param channel - of the events to remove, or EventHashIndex.ANY_CHANNEL
+	 * @param pitch   - of the events to remove
+	 * @param time    - start time of the events to remove
+	 * @return the number of events removed
+	 */
+	public int remove(int channel, int pitch, int time) {
+		BetterDynamicArray<AudioEvent> found = lookup.find(channel, pitch, time);
+		if (found.size() == 0)
+			return 0;
+		return removeAt(time, event -> {
+			for (AudioEvent match : found) {
+				if (match == event)
+					return true;
+			}
+			return false;
+		});
+	}
+
+	/**
+	 * Finds the position of an event in the sequence.
+	 * 
+	 * @param event - to look for
+	 * @return its index, or -1 if it is not in the sequence
+	 */
+	private int indexOf(AudioEvent event) {
+		for (int i = indexOfTime(sequence::get, sequence.size(), event.getTime()); i < sequence.size()
+				&& sequence.get(i).getTime() == event.getTime(); i++) {
+			if (sequence.get(i) == event)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes the event at the given position in the sequence.
+	 * 
+	 * @param index - of the event to remove
+	 * @throws IndexOutOfBoundsException if the index is out of bounds
+	 */
+	public void remove(int index) {
+		AudioEvent event = sequence.get(index);
+		sequence.remove(index);
+		spans.remove(event);
+		lookup.remove(event);
+		snapshot = snapshot.remove(index);
+		changed();
+	}
+
+	/**
+	 * Removes every event that starts at the given time and matches a condition.
+	 * Only the events at that time are tested, and the rest of the sequence is
+	 * moved at most once.
+	 * 
+	 * @param time   - start time of the events to test
+	 * @param filter - returns true for events to remove
+	 * @return the number of events removed
+	 */
+	public int removeAt(int time, Predicate<AudioEvent> filter) {
+		int from = indexOfTime(sequence::get, sequence.size(), time);
+		int to = indexOfTime(sequence::get, sequence.size(), time + 1);
+		int removed = sequence.removeIf(from, to, event -> {
+			if (!filter.test(event))
+				return false;
+			spans.remove(event);
+			lookup.remove(event);
+			return true;
+		});
+		if (removed > 0) {
+			AudioEvent[] kept = new AudioEvent[to - from - removed];
+			for (int i = 0; i < kept.length; i++)
+				kept[i] = sequence.get(from + i);
+			snapshot = snapshot.replace(from, to, kept);
+			changed();
+		}
+		return removed;
+	}
+
+	/**
+	 * Passes every note or track event whose span of tics overlaps a range to an
+	 * action, in order of start time. Only the events that overlap are looked at.
+	 * 
+	 * @param from   - first tic of the range
+	 * @param to     - tic after the last one of the range
+	 * @param action - to call for each event
+	 */
+	public void visitOverlapping(int from, int to, Consumer<AudioEvent> action) {
+		spans.visitOverlapping(from, to, action);
+	}
+
+	/**
+	 * Gets the note and track events that are sounding at a tic: those that start
+	 * at or before it and end after it.
+	 * 
+	 * @param tic - the time to look at
+	 * @return the events, in order of start time
+	 */
+	public BetterDynamicArray<AudioEvent> getSoundingEvents(int tic) {
+		return spans.getSounding(tic);
+	}
+
+	/**
+	 * Gets the event at the given position in the sequence. Events are kept in
+	 * sorted order.
+	 * 
+	 * @param index - of the event
+	 * @return the event
+	 * @throws IndexOutOfBoundsException if the index is out of bounds
+	 */
+	public AudioEvent getEvent(int index) {
+		return snapshot.get(index);
+	}
+
+	/**
+	 * Finds the position of the first event that starts at or after the given time,
+	 * using a binary search.
+	 * 
+	 * @param time - in tics
+	 * @return index of the first such event, or the event count if there is none
+	 */
+	public int indexOfTime(int time) {
+		EventSnapshot events = snapshot;
+		return indexOfTime(events::get, events.size(), time);
+	}
+
+	/**
+	 * Finds the position of the first event that starts at or after the given time
+	 * in a sorted list of events. The edits search the sequence itself, which is
+	 * ahead of the snapshot while they run.
+	 * 
+	 * @param events - gets the event at a position
+	 * @param size   - number of events
+	 * @param time   - in tics
+	 * @return index of the first such event, or size if there is none
+	 */
+	private static int indexOfTime(IntFunction<AudioEvent> events, int size, int time) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (events.apply(mid).getTime() < time)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Gets the longest duration of any note or track event in the sequence. An
+	 * event that ends at or after a given time must start no earlier than that
+	 * time minus this duration.
+	 * 
+	 * @return the longest duration in tics, or 0 if there are no such events
+	 */
+	public int getMaxDuration() {
+		if (maxDuration < 0) {
+			int longest = 0;
+			for (AudioEvent event : snapshot)
+				longest = Math.max(longest, getDuration(event));
+			maxDuration = longest;
+		}
+		return maxDuration;
+	}
+
+	/**
+	 * Gets the duration of a note or track event.
+	 * 
+	 * @param event - to check
+	 * @return its duration in tics, or 0 for other events
+	 */
+	public static int getDuration(AudioEvent event) {
+		if (event instanceof NoteEvent)
+			return ((NoteEvent) event).getDuration();
+		if (event instanceof TrackEvent)
+			return ((TrackEvent) event).getDuration();
+		return 0;
+
+	}
+
+	/**
+	 * Copies the events of the sequence into a new array, in order.
+	 * 
+	 * @return array of the events
+	 */
+	public AudioEvent[] toArray() {
+		return snapshot.toArray();
+	}
+
+	/**
+	 * Gets a number that changes every time events are added, removed or
+	 * replaced. Views that cache something drawn from the events compare it to
+	 * tell when to redraw.
+	 * 
+	 * @return the modification count
+	 */
+	public int getModificationCount() {
+		return modificationCount;
+	}
+
+	/**
+	 * Records that the events changed.
+	 */
+	private void changed() {
+		maxDuration = -1;
+		modificationCount++;
+	}
 
+	/**
+	 * Returns true while the sequence is playing.
+	 * 
+	 * @return true if playing
+	 */
+	public boolean isRunning() {
+		return running;
 	}
 
 	/**
@@ -103,6 +362,97 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 		// Step 3: Make one method call in BetterDynamicArray<AudioEvent> to remove all
 		// events.
 		sequence.clear(); // Assuming you have a clear method in BetterDynamicArray<AudioEvent>
+		spans.clear();
+		lookup.clear();
+		snapshot = EventSnapshot.empty();
+		changed();
+	}
+
+	/**
+	 * Performs an action on every event of the current snapshot, in sorted order,
+	 * without creating an iterator.
+	 * 
+	 * @param action - to perform on each event
+	 */
+	@Override
+	public void forEach(Consumer<? super AudioEvent> action) {
+		snapshot.forEach(action);
+	}
+
+	/**
+	 * Creates a spliterator over the current snapshot of the events, which knows
+	 * its size and splits evenly for parallel work.
+	 * 
+	 * @return the spliterator
+	 */
+	@Override
+	public Spliterator<AudioEvent> spliterator() {
+		return snapshot.spliterator();
+	}
+
+	/**
+	 * Creates a sequential stream of the events, in sorted order. The stream reads
+	 * the snapshot of the events taken when it was created, so the sequence may
+	 * be changed while the stream is in use.
+	 * 
+	 * @return the stream
+	 */
+	public Stream<AudioEvent> stream() {
+		return StreamSupport.stream(snapshot.spliterator(), false);
+	}
+
+	/**
+	 * Creates a stream of the events that may be processed on several threads,
+	 * for analyses over large songs. Like stream, it reads the snapshot taken
+	 * when it was created, so the sequence may be changed while it is in use.
+	 * 
+	 * @return the parallel stream
+	 */
+	public Stream<AudioEvent> parallelStream() {
+		return StreamSupport.stream(snapshot.spliterator(), true);
+	}
+
+	/**
+	 * Gets an unchangeable copy of the events as they are now. Later edits do not
+	 * affect it, so it may be read on any thread, such as the timer thread that
+	 * plays the sequence, without locking. Getting it takes constant time.
+	 * 
+	 * @return the events, in sorted order
+	 */
+	public EventSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Ends the playback timer once the task it is running, if any, has finished,
+	 * so that no event of the old playback runs after this returns. Every note on
+	 * the old timer thread sent is then stamped by MidiOutput before the note offs
+	 * that stop sends next, on the calling thread, so none can be left sounding,
+	 * and a start right after stop can't be silenced by a late note off.
+	 * 
+	 * The wait is bounded, in case the timer is far behind or this is called on
+	 * the timer's own thread.
+	 * 
+	 * @param ending - the timer to end
+	 */
+	private static void finish(Timer ending) {
+		CountDownLatch finished = new CountDownLatch(1);
+		try {
+			// Runs after the current task, and ends the timer before any other
+			ending.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					ending.cancel();
+					finished.countDown();
+				}
+			}, 0);
+			finished.await(FINISH_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (IllegalStateException e) {
+			// The timer has already ended
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		ending.cancel();
 	}
 
 	///////////////////////////////////////////////////////////////////////
@@ -172,8 +522,7 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 		System.out.println("starting");
 		startTime = System.currentTimeMillis();
 		running = true;
-		for (int i = 0; i < sequence.size(); i++) {
-			AudioEvent event = sequence.get(i);
+		for (AudioEvent event : snapshot) {
 			timer.schedule(new EventExecutionTask(event, true), ticsToMillis(event.getTime()));
 			if (event instanceof NoteEvent)
 				timer.schedule(new EventExecutionTask(event, false),
@@ -192,12 +541,12 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 	private boolean isStopping = false;
 
 	public void stop() {
+		finish(timer);
 		startTime = -1;
 		running = false;
-		timer.cancel();
 		timer = new Timer();
-		for(int i = 0; i < sequence.size(); i++) {
-			sequence.get(i).cancel();
+		for (AudioEvent event : snapshot) {
+			event.cancel();
 		}
 	}
 
@@ -281,13 +630,14 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 	 * An Iterator for the events in the sequence
 	 */
 	public class SequenceIterator implements Iterator<AudioEvent> {
-		private int nextIndex;
+		private Iterator<AudioEvent> events;
 
 		/**
-		 * Constructs an iterator providing events in this sequence.
+		 * Constructs an iterator providing events in this sequence, as they are
+		 * in the current snapshot.
 		 */
 		public SequenceIterator() {
-			nextIndex = 0;
+			events = snapshot.iterator();
 		}
 
 		/**
@@ -296,7 +646,7 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 		 * @return true if there is a next available event
 		 */
 		public boolean hasNext() {
-			return nextIndex < sequence.size();
+			return events.hasNext();
 		}
 
 		/**
@@ -306,10 +656,7 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 		 * @throws NoSuchElementException if there is no available event
 		 */
 		public AudioEvent next() {
-			if (!hasNext())
-				throw new NoSuchElementException();
-			nextIndex++;
-			return sequence.get(nextIndex - 1);
+			return events.next();
 		}
 
 	}
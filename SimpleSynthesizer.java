@@ -32,6 +32,20 @@ public class SimpleSynthesizer {
 	 * can be used, but it won't produce any audio.
 	 */
 	public SimpleSynthesizer() {
+		this(true);
+	}
+
+	/**
+	 * Creates a SimpleSynthesizer that may leave the midi system closed. A closed
+	 * synthesizer behaves as if the machine had no midi support: it is valid but
+	 * silent. Subclasses that only record the notes they are sent, such as the
+	 * stubs in the tests, use this so they never touch the sound hardware.
+	 * 
+	 * @param openMidi - true to open the default synthesizer, false to stay silent
+	 */
+	protected SimpleSynthesizer(boolean openMidi) {
+		if (!openMidi)
+			return; // synth, channels and instruments stay null
 		try {
 			synth = MidiSystem.getSynthesizer();
 			synth.open();
@@ -209,10 +223,24 @@ public class SimpleSynthesizer {
 	 * @param pitch   - to turn on
 	 */
 	public void noteOn(int channel, int pitch) {
+		noteOn(channel, pitch, 100);
+	}
+
+	/**
+	 * Begins playing a given pitch on the given channel with a given velocity,
+	 * which is clamped between 0 and 127. The note will not end until noteOff is
+	 * called for the same pitch and channel.
+	 * 
+	 * This has no effect if the midi system is not available or if the channel
+	 * index is not valid.
+	 * 
+	 * @param channel  - to use
+	 * @param pitch    - to turn on
+	 * @param velocity - how hard the note is struck
+	 */
+	public void noteOn(int channel, int pitch, int velocity) {
 		if (channels != null && getValidChannelIndices().contains(channel)) {
-			channels[channel].noteOn(pitch, 100); // velocity is always 100
-			// Including a velocity parameter is possible, but it
-			// is omitted for simplicity.
+			channels[channel].noteOn(pitch, Math.max(0, Math.min(127, velocity)));
 		}
 	}
 
@@ -1,23 +1,25 @@
 package assign11;
 
-import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 
 /**
  * A visual editor for managing and sequencing tracks in a song. The
  * {@code SongEditor} class provides an interactive grid-based interface where
  * each row represents a track and the columns represent time intervals. Users
- * can add, remove, and edit musical events across multiple tracks.
+ * can add, remove, and edit musical events across multiple tracks. The cells
+ * shown are read straight from the song's sequencer.
  * 
  * @author Olivia Styler
  * @version November 22, 2024
  */
 
-public class SongEditor extends GridCanvas {
+public class SongEditor extends GridCanvas implements CellSource {
 
 	private SimpleSequencer sequencer;
 	private BetterDynamicArray<TrackPanel> trackPanels;
 	private int width, height, currentTrack;
+	private TrackThumbnailCache thumbnails;
 
 	/**
 	 * Constructor initializes the SongEditor with specified width and height.
@@ -31,9 +33,11 @@ public class SongEditor extends GridCanvas {
 		this.height = height; // Start with 1 row, adjusted later based on track list
 		this.sequencer = new SimpleSequencer(128); // Initial length chosen for simplicity
 		this.trackPanels = new BetterDynamicArray<>();
+		this.thumbnails = new TrackThumbnailCache(this::repaint);
 
 		// Set initial length
 		sequencer.setLength(128);
+		setCellSource(this);
 
 		// Add mouse listeners for interaction
 		addMouseListener(this);
@@ -86,14 +90,39 @@ public class SongEditor extends GridCanvas {
 	 */
 	public void setEvents(BetterDynamicArray<AudioEvent> newEvents) {
 		clear();
-		for (int i = 0; i < newEvents.size(); i++) {
-			AudioEvent event = newEvents.get(i);
+		sequencer.updateSequence(newEvents);
+	}
+
+	/**
+	 * Shows each TrackEvent in the sequencer as a cell, with its channel (the
+	 * track number) as the row and its start time as the column. The sequencer's
+	 * interval index finds the events that overlap the range.
+	 *
+	 * @param minRow  the lowest track of the range
+	 * @param maxRow  the highest track of the range
+	 * @param minCol  the first time of the range
+	 * @param maxCol  the last time of the range
+	 * @param visitor called for each track event
+	 */
+	@Override
+	public void visitCells(int minRow, int maxRow, int minCol, int maxCol, CellVisitor visitor) {
+		sequencer.visitOverlapping(minCol, maxCol + 1, event -> {
 			if (event instanceof TrackEvent) {
-				TrackEvent note = (TrackEvent) event;
-				addCell(note.getChannel(), note.getTime(), 1, note.getDuration());
+				TrackEvent track = (TrackEvent) event;
+				if (track.getChannel() >= minRow && track.getChannel() <= maxRow)
+					visitor.visit(track.getChannel(), track.getTime(), 1, track.getDuration());
 			}
-		}
-		sequencer.updateSequence(newEvents);
+		});
+	}
+
+	/**
+	 * Gets the number of events in the sequencer.
+	 *
+	 * @return number of events
+	 */
+	@Override
+	public int getCellCount() {
+		return sequencer.getEventCount();
 	}
 
 	/**
@@ -108,6 +137,15 @@ public class SongEditor extends GridCanvas {
 		repaint(); // Trigger a repaint to reflect the changes
 	}
 
+	/**
+	 * Gets the track list of the SongEditor.
+	 *
+	 * @return the list of TrackPanels
+	 */
+	public BetterDynamicArray<TrackPanel> getTrackList() {
+		return trackPanels;
+	}
+
 	/**
 	 * Paints the SongEditor component, including time indicators and visual
 	 * elements.
@@ -118,24 +156,50 @@ public class SongEditor extends GridCanvas {
 	public void paintComponent(Graphics g) {
 		setRows(trackPanels.size());
 		super.paintComponent(g);
+		PlayheadAnimator.getInstance().paintPlayhead(this, g);
+	}
 
-		// Additional visual elements can be added here (e.g., time indicator)
-		// Draw the playback bar
-		// Draw the playback bar
-		int x = 0;
-		if (sequencer.getLength() > 0) {
+	/**
+	 * Paints a TrackEvent cell with a thumbnail of the notes of its track drawn
+	 * over it. The track plays from its start when the cell begins, so the cell
+	 * shows the track from its start, once.
+	 *
+	 * @param g       the Graphics object
+	 * @param row     the row index, which is the track number
+	 * @param col     the column index
+	 * @param rowSpan the number of rows spanned
+	 * @param colSpan the number of columns spanned
+	 * @param bounds  the cell's rectangle in pixels
+	 */
+	@Override
+	protected void paintCell(Graphics g, int row, int col, int rowSpan, int colSpan, Rectangle bounds) {
+		super.paintCell(g, row, col, rowSpan, colSpan, bounds);
+		if (row < 0 || row >= trackPanels.size())
+			return;
+		TrackThumbnailCache.Thumbnail thumbnail = thumbnails.get(trackPanels.get(row).getSequencer());
+		if (thumbnail == null || thumbnail.getLength() <= 0)
+			return;
+		int tics = Math.min(colSpan, thumbnail.getLength());
+		int drawWidth = (int) ((long) bounds.width * tics / colSpan);
+		thumbnail.draw(g, bounds.x, bounds.y + 1, drawWidth, bounds.height - 2, tics);
+	}
 
-//            System.out.println("Elapsed Time: " + sequencer.getElapsedTime());
-//            System.out.println("Total Duration: " + totalDuration);
-//            System.out.println("Progress: " + progress);
-			x = (int) (sequencer.getElapsedTime() * getWidth() / sequencer.getLength()); // Snap to column
-		}
+	/**
+	 * Starts animating the time indicator when the editor is added to a window.
+	 */
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		PlayheadAnimator.getInstance().register(this, sequencer);
+	}
 
-		// Draw the playback bar
-		Color customPurple = new Color(230, 179, 255);
-		g.setColor(customPurple);
-		g.fillRect(x, 0, 5, getHeight()); // Playback bar spans the height of the component
-		repaint();
+	/**
+	 * Stops animating the time indicator when the editor is removed from a window.
+	 */
+	@Override
+	public void removeNotify() {
+		PlayheadAnimator.getInstance().unregister(this);
+		super.removeNotify();
 	}
 
 	/**
@@ -151,7 +215,6 @@ public class SongEditor extends GridCanvas {
 	public void onCellPressed(int row, int col, int rowSpan, int colSpan) {
 		currentTrack = row;
 		setRestrictions(1, trackPanels.get(currentTrack).getSequencer().getLength());
-		repaint(); // Redraw to reflect selection
 	}
 
 	/**
@@ -169,7 +232,6 @@ public class SongEditor extends GridCanvas {
 			currentTrack = row;
 			setRestrictions(1, trackPanels.get(currentTrack).getSequencer().getLength());
 		}
-		repaint(); // Redraw to reflect selection
 	}
 
 	/**
@@ -193,23 +255,16 @@ public class SongEditor extends GridCanvas {
 	}
 
 	/**
-	 * Handles the removal of cells, iterating through the sequencer to find and
-	 * remove matching TrackEvents.
+	 * Handles the removal of cells, looking up the TrackEvents that start at the
+	 * column on the row's track and removing them.
 	 *
 	 * @param row the row index
 	 * @param col the column index
 	 */
 	@Override
 	public void onCellRemoved(int row, int col) {
-
-		// Loop over the AudioEvents in the SimpleSequencer
-		for (AudioEvent event : sequencer) {
-			// If the TrackEvent's channel and time match the row and col, remove it
-			if (event.getChannel() == trackPanels.size() - 1 - row && event.getTime() == col) {
-				sequencer.remove(event); // Remove the matching TrackEvent
-			}
-
-		}
+		// The row is the track's channel, and TrackEvents have no pitch
+		sequencer.remove(row, EventHashIndex.NO_PITCH, col);
 	}
 
 	private static final long serialVersionUID = 1L;
@@ -0,0 +1,450 @@
+package assign11;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The table of contents of an indexed song file. An indexed song file starts
+ * with a fixed size header that records, for every track block and for the song
+ * block, the byte offset of the block, its length, its event count and a CRC32
+ * checksum. Track settings (number, instrument, volume and length) are stored
+ * in the header as well, so a track can be set up without reading its block.
+ *
+ * The blocks themselves use the same text layout as the original song files
+ * and are read one at a time by seeking directly to their offset. If the
+ * {@link #FLAG_DEFLATE} flag is set, every block is deflated on its own, so a
+ * single track can still be read without inflating the others. If the
+ * {@link #FLAG_PATTERNS} flag is set, note data is stored as references into a
+ * {@link PatternTable}, which is kept in one extra block after the song block.
+ *
+ * @author Olivia Styler
+ * @version December 4, 2024
+ */
+public class SongFileIndex {
+
+	/** The first four bytes of an indexed song file ("SKTC"). */
+	public static final int MAGIC = 0x534B5443;
+
+	/** The current version of the indexed layout. */
+	public static final int VERSION = 1;
+
+	/** Header flag set when every block is stored deflated. */
+	public static final int FLAG_DEFLATE = 1;
+
+	/** Header flag set when note data refers to a pattern block. */
+	public static final int FLAG_PATTERNS = 2;
+
+	// magic, version, flags, tempo, track count
+	private static final int HEADER_SIZE = 20;
+	// offset, stored length, event count, checksum, track number, instrument,
+	// volume, length
+	private static final int ENTRY_SIZE = 40;
+
+	// Blocks may be inflated on several threads at once, so each keeps its own
+	private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+	private static final ThreadLocal<byte[]> INFLATE_BUFFER = ThreadLocal.withInitial(() -> new byte[8192]);
+
+	private File file;
+	private int flags;
+	private int tempo;
+	private int trackCount;
+	private Entry[] entries; // one per track, then the song block and pattern block
+	private PatternTable patterns;
+
+	/**
+	 * Creates an index from an already parsed header.
+	 *
+	 * @param file    - the file the index describes
+	 * @param flags   - layout flags of the file
+	 * @param tempo      - tempo of the song
+	 * @param trackCount - number of track blocks
+	 * @param entries    - track entries followed by the song and pattern entries
+	 */
+	private SongFileIndex(File file, int flags, int tempo, int trackCount, Entry[] entries) {
+		this.file = file;
+		this.flags = flags;
+		this.tempo = tempo;
+		this.trackCount = trackCount;
+		this.entries = entries;
+	}
+
+	/**
+	 * Gets the number of blocks a file has.
+	 *
+	 * @param trackCount - number of track blocks
+	 * @param flags      - layout flags of the file
+	 * @return number of blocks including the song and pattern blocks
+	 */
+	private static int blockCount(int trackCount, int flags) {
+		return trackCount + 1 + ((flags & FLAG_PATTERNS) != 0 ? 1 : 0);
+	}
+
+	/**
+	 * Checks whether the given file starts with the indexed header. Files written
+	 * in the original text layout return false.
+	 *
+	 * @param file - to check
+	 * @return true if the file is an indexed song file
+	 */
+	public static boolean isIndexed(File file) {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the header of an indexed song file. Only the header is read, so this
+	 * takes the same time no matter how many events the file holds.
+	 *
+	 * @param file - to open
+	 * @return the index of the file
+	 * @throws IOException           if the file can't be read
+	 * @throws IllegalStateException if the file is not an indexed song file
+	 */
+	public static SongFileIndex open(File file) throws IOException {
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			if (in.readInt() != MAGIC)
+				throw new IllegalStateException("Not an indexed song file: " + file);
+			int version = in.readInt();
+			if (version > VERSION)
+				throw new IllegalStateException("Unsupported song file version: " + version);
+			int flags = in.readInt();
+			int tempo = in.readInt();
+			int trackCount = in.readInt();
+			if (trackCount < 0)
+				throw new IllegalStateException("Invalid track count: " + trackCount);
+
+			Entry[] entries = new Entry[blockCount(trackCount, flags)];
+			for (int i = 0; i < entries.length; i++) {
+				entries[i] = new Entry(in.readLong(), in.readInt(), in.readInt(), in.readLong(), in.readInt(),
+						in.readInt(), in.readInt(), in.readInt());
+			}
+			return new SongFileIndex(file, flags, tempo, trackCount, entries);
+		}
+	}
+
+	/**
+	 * Reads one block by seeking directly to it and verifies its checksum.
+	 *
+	 * @param block - index of the block, the song block is getTrackCount() and
+	 *              the pattern block follows it
+	 * @return the raw bytes of the block
+	 * @throws IOException           if the file can't be read
+	 * @throws IllegalStateException if the checksum doesn't match
+	 */
+	public byte[] readBlock(int block) throws IOException {
+		Entry entry = entries[block];
+		byte[] data = new byte[entry.getStoredLength()];
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			in.seek(entry.getOffset());
+			in.readFully(data);
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		if (crc.getValue() != entry.getChecksum())
+			throw new IllegalStateException("Checksum mismatch in block " + block + " of " + file);
+		if ((flags & FLAG_DEFLATE) != 0)
+			return inflate(data, block);
+		return data;
+	}
+
+	/**
+	 * Inflates a stored block with this thread's inflater and buffer.
+	 *
+	 * @param data  - deflated bytes
+	 * @param block - index of the block, for error messages
+	 * @return the inflated bytes
+	 */
+	private byte[] inflate(byte[] data, int block) {
+		Inflater inflater = INFLATER.get();
+		byte[] buffer = INFLATE_BUFFER.get();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+		inflater.reset();
+		inflater.setInput(data);
+		try {
+			while (!inflater.finished()) {
+				int count = inflater.inflate(buffer);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					throw new IllegalStateException("Truncated block " + block + " of " + file);
+				out.write(buffer, 0, count);
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("Corrupt block " + block + " of " + file, e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Gets the pattern table of the file, reading it the first time it is needed.
+	 *
+	 * @return the pattern table, or null if the file doesn't use patterns
+	 * @throws IOException if the pattern block can't be read
+	 */
+	public synchronized PatternTable getPatternTable() throws IOException {
+		if (patterns == null && (flags & FLAG_PATTERNS) != 0) {
+			byte[] data = readBlock(trackCount + 1);
+			try (Scanner scanner = new Scanner(new ByteArrayInputStream(data), StandardCharsets.UTF_8)) {
+				patterns = PatternTable.read(scanner);
+			}
+		}
+		return patterns;
+	}
+
+	/**
+	 * Gets the file this index describes.
+	 *
+	 * @return the song file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the layout flags stored in the header.
+	 *
+	 * @return the flags
+	 */
+	public int getFlags() {
+		return flags;
+	}
+
+	/**
+	 * Gets the tempo of the song.
+	 *
+	 * @return tempo in beats per minute
+	 */
+	public int getTempo() {
+		return tempo;
+	}
+
+	/**
+	 * Gets the number of track blocks.
+	 *
+	 * @return number of tracks
+	 */
+	public int getTrackCount() {
+		return trackCount;
+	}
+
+	/**
+	 * Gets the entry of a given track block.
+	 *
+	 * @param track - index of the track
+	 * @return the track's entry
+	 */
+	public Entry getTrackEntry(int track) {
+		if (track < 0 || track >= getTrackCount())
+			throw new IndexOutOfBoundsException("Track out of bounds: " + track);
+		return entries[track];
+	}
+
+	/**
+	 * Gets the entry of the song block.
+	 *
+	 * @return the song entry
+	 */
+	public Entry getSongEntry() {
+		return entries[trackCount];
+	}
+
+	/**
+	 * Streams blocks into an indexed song file one at a time. Space for the header
+	 * is skipped at the start, each block is (optionally) deflated straight into
+	 * the file as it is given, and the header is filled in when the writer is
+	 * closed. The deflater and its buffer are reused for every block.
+	 */
+	public static class Writer implements AutoCloseable {
+		private FileOutputStream file;
+		private OutputStream out;
+		private int tempo;
+		private int flags;
+		private int trackCount;
+		private boolean compress;
+		private Entry[] entries;
+		private int blockCount;
+		private long offset;
+
+		private Deflater deflater;
+		private byte[] buffer;
+		private CRC32 crc;
+
+		/**
+		 * Opens a file for writing.
+		 *
+		 * @param file       - to write to
+		 * @param tempo      - tempo of the song
+		 * @param trackCount - number of track blocks
+		 * @param flags      - layout flags, FLAG_DEFLATE deflates every block
+		 * @throws IOException if the file can't be opened
+		 */
+		public Writer(File file, int tempo, int trackCount, int flags) throws IOException {
+			this.file = new FileOutputStream(file);
+			this.tempo = tempo;
+			this.flags = flags;
+			this.trackCount = trackCount;
+			this.compress = (flags & FLAG_DEFLATE) != 0;
+			this.entries = new Entry[blockCount(trackCount, flags)];
+			this.offset = HEADER_SIZE + (long) ENTRY_SIZE * entries.length;
+			this.file.getChannel().position(offset);
+			this.out = new BufferedOutputStream(this.file);
+			this.crc = new CRC32();
+			if (compress) {
+				deflater = new Deflater(Deflater.BEST_COMPRESSION);
+				buffer = new byte[8192];
+			}
+		}
+
+		/**
+		 * Writes the next block.
+		 *
+		 * @param entry - settings and event count of the block
+		 * @param data  - encoded block
+		 * @throws IOException if an I/O error occurs while writing
+		 */
+		public void writeBlock(Entry entry, byte[] data) throws IOException {
+			crc.reset();
+			long stored = 0;
+			if (compress) {
+				deflater.reset();
+				deflater.setInput(data);
+				deflater.finish();
+				while (!deflater.finished()) {
+					int count = deflater.deflate(buffer);
+					crc.update(buffer, 0, count);
+					out.write(buffer, 0, count);
+					stored += count;
+				}
+			} else {
+				crc.update(data);
+				out.write(data);
+				stored = data.length;
+			}
+
+			entries[blockCount++] = new Entry(offset, (int) stored, entry.getEventCount(), crc.getValue(),
+					entry.getTrackNumber(), entry.getInstrument(), entry.getVolume(), entry.getLength());
+			offset += stored;
+		}
+
+		/**
+		 * Writes the header and closes the file.
+		 *
+		 * @throws IOException if an I/O error occurs while writing
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				out.flush();
+				if (blockCount != entries.length)
+					throw new IllegalStateException("Expected " + entries.length + " blocks, got " + blockCount);
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + ENTRY_SIZE * entries.length);
+				header.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(tempo).putInt(trackCount);
+				for (Entry entry : entries) {
+					header.putLong(entry.getOffset()).putInt(entry.getStoredLength()).putInt(entry.getEventCount())
+							.putLong(entry.getChecksum()).putInt(entry.getTrackNumber()).putInt(entry.getInstrument())
+							.putInt(entry.getVolume()).putInt(entry.getLength());
+				}
+				header.flip();
+				FileChannel channel = file.getChannel();
+				channel.position(0);
+				while (header.hasRemaining())
+					channel.write(header);
+			} finally {
+				if (deflater != null)
+					deflater.end();
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * One row of the table of contents.
+	 */
+	public static class Entry {
+		private final long offset;
+		private final int storedLength;
+		private final int eventCount;
+		private final long checksum;
+		private final int trackNumber;
+		private final int instrument;
+		private final int volume;
+		private final int length;
+
+		/**
+		 * Creates an entry describing a block that has not been written yet.
+		 *
+		 * @param eventCount  - number of events in the block
+		 * @param trackNumber - number of the track, -1 for the song block or -2
+		 *                    for the pattern block
+		 * @param instrument  - instrument of the track
+		 * @param volume      - volume of the track
+		 * @param length      - length of the track or song
+		 */
+		public Entry(int eventCount, int trackNumber, int instrument, int volume, int length) {
+			this(0, 0, eventCount, 0, trackNumber, instrument, volume, length);
+		}
+
+		private Entry(long offset, int storedLength, int eventCount, long checksum, int trackNumber, int instrument,
+				int volume, int length) {
+			this.offset = offset;
+			this.storedLength = storedLength;
+			this.eventCount = eventCount;
+			this.checksum = checksum;
+			this.trackNumber = trackNumber;
+			this.instrument = instrument;
+			this.volume = volume;
+			this.length = length;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public int getStoredLength() {
+			return storedLength;
+		}
+
+		public int getEventCount() {
+			return eventCount;
+		}
+
+		public long getChecksum() {
+			return checksum;
+		}
+
+		public int getTrackNumber() {
+			return trackNumber;
+		}
+
+		public int getInstrument() {
+			return instrument;
+		}
+
+		public int getVolume() {
+			return volume;
+		}
+
+		public int getLength() {
+			return length;
+		}
+	}
+}
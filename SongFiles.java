@@ -1,7 +1,18 @@
 package assign11;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
 
 /**
  * Utility class for reading and writing song data to and from files. Handles
@@ -13,7 +24,30 @@ import java.util.Scanner;
 public class SongFiles {
 
 	/**
-	 * Writes the song data to the specified file.
+	 * Reports the progress of a background read or write and lets it be
+	 * cancelled.
+	 */
+	public interface ProgressListener {
+		/**
+		 * Called after each block is read or written.
+		 *
+		 * @param done  number of blocks finished
+		 * @param total number of blocks
+		 */
+		void progress(int done, int total);
+
+		/**
+		 * Checks whether the operation should stop.
+		 *
+		 * @return true to cancel
+		 */
+		boolean isCancelled();
+	}
+
+	/**
+	 * Writes the song data to the specified file. The file starts with a table of
+	 * contents (see {@link SongFileIndex}) so that single tracks can later be read
+	 * without parsing the rest of the file.
 	 *
 	 * @param file   The file to write to.
 	 * @param tempo  The tempo of the song.
@@ -22,29 +56,197 @@ public class SongFiles {
 	 * @throws IOException If an I/O error occurs while writing to the file.
 	 */
 	public static void writeFile(File file, int tempo, BetterDynamicArray<TrackPanel> tracks, SongPanel song) {
-		try (FileWriter writer = new FileWriter(file)) {
-			StringBuilder sb = new StringBuilder();
+		writeFile(file, tempo, tracks, song, false);
+	}
 
-			// Write tempo
-			sb.append(tempo).append("\n");
+	/**
+	 * Writes the song data to the specified file, optionally deflating every block
+	 * on its own.
+	 *
+	 * @param file     The file to write to.
+	 * @param tempo    The tempo of the song.
+	 * @param tracks   A dynamic array containing all the track panels.
+	 * @param song     The song panel representing the entire song.
+	 * @param compress True to write a compressed song file.
+	 */
+	public static void writeFile(File file, int tempo, BetterDynamicArray<TrackPanel> tracks, SongPanel song,
+			boolean compress) {
+		try {
+			writeSnapshot(file, SongSnapshot.take(tempo, tracks, song), compress, null);
+		} catch (IOException e) {
+			e.printStackTrace(); // Handle the exception
+		}
+	}
 
-			// Write number of tracks
-			sb.append(tracks.size()).append("\n");
+	/**
+	 * Writes a snapshot of a song to the specified file. This can run on any
+	 * thread. Blocks are encoded and streamed one at a time into a temporary file
+	 * next to the target, which replaces the target only once it is complete. Notes
+	 * are stored as references into a table of unique bar patterns (see
+	 * {@link PatternTable}), which is written as the last block.
+	 *
+	 * @param file     The file to write to.
+	 * @param snapshot The song to write.
+	 * @param compress True to write a compressed song file.
+	 * @param listener Receives progress and may cancel the write, or null.
+	 * @throws IOException           If an I/O error occurs while writing.
+	 * @throws CancellationException If the listener cancels the write.
+	 */
+	public static void writeSnapshot(File file, SongSnapshot snapshot, boolean compress, ProgressListener listener)
+			throws IOException {
+		int trackCount = snapshot.getTrackCount();
+		int total = trackCount + 2;
+
+		// Tracks that were never opened are read from their file first, in
+		// parallel, which may well be the file being replaced
+		AudioEvent[][] events = new AudioEvent[trackCount][];
+		try {
+			IntStream.range(0, trackCount).parallel().forEach(i -> {
+				try {
+					events[i] = snapshot.getTrack(i).getEvents();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause(); // never write a track that couldn't be read
+		}
 
-			// Write track blocks
-			for (int i = 0; i < tracks.size(); i++) {
-				TrackPanel track = tracks.get(i);
-				writeTrackBlock(sb, track, i); // Assuming you have this method defined elsewhere
+		// Blocks still waiting in the file being replaced are locked from the move
+		// until they point at the new layout, so nothing reads the new file through
+		// the old table of contents
+		LazyBlock[] moving = new LazyBlock[trackCount + 1];
+		int[] newBlocks = new int[trackCount + 1];
+		int movingCount = 0;
+		for (int i = 0; i <= trackCount; i++) {
+			LazyBlock pending = i < trackCount ? snapshot.getTrack(i).getPending() : snapshot.getSongPending();
+			if (pending != null && pending.isFrom(file)) {
+				moving[movingCount] = pending;
+				newBlocks[movingCount++] = i;
 			}
+		}
 
-			// Write song block
-			writeSongBlock(sb, tracks, tracks.size()); // Assuming you have this method defined elsewhere
+		File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".part");
+		PatternTable patterns = new PatternTable();
+		int flags = SongFileIndex.FLAG_PATTERNS | (compress ? SongFileIndex.FLAG_DEFLATE : 0);
+		try {
+			try (SongFileIndex.Writer writer = new SongFileIndex.Writer(temp, snapshot.getTempo(), trackCount,
+					flags)) {
+				// Write track blocks
+				for (int i = 0; i < trackCount; i++) {
+					checkCancelled(listener);
+					SongSnapshot.Track track = snapshot.getTrack(i);
+					StringBuilder sb = new StringBuilder();
+					writeTrackBlock(sb, track, events[i], i, patterns);
+					writer.writeBlock(new SongFileIndex.Entry(events[i].length, i, track.getInstrument(),
+							track.getVolume(), track.getLength()), sb.toString().getBytes(StandardCharsets.UTF_8));
+					reportProgress(listener, i + 1, total);
+				}
+
+				// Write song block
+				checkCancelled(listener);
+				StringBuilder sb = new StringBuilder();
+				int songEventCount = writeSongBlock(sb, events, trackCount, patterns);
+				writer.writeBlock(new SongFileIndex.Entry(songEventCount, -1, 0, 0, trackCount),
+						sb.toString().getBytes(StandardCharsets.UTF_8));
+				reportProgress(listener, trackCount + 1, total);
+
+				// Write pattern block
+				sb = new StringBuilder();
+				patterns.write(sb);
+				writer.writeBlock(new SongFileIndex.Entry(patterns.size(), -2, 0, 0, 0),
+						sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			checkCancelled(listener);
+
+			for (int i = 0; i < movingCount; i++)
+				moving[i].lock.lock();
+			try {
+				try {
+					Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+				if (movingCount > 0) {
+					SongFileIndex written = SongFileIndex.open(file);
+					for (int i = 0; i < movingCount; i++)
+						moving[i].retarget(written, newBlocks[i]);
+				}
+			} finally {
+				for (int i = 0; i < movingCount; i++)
+					moving[i].lock.unlock();
+			}
+			reportProgress(listener, total, total);
+		} finally {
+			temp.delete(); // only still there if the write failed or was cancelled
+		}
+	}
 
-			// Write all accumulated data to the file
-			writer.write(sb.toString());
-		} catch (IOException e) {
-			e.printStackTrace(); // Handle the exception
+	/**
+	 * Collects the blocks that the tracks and the song are still waiting in. This
+	 * must be called on the Event Dispatch Thread.
+	 *
+	 * @param tracks A dynamic array containing all the track panels.
+	 * @param song   The song panel representing the entire song, or null to
+	 *               collect only the tracks' blocks.
+	 * @return The pending blocks, which may be empty.
+	 */
+	public static LazyBlock[] getPendingBlocks(BetterDynamicArray<TrackPanel> tracks, SongPanel song) {
+		BetterDynamicArray<LazyBlock> pending = new BetterDynamicArray<>();
+		for (TrackPanel track : tracks) {
+			if (track.getPendingBlock() != null)
+				pending.add(track.getPendingBlock());
+		}
+		if (song != null && song.getPendingBlock() != null)
+			pending.add(song.getPendingBlock());
+
+		LazyBlock[] blocks = new LazyBlock[pending.size()];
+		for (int i = 0; i < blocks.length; i++)
+			blocks[i] = pending.get(i);
+		return blocks;
+	}
+
+	/**
+	 * Reads, inflates and parses blocks in parallel, so that the panels waiting in
+	 * them can be filled in without touching the file. This is meant to run off the
+	 * Event Dispatch Thread. Blocks already read are skipped.
+	 *
+	 * @param blocks   The blocks to read.
+	 * @param listener Told of progress after each block, or null.
+	 * @throws IOException           If a block can't be read.
+	 * @throws CancellationException If the listener cancels the read.
+	 */
+	public static void prefetchAll(LazyBlock[] blocks, ProgressListener listener) throws IOException {
+		AtomicInteger done = new AtomicInteger();
+		try {
+			Arrays.stream(blocks).parallel().forEach(block -> {
+				checkCancelled(listener);
+				try {
+					block.prefetch();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				reportProgress(listener, done.incrementAndGet(), blocks.length);
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Fills in every track and the song whose block has already been read by
+	 * prefetchAll. This must be called on the Event Dispatch Thread, and never
+	 * reads the file itself; panels whose block hasn't been read stay pending.
+	 *
+	 * @param tracks A dynamic array containing all the track panels.
+	 * @param song   The song panel representing the entire song.
+	 */
+	public static void installPrefetched(BetterDynamicArray<TrackPanel> tracks, SongPanel song) {
+		for (TrackPanel track : tracks) {
+			track.installPrefetched();
 		}
+		song.installPrefetched();
 	}
 
 	/**
@@ -57,81 +259,287 @@ public class SongFiles {
 	 * @param width       The width of the track panel grid.
 	 * @param height      The height of the track panel grid.
 	 * @return The tempo of the song read from the file.
-	 * @throws IOException           If an I/O error occurs while reading the file.
-	 * @throws IllegalStateException If the file's format is invalid.
 	 */
 	public static int readFile(File file, SimpleSynthesizer synthesizer, BetterDynamicArray<TrackPanel> tracks,
 			SongPanel song, int width, int height) {
-		tracks.clear(); // Clear the BetterDynamicArray
-		song.clear();
-		int tempo = 0;
+		try {
+			return install(readSong(file, synthesizer, null), synthesizer, tracks, song, width, height);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads a song file without touching any Swing component, so it can run on
+	 * any thread. Track sequencers are created and filled here; the panels are
+	 * created afterwards by {@link #install}. Tracks of an indexed song file are
+	 * left waiting in their blocks.
+	 *
+	 * @param file        The file to read from.
+	 * @param synthesizer The synthesizer used to create certain events.
+	 * @param listener    Receives progress and may cancel the read, or null.
+	 * @return The song read from the file.
+	 * @throws IOException           If an I/O error occurs while reading the file.
+	 * @throws IllegalStateException If the file's format is invalid.
+	 * @throws CancellationException If the listener cancels the read.
+	 */
+	public static LoadedSong readSong(File file, SimpleSynthesizer synthesizer, ProgressListener listener)
+			throws IOException {
+		if (SongFileIndex.isIndexed(file)) {
+			return readIndexedSong(file, synthesizer);
+		}
+
 		try (Scanner scanner = new Scanner(file)) {
 			// Read tempo
-			tempo = scanner.nextInt();
+			int tempo = scanner.nextInt();
 
 			// Read number of tracks
 			int numTracks = scanner.nextInt();
+			LoadedSong song = new LoadedSong(tempo, numTracks);
 
 			// Read track blocks
 			for (int i = 0; i < numTracks; i++) {
-				readTrackBlock(scanner, tracks, synthesizer, width, height, tempo);
+				checkCancelled(listener);
+				readTrackBlock(scanner, song, i, synthesizer);
+				reportProgress(listener, i + 1, numTracks + 1);
 			}
 
 			// Read song block
-			readSongBlock(scanner, song, tracks, synthesizer, tempo);
+			readSongBlock(scanner, song, synthesizer);
+			reportProgress(listener, numTracks + 1, numTracks + 1);
+			return song;
+		}
+	}
 
-		} catch (Exception e) {
-			e.printStackTrace();
+	/**
+	 * Reads the table of contents of an indexed song file. Track settings come
+	 * from the header, but events are only read from the file when a panel is
+	 * first opened or played (see {@link LazyBlock}).
+	 *
+	 * @param file        The file to read from.
+	 * @param synthesizer The synthesizer used to create certain events.
+	 * @return The song read from the file.
+	 * @throws IOException If an I/O error occurs while reading the file.
+	 */
+	private static LoadedSong readIndexedSong(File file, SimpleSynthesizer synthesizer) throws IOException {
+		SongFileIndex index = SongFileIndex.open(file);
+		LoadedSong song = new LoadedSong(index.getTempo(), index.getTrackCount());
+
+		for (int i = 0; i < index.getTrackCount(); i++) {
+			SongFileIndex.Entry entry = index.getTrackEntry(i);
+			song.trackNumbers[i] = entry.getTrackNumber();
+			song.instruments[i] = entry.getInstrument();
+			song.volumes[i] = entry.getVolume();
+			song.sequencers[i].setLength(entry.getLength());
+			song.pending[i] = new LazyBlock(index, i, synthesizer, song.sequencers);
+		}
+
+		song.songLength = index.getSongEntry().getLength();
+		song.songPending = new LazyBlock(index, index.getTrackCount(), synthesizer, song.sequencers);
+		return song;
+	}
+
+	/**
+	 * Replaces the current tracks and song with a song read by readSong. This must
+	 * be called on the Event Dispatch Thread.
+	 *
+	 * @param loaded      The song read from a file.
+	 * @param synthesizer The synthesizer used to manage audio.
+	 * @param tracks      A dynamic array to store the track panels.
+	 * @param song        The song panel to populate.
+	 * @param width       The width of the track panel grid.
+	 * @param height      The height of the track panel grid.
+	 * @return The tempo of the song.
+	 */
+	public static int install(LoadedSong loaded, SimpleSynthesizer synthesizer, BetterDynamicArray<TrackPanel> tracks,
+			SongPanel song, int width, int height) {
+		for (TrackPanel track : tracks) {
+			track.stop();
+		}
+		tracks.clear(); // Clear the BetterDynamicArray
+		song.clear();
+
+		for (int i = 0; i < loaded.sequencers.length; i++) {
+			// Create a new TrackPanel around the sequencer that was already filled
+			TrackPanel track = new TrackPanel(width, height, loaded.trackNumbers[i], synthesizer,
+					loaded.sequencers[i]);
+			track.setLength(loaded.sequencers[i].getLength());
+			track.setInstrument(loaded.instruments[i]);
+			track.setVolume(loaded.volumes[i]);
+			track.setTempo(loaded.tempo);
+			if (loaded.pending[i] != null)
+				track.setPendingBlock(loaded.pending[i]);
+			tracks.add(track); // Add the track to the list
 		}
-		return tempo;
+
+		song.setLength(loaded.songLength);
+		song.setTempo(loaded.tempo);
+		if (loaded.songPending != null)
+			song.setPendingBlock(loaded.songPending);
+		else
+			song.setEvents(loaded.songEvents);
+		return loaded.tempo;
+	}
+
+	/**
+	 * Throws if the listener asks to cancel.
+	 *
+	 * @param listener The listener, or null.
+	 * @throws CancellationException If the listener cancels the operation.
+	 */
+	private static void checkCancelled(ProgressListener listener) {
+		if (listener != null && listener.isCancelled())
+			throw new CancellationException();
+	}
+
+	/**
+	 * Passes progress on to the listener, if there is one.
+	 *
+	 * @param listener The listener, or null.
+	 * @param done     Number of blocks finished.
+	 * @param total    Number of blocks.
+	 */
+	private static void reportProgress(ProgressListener listener, int done, int total) {
+		if (listener != null)
+			listener.progress(done, total);
 	}
 
 	/**
 	 * Writes a track block to the StringBuilder.
 	 *
 	 * @param sb          The StringBuilder to append to.
-	 * @param track       The track panel to write.
+	 * @param track       The track to write.
+	 * @param events      The track's events.
 	 * @param trackNumber The track's identifier number.
+	 * @param patterns    The pattern table notes are stored in.
 	 */
-	private static void writeTrackBlock(StringBuilder sb, TrackPanel track, int trackNumber) {
+	private static void writeTrackBlock(StringBuilder sb, SongSnapshot.Track track, AudioEvent[] events,
+			int trackNumber, PatternTable patterns) {
 		sb.append("track").append(trackNumber).append("\n");
 		sb.append(trackNumber).append("\n");
 		sb.append(track.getInstrument()).append("\n");
 		sb.append(track.getVolume()).append("\n");
 		sb.append(track.getLength()).append("\n");
-		sb.append(track.getSequencer().getEventCount()).append("\n");
+		sb.append(events.length).append("\n");
 
 		// Write AudioEvent blocks
-		for (AudioEvent event : track.getSequencer()) {
-			writeAudioEventBlock(sb, event);
+		BetterDynamicArray<AudioEvent> list = new BetterDynamicArray<>();
+		for (AudioEvent event : events) {
+			list.add(event);
 		}
+		writePatternEvents(sb, list, patterns);
 	}
 
 	/**
 	 * Writes a song block to the StringBuilder.
 	 *
-	 * @param sb     The StringBuilder to append to.
-	 * @param tracks A dynamic array of track panels representing the song.
-	 * @param length The length of the song in terms of grid units.
+	 * @param sb       The StringBuilder to append to.
+	 * @param events   The events of every track.
+	 * @param length   The length of the song in terms of grid units.
+	 * @param patterns The pattern table notes are stored in.
+	 * @return The number of events written.
 	 */
-	private static void writeSongBlock(StringBuilder sb, BetterDynamicArray<TrackPanel> tracks, int length) {
+	private static int writeSongBlock(StringBuilder sb, AudioEvent[][] events, int length, PatternTable patterns) {
 		sb.append("song\n");
 		sb.append(length).append("\n");
 
 		// Aggregate total event count from all tracks
 		int totalEventCount = 0;
-		for (TrackPanel track : tracks) {
-			totalEventCount += track.getSequencer().getEventCount();
+		for (AudioEvent[] trackEvents : events) {
+			totalEventCount += trackEvents.length;
 		}
 		sb.append(totalEventCount).append("\n");
 
 		// Write all AudioEvent blocks for the entire song (aggregated from tracks)
-		for (TrackPanel track : tracks) {
-			for (AudioEvent event : track.getSequencer()) {
-				writeAudioEventBlock(sb, event);
+		BetterDynamicArray<AudioEvent> list = new BetterDynamicArray<>();
+		for (AudioEvent[] trackEvents : events) {
+			for (AudioEvent event : trackEvents) {
+				list.add(event);
 			}
 		}
+		writePatternEvents(sb, list, patterns);
+		return totalEventCount;
+	}
 
+	/**
+	 * Writes a list of events as pattern references. Notes are grouped by segment
+	 * and channel; each group is stored once in the pattern table and written here
+	 * as a line "segment channel hash". Events that don't fit a pattern are written
+	 * as ordinary audio event blocks after the references.
+	 *
+	 * @param sb       The StringBuilder to append to.
+	 * @param events   The events to write.
+	 * @param patterns The pattern table notes are stored in.
+	 */
+	private static void writePatternEvents(StringBuilder sb, BetterDynamicArray<AudioEvent> events,
+			PatternTable patterns) {
+		LinkedHashMap<Long, BetterDynamicArray<NoteEvent>> groups = new LinkedHashMap<>();
+		BetterDynamicArray<AudioEvent> verbatim = new BetterDynamicArray<>();
+
+		for (AudioEvent event : events) {
+			if (event instanceof NoteEvent && "Note".equals(event.getName()) && event.getTime() >= 0) {
+				long key = ((long) (event.getTime() / PatternTable.SEGMENT_LENGTH) << 32)
+						| (event.getChannel() & 0xFFFFFFFFL);
+				groups.computeIfAbsent(key, k -> new BetterDynamicArray<>()).add((NoteEvent) event);
+			} else {
+				verbatim.add(event);
+			}
+		}
+
+		sb.append(PatternTable.SEGMENT_LENGTH).append("\n");
+		sb.append(groups.size()).append("\n");
+		for (Map.Entry<Long, BetterDynamicArray<NoteEvent>> group : groups.entrySet()) {
+			BetterDynamicArray<NoteEvent> notes = group.getValue();
+			int segment = (int) (group.getKey() >>> 32);
+			int[] times = new int[notes.size()];
+			int[] pitches = new int[notes.size()];
+			int[] durations = new int[notes.size()];
+			for (int i = 0; i < notes.size(); i++) {
+				NoteEvent note = notes.get(i);
+				times[i] = note.getTime() - segment * PatternTable.SEGMENT_LENGTH;
+				pitches[i] = note.getPitch();
+				durations[i] = note.getDuration();
+			}
+			long hash = patterns.intern(PatternTable.pack(times, pitches, durations, notes.size()));
+			sb.append(segment).append(" ").append(notes.get(0).getChannel()).append(" ")
+					.append(Long.toHexString(hash)).append("\n");
+		}
+
+		sb.append(verbatim.size()).append("\n");
+		for (AudioEvent event : verbatim) {
+			writeAudioEventBlock(sb, event);
+		}
+	}
+
+	/**
+	 * Reads a list of events written by writePatternEvents. Notes of every
+	 * reference are created from the shared pattern array.
+	 *
+	 * @param scanner     The scanner to read data from.
+	 * @param patterns    The pattern table of the file.
+	 * @param synthesizer The synthesizer used to create certain events.
+	 * @param sequencers  The track sequencers for event references.
+	 * @param events      The array to add the events to.
+	 */
+	private static void readPatternEvents(Scanner scanner, PatternTable patterns, SimpleSynthesizer synthesizer,
+			SimpleSequencer[] sequencers, BetterDynamicArray<AudioEvent> events) {
+		int segmentLength = scanner.nextInt();
+		int numReferences = scanner.nextInt();
+		for (int i = 0; i < numReferences; i++) {
+			int start = scanner.nextInt() * segmentLength;
+			int channel = scanner.nextInt();
+			int[] pattern = patterns.get(Long.parseUnsignedLong(scanner.next(), 16));
+			for (int j = 0; j < pattern.length; j += 3) {
+				events.add(new NoteEvent(start + pattern[j], "Note", channel, pattern[j + 2], pattern[j + 1],
+						synthesizer));
+			}
+		}
+
+		int numVerbatim = scanner.nextInt();
+		for (int i = 0; i < numVerbatim; i++) {
+			events.add(readAudioEventBlock(scanner, synthesizer, sequencers));
+		}
 	}
 
 	/**
@@ -170,73 +578,55 @@ public class SongFiles {
 	}
 
 	/**
-	 * Reads a track block from the scanner and adds it to the tracks array.
+	 * Reads a track block from the scanner into the given track of a song.
 	 *
 	 * @param scanner     The scanner to read data from.
-	 * @param tracks      The array to store the track panels.
+	 * @param song        The song being read.
+	 * @param track       The index of the track being read.
 	 * @param synthesizer The synthesizer used to manage audio.
-	 * @param width       The width of the track panel grid.
-	 * @param height      The height of the track panel grid.
-	 * @param tempo       The tempo of the song.
 	 * @throws IllegalArgumentException If the track block data is invalid or
 	 *                                  malformed.
 	 */
-	private static void readTrackBlock(Scanner scanner, BetterDynamicArray<TrackPanel> tracks,
-			SimpleSynthesizer synthesizer, int width, int height, int tempo) {
+	private static void readTrackBlock(Scanner scanner, LoadedSong song, int track, SimpleSynthesizer synthesizer) {
 		String trackName = scanner.next(); // skip "trackX"
-		int trackNumber = scanner.nextInt();
-		int instrument = scanner.nextInt();
-		int volume = scanner.nextInt();
+		song.trackNumbers[track] = scanner.nextInt();
+		song.instruments[track] = scanner.nextInt();
+		song.volumes[track] = scanner.nextInt();
 		int length = scanner.nextInt();
 		int numEvents = scanner.nextInt();
 
-		// Create a new TrackPanel with the correct synthesizer and length
-		TrackPanel track = new TrackPanel(width, height, trackNumber, synthesizer);
-		track.setLength(length);
-		track.setInstrument(instrument);
-		track.setVolume(volume);
-		track.setTempo(tempo);
-
 		// Read AudioEvents for the track and add them to the sequencer
 		BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
 
 		for (int i = 0; i < numEvents; i++) {
-			AudioEvent event = readAudioEventBlock(scanner, synthesizer, tracks); // Pass both synthesizer
-																					// and sequencer
+			AudioEvent event = readAudioEventBlock(scanner, synthesizer, song.sequencers);
 			events.add(event);
 		}
-		track.setEvents(events);
-		tracks.add(track); // Add the track to the list
+		song.sequencers[track].setLength(length);
+		song.sequencers[track].updateSequence(events);
 	}
 
 	/**
-	 * Reads a song block from the scanner and populates the song panel.
+	 * Reads a song block from the scanner into a song.
 	 *
 	 * @param scanner     The scanner to read data from.
-	 * @param song        The song panel to populate.
-	 * @param tracks      A dynamic array of track panels representing the song.
+	 * @param song        The song being read.
 	 * @param synthesizer The synthesizer used to manage audio.
-	 * @param tempo       The tempo of the song.
 	 * @throws IllegalArgumentException If the song block data is invalid or
 	 *                                  malformed.
 	 */
-	private static void readSongBlock(Scanner scanner, SongPanel song, BetterDynamicArray<TrackPanel> tracks,
-			SimpleSynthesizer synthesizer, int tempo) {
+	private static void readSongBlock(Scanner scanner, LoadedSong song, SimpleSynthesizer synthesizer) {
 		String songName = scanner.next(); // skip "song"
-		int length = scanner.nextInt();
+		song.songLength = scanner.nextInt();
 		int numEvents = scanner.nextInt();
 
-		song.setLength(length);
-		song.setTempo(tempo);
-
 		BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
 
 		for (int i = 0; i < numEvents; i++) {
-			AudioEvent event = readAudioEventBlock(scanner, synthesizer, tracks);
+			AudioEvent event = readAudioEventBlock(scanner, synthesizer, song.sequencers);
 			events.add(event);
 		}
-		song.setEvents(events);
-
+		song.songEvents = events;
 	}
 
 	/**
@@ -244,13 +634,13 @@ public class SongFiles {
 	 *
 	 * @param scanner     The scanner to read data from.
 	 * @param synthesizer The synthesizer used to create certain events.
-	 * @param tracks      A dynamic array of track panels for event references.
+	 * @param sequencers  The track sequencers for event references.
 	 * @return The created AudioEvent.
 	 * @throws IllegalArgumentException If the audio event block data is invalid or
 	 *                                  malformed.
 	 */
 	private static AudioEvent readAudioEventBlock(Scanner scanner, SimpleSynthesizer synthesizer,
-			BetterDynamicArray<TrackPanel> tracks) {
+			SimpleSequencer[] sequencers) {
 		String eventType = scanner.next();
 		String name = scanner.next();
 		int time = scanner.nextInt();
@@ -267,10 +657,201 @@ public class SongFiles {
 			event = new NoteEvent(time, name, channel, duration, value, synthesizer);
 			break;
 		case "track":
-			event = new TrackEvent(time, name, channel, duration, tracks.get(channel).getSequencer());
+			event = new TrackEvent(time, name, channel, duration, sequencers[channel]);
 			break;
 		}
 		return event;
 	}
 
+	/**
+	 * Reads the events of one block of an indexed song file. The header lines of
+	 * the block are skipped, since the table of contents already holds them.
+	 *
+	 * @param index       The index of the file.
+	 * @param block       The block to read.
+	 * @param synthesizer The synthesizer used to create certain events.
+	 * @param sequencers  The track sequencers for event references.
+	 * @return The events of the block.
+	 * @throws IOException If an I/O error occurs while reading the file.
+	 */
+	private static BetterDynamicArray<AudioEvent> readBlockEvents(SongFileIndex index, int block,
+			SimpleSynthesizer synthesizer, SimpleSequencer[] sequencers) throws IOException {
+		byte[] data = index.readBlock(block);
+		BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
+		try (Scanner scanner = new Scanner(new ByteArrayInputStream(data), StandardCharsets.UTF_8)) {
+			// Track blocks have five header values before the event count, the song
+			// block has two
+			int headerValues = block < index.getTrackCount() ? 5 : 2;
+			for (int i = 0; i < headerValues; i++) {
+				scanner.next();
+			}
+			int numEvents = scanner.nextInt();
+			PatternTable patterns = index.getPatternTable();
+			if (patterns != null) {
+				readPatternEvents(scanner, patterns, synthesizer, sequencers, events);
+			} else {
+				for (int i = 0; i < numEvents; i++) {
+					events.add(readAudioEventBlock(scanner, synthesizer, sequencers));
+				}
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * A song read by readSong whose panels haven't been created yet.
+	 */
+	public static class LoadedSong {
+		private int tempo;
+		private int[] trackNumbers;
+		private int[] instruments;
+		private int[] volumes;
+		private SimpleSequencer[] sequencers;
+		private LazyBlock[] pending;
+		private int songLength;
+		private BetterDynamicArray<AudioEvent> songEvents;
+		private LazyBlock songPending;
+
+		/**
+		 * Creates a song with empty track sequencers.
+		 *
+		 * @param tempo     The tempo of the song.
+		 * @param numTracks The number of tracks.
+		 */
+		private LoadedSong(int tempo, int numTracks) {
+			this.tempo = tempo;
+			trackNumbers = new int[numTracks];
+			instruments = new int[numTracks];
+			volumes = new int[numTracks];
+			sequencers = new SimpleSequencer[numTracks];
+			pending = new LazyBlock[numTracks];
+			for (int i = 0; i < numTracks; i++) {
+				sequencers[i] = new SimpleSequencer(16);
+			}
+			songEvents = new BetterDynamicArray<>();
+		}
+
+		/**
+		 * Gets the tempo of the song.
+		 *
+		 * @return The tempo of the song.
+		 */
+		public int getTempo() {
+			return tempo;
+		}
+	}
+
+	/**
+	 * A block of an indexed song file whose events have not been read yet. Panels
+	 * hold on to one of these and load it the first time their events are needed.
+	 */
+	public static class LazyBlock {
+		private SongFileIndex index;
+		private int block;
+		private SimpleSynthesizer synthesizer;
+		private SimpleSequencer[] sequencers;
+		private volatile BetterDynamicArray<AudioEvent> prefetched;
+		private final ReentrantLock lock = new ReentrantLock(); // guards index and block
+
+		/**
+		 * Creates a pending block.
+		 *
+		 * @param index       The index of the file.
+		 * @param block       The block to read.
+		 * @param synthesizer The synthesizer used to create certain events.
+		 * @param sequencers  The track sequencers for event references.
+		 */
+		public LazyBlock(SongFileIndex index, int block, SimpleSynthesizer synthesizer, SimpleSequencer[] sequencers) {
+			this.index = index;
+			this.block = block;
+			this.synthesizer = synthesizer;
+			this.sequencers = sequencers;
+		}
+
+		/**
+		 * Checks whether this block is read from the given file.
+		 *
+		 * @param file The file to compare with.
+		 * @return True if the block is in that file.
+		 */
+		public boolean isFrom(File file) {
+			lock.lock();
+			try {
+				return index.getFile().getAbsoluteFile().equals(file.getAbsoluteFile());
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Points this block at a new layout of its file, after the file has been
+		 * rewritten.
+		 *
+		 * @param newIndex The index of the rewritten file.
+		 * @param newBlock The block now holding the same events.
+		 */
+		public void retarget(SongFileIndex newIndex, int newBlock) {
+			lock.lock();
+			try {
+				index = newIndex;
+				block = newBlock;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Reads the events of the block ahead of time, so that takePrefetched can
+		 * hand them over without touching the file. This may be called from any
+		 * thread, and does nothing if the events have already been read.
+		 *
+		 * @throws IOException If the block can't be read.
+		 */
+		public void prefetch() throws IOException {
+			if (prefetched == null)
+				prefetched = readCopy();
+		}
+
+		/**
+		 * Checks whether the events of the block have been read by prefetch.
+		 *
+		 * @return True if takePrefetched will return the events.
+		 */
+		public boolean isPrefetched() {
+			return prefetched != null;
+		}
+
+		/**
+		 * Hands over the events read by prefetch. This never reads the file, so it is
+		 * safe on the Event Dispatch Thread.
+		 *
+		 * @return The events of the block, or null if they haven't been read yet.
+		 */
+		public BetterDynamicArray<AudioEvent> takePrefetched() {
+			BetterDynamicArray<AudioEvent> events = prefetched;
+			prefetched = null;
+			return events;
+		}
+
+		/**
+		 * Reads and parses a new copy of the block's events. This may be called from
+		 * any thread and never affects what load returns. While the file is being
+		 * replaced, this waits until the block points at the new layout.
+		 *
+		 * @return The events of the block.
+		 * @throws IOException If the block can't be read or parsed.
+		 */
+		public BetterDynamicArray<AudioEvent> readCopy() throws IOException {
+			lock.lock();
+			try {
+				return readBlockEvents(index, block, synthesizer, sequencers);
+			} catch (RuntimeException e) {
+				// A bad checksum or a malformed block
+				throw new IOException("Can't read block " + block + " of " + index.getFile(), e);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
 }
@@ -0,0 +1,478 @@
+package assign11;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Scanner;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An index of the song files under one directory. For every file the index
+ * keeps the data found in its header: tempo, number of tracks, instruments,
+ * length and event counts. The index is saved in a small binary file in the
+ * directory and is brought up to date by comparing modification times, so only
+ * new or changed files are read again. While watching, a WatchService picks up
+ * files as they are added, changed or removed.
+ *
+ * Searching only looks at the index and never opens a song file.
+ *
+ * @author Olivia Styler
+ * @version December 11, 2024
+ */
+public class SongLibrary {
+
+	/** The name of the index file kept in the library directory. */
+	public static final String INDEX_NAME = ".songlibrary";
+
+	private static final int INDEX_MAGIC = 0x534B4C49; // "SKLI"
+	private static final int INDEX_VERSION = 1;
+
+	private File root;
+	private volatile Entry[] entries; // replaced as a whole, never changed
+	private Runnable changeListener;
+	private WatchService watcher;
+	private Thread watchThread;
+
+	/**
+	 * Creates a library for a directory. Nothing is read until refresh is called.
+	 *
+	 * @param root - directory holding song files, searched recursively
+	 */
+	public SongLibrary(File root) {
+		this.root = root.getAbsoluteFile();
+		this.entries = new Entry[0];
+	}
+
+	/**
+	 * Sets a task to run (on the watch thread) whenever the index changes.
+	 *
+	 * @param listener - to run, or null
+	 */
+	public void setChangeListener(Runnable listener) {
+		changeListener = listener;
+	}
+
+	/**
+	 * Gets the directory of the library.
+	 *
+	 * @return the library directory
+	 */
+	public File getRoot() {
+		return root;
+	}
+
+	/**
+	 * Gets every entry of the index.
+	 *
+	 * @return the entries, which must not be modified
+	 */
+	public Entry[] getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Reads the saved index, then scans the directory tree in parallel and reads
+	 * the header of every song file that is new or has changed since the index
+	 * was saved. The updated index is saved again.
+	 *
+	 * @throws IOException if the directory can't be scanned
+	 */
+	public void refresh() throws IOException {
+		HashMap<String, Entry> known = new HashMap<>();
+		for (Entry entry : readIndex())
+			known.put(entry.getPath(), entry);
+		for (Entry entry : entries)
+			known.put(entry.getPath(), entry);
+
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(root.toPath())) {
+			files = walk.filter(path -> path.toString().endsWith(".song") && Files.isRegularFile(path))
+					.collect(Collectors.toList());
+		}
+
+		Entry[] scanned = files.parallelStream().map(path -> {
+			Entry old = known.get(relativize(path));
+			File file = path.toFile();
+			if (old != null && old.getModified() == file.lastModified() && old.getSize() == file.length())
+				return old;
+			return extract(file);
+		}).filter(entry -> entry != null).toArray(Entry[]::new);
+
+		Arrays.sort(scanned, (a, b) -> a.getPath().compareToIgnoreCase(b.getPath()));
+		entries = scanned;
+		saveIndex();
+	}
+
+	/**
+	 * Finds entries matching a query. Every word of the query must appear in an
+	 * entry's path, in one of its instrument names or as one of "120bpm",
+	 * "4tracks" or "tempo120". Matching ignores case.
+	 *
+	 * @param query           - words to look for
+	 * @param instrumentNames - names of instruments by index, or null
+	 * @param limit           - maximum number of results
+	 * @return the matching entries, in path order
+	 */
+	public BetterDynamicArray<Entry> search(String query, List<String> instrumentNames, int limit) {
+		String[] words = query.trim().toLowerCase().split("\\s+");
+		BetterDynamicArray<Entry> results = new BetterDynamicArray<>();
+		for (Entry entry : entries) {
+			if (results.size() >= limit)
+				break;
+			String key = entry.getSearchKey(instrumentNames);
+			boolean matches = true;
+			for (String word : words) {
+				if (!word.isEmpty() && !key.contains(word)) {
+					matches = false;
+					break;
+				}
+			}
+			if (matches)
+				results.add(entry);
+		}
+		return results;
+	}
+
+	/**
+	 * Starts watching the library directory and its subdirectories for song files
+	 * being added, changed or removed. Does nothing if already watching.
+	 *
+	 * @throws IOException if the directories can't be watched
+	 */
+	public synchronized void startWatching() throws IOException {
+		if (watcher != null)
+			return;
+		watcher = FileSystems.getDefault().newWatchService();
+		registerTree(root.toPath());
+		watchThread = new Thread(this::watch, "SongLibrary watcher");
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+	/**
+	 * Stops watching the library directory.
+	 */
+	public synchronized void stopWatching() {
+		if (watcher == null)
+			return;
+		try {
+			watcher.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		watcher = null;
+	}
+
+	/**
+	 * Registers a directory and all directories below it with the watcher.
+	 *
+	 * @param dir - top directory
+	 * @throws IOException if a directory can't be registered
+	 */
+	private void registerTree(Path dir) throws IOException {
+		List<Path> dirs;
+		try (Stream<Path> walk = Files.walk(dir)) {
+			dirs = walk.filter(Files::isDirectory).collect(Collectors.toList());
+		}
+		for (Path d : dirs)
+			d.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+	}
+
+	/**
+	 * Body of the watch thread. Updates one entry per event and saves the index
+	 * after each batch of events.
+	 */
+	private void watch() {
+		WatchService service = watcher;
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				Path dir = (Path) key.watchable();
+				boolean changed = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						refresh();
+						changed = true;
+						continue;
+					}
+					Path path = dir.resolve((Path) event.context());
+					if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+						registerTree(path);
+						refresh(); // the directory may have arrived with files in it
+						changed = true;
+					} else if (path.toString().endsWith(".song")) {
+						update(path, event.kind() != StandardWatchEventKinds.ENTRY_DELETE);
+						changed = true;
+					}
+				}
+				key.reset();
+				if (changed) {
+					saveIndex();
+					if (changeListener != null)
+						changeListener.run();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// stopped
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Replaces, adds or removes the entry of one file.
+	 *
+	 * @param path   - of the file
+	 * @param exists - false if the file was removed
+	 */
+	private synchronized void update(Path path, boolean exists) {
+		String relative = relativize(path);
+		Entry replacement = exists && Files.isRegularFile(path) ? extract(path.toFile()) : null;
+
+		ArrayList<Entry> list = new ArrayList<>(Arrays.asList(entries));
+		list.removeIf(entry -> entry.getPath().equals(relative));
+		if (replacement != null)
+			list.add(replacement);
+		Entry[] updated = list.toArray(new Entry[0]);
+		Arrays.sort(updated, (a, b) -> a.getPath().compareToIgnoreCase(b.getPath()));
+		entries = updated;
+	}
+
+	/**
+	 * Reads the header data of one song file. Indexed files only have their table
+	 * of contents read; files in the original text layout are scanned once.
+	 *
+	 * @param file - to read
+	 * @return the entry, or null if the file isn't a valid song file
+	 */
+	private Entry extract(File file) {
+		String path = relativize(file.toPath());
+		try {
+			if (SongFileIndex.isIndexed(file)) {
+				SongFileIndex index = SongFileIndex.open(file);
+				int[] instruments = new int[index.getTrackCount()];
+				int length = 0;
+				int events = 0;
+				for (int i = 0; i < instruments.length; i++) {
+					SongFileIndex.Entry track = index.getTrackEntry(i);
+					instruments[i] = track.getInstrument();
+					length = Math.max(length, track.getLength());
+					events += track.getEventCount();
+				}
+				return new Entry(path, file.lastModified(), file.length(), index.getTempo(), instruments, length,
+						events);
+			}
+
+			try (Scanner scanner = new Scanner(file)) {
+				int tempo = scanner.nextInt();
+				int[] instruments = new int[scanner.nextInt()];
+				int length = 0;
+				int events = 0;
+				for (int i = 0; i < instruments.length; i++) {
+					scanner.next(); // skip "trackX"
+					scanner.nextInt(); // track number
+					instruments[i] = scanner.nextInt();
+					scanner.nextInt(); // volume
+					length = Math.max(length, scanner.nextInt());
+					int count = scanner.nextInt();
+					events += count;
+					for (int j = 0; j < count * 6; j++)
+						scanner.next(); // six values per event
+				}
+				return new Entry(path, file.lastModified(), file.length(), tempo, instruments, length, events);
+			}
+		} catch (Exception e) {
+			return null; // not a song file we can read
+		}
+	}
+
+	/**
+	 * Gets the path of a file relative to the library directory.
+	 *
+	 * @param path - of the file
+	 * @return the relative path
+	 */
+	private String relativize(Path path) {
+		return root.toPath().relativize(path.toAbsolutePath()).toString();
+	}
+
+	/**
+	 * Reads the saved index. A missing or unreadable index is treated as empty.
+	 *
+	 * @return the saved entries
+	 */
+	private Entry[] readIndex() {
+		File file = new File(root, INDEX_NAME);
+		if (!file.isFile())
+			return new Entry[0];
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+				return new Entry[0];
+			Entry[] saved = new Entry[in.readInt()];
+			for (int i = 0; i < saved.length; i++) {
+				String path = in.readUTF();
+				long modified = in.readLong();
+				long size = in.readLong();
+				int tempo = in.readInt();
+				int[] instruments = new int[in.readInt()];
+				for (int j = 0; j < instruments.length; j++)
+					instruments[j] = in.readUnsignedShort();
+				int length = in.readInt();
+				int events = in.readInt();
+				saved[i] = new Entry(path, modified, size, tempo, instruments, length, events);
+			}
+			return saved;
+		} catch (IOException e) {
+			return new Entry[0];
+		}
+	}
+
+	/**
+	 * Saves the index into the library directory.
+	 */
+	private synchronized void saveIndex() {
+		Entry[] current = entries;
+		File file = new File(root, INDEX_NAME);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(INDEX_VERSION);
+			out.writeInt(current.length);
+			for (Entry entry : current) {
+				out.writeUTF(entry.getPath());
+				out.writeLong(entry.getModified());
+				out.writeLong(entry.getSize());
+				out.writeInt(entry.getTempo());
+				out.writeInt(entry.instruments.length);
+				for (int instrument : entry.instruments)
+					out.writeShort(instrument);
+				out.writeInt(entry.getLength());
+				out.writeInt(entry.getEventCount());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * The header data of one song file.
+	 */
+	public static class Entry {
+		private final String path;
+		private final long modified;
+		private final long size;
+		private final int tempo;
+		private final int[] instruments;
+		private final int length;
+		private final int eventCount;
+		private String searchKey;
+
+		/**
+		 * Creates an entry.
+		 *
+		 * @param path        - relative to the library directory
+		 * @param modified    - modification time of the file
+		 * @param size        - size of the file in bytes
+		 * @param tempo       - tempo of the song
+		 * @param instruments - instrument of every track
+		 * @param length      - length of the longest track
+		 * @param eventCount  - number of events in all tracks
+		 */
+		public Entry(String path, long modified, long size, int tempo, int[] instruments, int length,
+				int eventCount) {
+			this.path = path;
+			this.modified = modified;
+			this.size = size;
+			this.tempo = tempo;
+			this.instruments = instruments;
+			this.length = length;
+			this.eventCount = eventCount;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public long getModified() {
+			return modified;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public int getTempo() {
+			return tempo;
+		}
+
+		public int getTrackCount() {
+			return instruments.length;
+		}
+
+		public int getInstrument(int track) {
+			return instruments[track];
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		public int getEventCount() {
+			return eventCount;
+		}
+
+		/**
+		 * Gets the lower case text searched for this entry. It is built once and
+		 * kept.
+		 *
+		 * @param instrumentNames - names of instruments by index, or null
+		 * @return the search text
+		 */
+		private String getSearchKey(List<String> instrumentNames) {
+			String key = searchKey;
+			if (key == null) {
+				StringBuilder sb = new StringBuilder(path.toLowerCase());
+				sb.append(" ").append(tempo).append("bpm tempo").append(tempo);
+				sb.append(" ").append(instruments.length).append("tracks");
+				if (instrumentNames != null) {
+					for (int instrument : instruments) {
+						if (instrument >= 0 && instrument < instrumentNames.size())
+							sb.append(" ").append(instrumentNames.get(instrument).toLowerCase());
+					}
+				}
+				key = sb.toString();
+				searchKey = key;
+			}
+			return key;
+		}
+
+		/**
+		 * Describes the entry for the library browser.
+		 *
+		 * @return a one line description
+		 */
+		@Override
+		public String toString() {
+			return path + "  (" + tempo + " BPM, " + instruments.length + " tracks, length " + length + ", "
+					+ eventCount + " events)";
+		}
+	}
+}
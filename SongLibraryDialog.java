@@ -0,0 +1,185 @@
+package assign11;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A window for browsing a {@link SongLibrary}. Results are filtered as the user
+ * types, using only the library's index. Opening a result hands its file to the
+ * frame to be loaded.
+ *
+ * @author Olivia Styler
+ * @version December 11, 2024
+ */
+public class SongLibraryDialog extends JDialog implements ActionListener, DocumentListener {
+
+	private static final int MAX_RESULTS = 500;
+
+	private SongLibrary library;
+	private List<String> instrumentNames;
+	private Consumer<File> opener;
+
+	private JTextField searchField;
+	private DefaultListModel<SongLibrary.Entry> resultsModel;
+	private JList<SongLibrary.Entry> resultsList;
+	private JButton folderButton, openButton;
+	private JLabel statusLabel;
+
+	/**
+	 * Creates the library browser.
+	 *
+	 * @param owner           - the frame the dialog belongs to
+	 * @param instrumentNames - names of instruments, used for searching
+	 * @param opener          - called with the file to open
+	 */
+	public SongLibraryDialog(Frame owner, List<String> instrumentNames, Consumer<File> opener) {
+		super(owner, "Song Library", false);
+		this.instrumentNames = instrumentNames;
+		this.opener = opener;
+
+		searchField = new JTextField(30);
+		searchField.getDocument().addDocumentListener(this);
+		searchField.addActionListener(this);
+
+		resultsModel = new DefaultListModel<>();
+		resultsList = new JList<>(resultsModel);
+		resultsList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		resultsList.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				if (e.getClickCount() == 2)
+					openSelected();
+			}
+		});
+
+		folderButton = new JButton("Folder...");
+		folderButton.addActionListener(this);
+		openButton = new JButton("Open");
+		openButton.addActionListener(this);
+		statusLabel = new JLabel("Choose a folder to index.");
+
+		JPanel top = new JPanel(new BorderLayout());
+		top.add(new JLabel("Search: "), BorderLayout.WEST);
+		top.add(searchField, BorderLayout.CENTER);
+		top.add(folderButton, BorderLayout.EAST);
+
+		JPanel bottom = new JPanel(new BorderLayout());
+		bottom.add(statusLabel, BorderLayout.CENTER);
+		bottom.add(openButton, BorderLayout.EAST);
+
+		JPanel content = new JPanel(new BorderLayout());
+		content.add(top, BorderLayout.NORTH);
+		content.add(new JScrollPane(resultsList), BorderLayout.CENTER);
+		content.add(bottom, BorderLayout.SOUTH);
+		setContentPane(content);
+		setSize(600, 500);
+		setLocationRelativeTo(owner);
+	}
+
+	/**
+	 * Indexes a folder in the background, then starts watching it for changes.
+	 *
+	 * @param folder - the library folder
+	 */
+	public void setFolder(File folder) {
+		if (library != null)
+			library.stopWatching();
+		library = new SongLibrary(folder);
+		library.setChangeListener(() -> SwingUtilities.invokeLater(this::updateResults));
+		statusLabel.setText("Indexing " + folder + "...");
+
+		SongLibrary indexing = library;
+		new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() throws IOException {
+				indexing.refresh();
+				indexing.startWatching();
+				return null;
+			}
+
+			@Override
+			protected void done() {
+				try {
+					get();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				updateResults();
+			}
+		}.execute();
+	}
+
+	/**
+	 * Shows the entries matching the search field.
+	 */
+	private void updateResults() {
+		if (library == null)
+			return;
+		BetterDynamicArray<SongLibrary.Entry> results = library.search(searchField.getText(), instrumentNames,
+				MAX_RESULTS);
+		resultsModel.clear();
+		for (SongLibrary.Entry entry : results)
+			resultsModel.addElement(entry);
+		statusLabel.setText(results.size() + " of " + library.getEntries().length + " songs");
+		if (!resultsModel.isEmpty())
+			resultsList.setSelectedIndex(0);
+	}
+
+	/**
+	 * Opens the selected song and hides the browser.
+	 */
+	private void openSelected() {
+		SongLibrary.Entry entry = resultsList.getSelectedValue();
+		if (entry != null) {
+			opener.accept(new File(library.getRoot(), entry.getPath()));
+			setVisible(false);
+		}
+	}
+
+	/**
+	 * Handles the folder and open buttons, and enter in the search field.
+	 *
+	 * @param event - the action event
+	 */
+	@Override
+	public void actionPerformed(ActionEvent event) {
+		Object source = event.getSource();
+		if (source == folderButton) {
+			JFileChooser chooser = new JFileChooser();
+			chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+			if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION)
+				setFolder(chooser.getSelectedFile());
+		} else if (source == openButton || source == searchField) {
+			openSelected();
+		}
+	}
+
+	@Override
+	public void insertUpdate(DocumentEvent e) {
+		updateResults();
+	}
+
+	@Override
+	public void removeUpdate(DocumentEvent e) {
+		updateResults();
+	}
+
+	@Override
+	public void changedUpdate(DocumentEvent e) {
+		updateResults();
+	}
+
+	// Required by a serializable class (ignore for now)
+	private static final long serialVersionUID = 1L;
+}
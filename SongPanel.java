@@ -25,6 +25,9 @@ public class SongPanel extends SketchingPanel implements ActionListener, ChangeL
 	private JSpinner lengthSpinner;
 	private JButton clearButton;
 
+	// Events still waiting in an indexed song file, or null once loaded
+	private SongFiles.LazyBlock pendingBlock;
+
 	/**
 	 * Constructs a new SongPanel with the specified dimensions. This initializes
 	 * the song editor and control panel, setting up the layout and interactive
@@ -39,7 +42,7 @@ public class SongPanel extends SketchingPanel implements ActionListener, ChangeL
 		// SongEditor: Dynamically sized based on container
 		songEditor = new SongEditor(width, height);
 		songEditor.setLayout(new GridLayout(0, 1)); // Dynamically manage rows (one per track)
-		add(songEditor, BorderLayout.CENTER);
+		add(new JScrollPane(songEditor), BorderLayout.CENTER);
 
 		// Control Panel (Bottom)
 		controlPanel = new JPanel(new FlowLayout());
@@ -135,6 +138,7 @@ public class SongPanel extends SketchingPanel implements ActionListener, ChangeL
 	 */
 	@Override
 	public void setEvents(BetterDynamicArray<AudioEvent> events) {
+		pendingBlock = null;
 		songEditor.setEvents(events);
 	}
 
@@ -143,9 +147,55 @@ public class SongPanel extends SketchingPanel implements ActionListener, ChangeL
 	 */
 	@Override
 	public void clear() {
+		pendingBlock = null;
 		songEditor.clear();
 	}
 
+	/**
+	 * Sets a block of a song file to read the song's events from the first time
+	 * they are needed.
+	 *
+	 * @param block the block holding the song's events
+	 */
+	public void setPendingBlock(SongFiles.LazyBlock block) {
+		pendingBlock = block;
+	}
+
+	/**
+	 * Gets the block of a song file this song's events are still waiting in.
+	 *
+	 * @return the pending block, or null if the events are loaded
+	 */
+	public SongFiles.LazyBlock getPendingBlock() {
+		return pendingBlock;
+	}
+
+	/**
+	 * Fills in the song's events if they are still waiting in a song file and
+	 * have already been read in the background. The file is never read here, on
+	 * the Event Dispatch Thread; until the block has been read, the song stays
+	 * pending.
+	 */
+	public void installPrefetched() {
+		if (pendingBlock != null) {
+			BetterDynamicArray<AudioEvent> events = pendingBlock.takePrefetched();
+			if (events != null)
+				setEvents(events);
+		}
+	}
+
+	/**
+	 * Fills in the song and every track it can start whose events have been read
+	 * in the background, then begins playing the sequence and animating its time
+	 * indicator.
+	 */
+	@Override
+	public void play() {
+		SongFiles.installPrefetched(songEditor.getTrackList(), this);
+		super.play();
+		PlayheadAnimator.getInstance().wake();
+	}
+
 	/**
 	 * Updates the list of track panels displayed in the song editor.
 	 * 
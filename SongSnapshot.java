@@ -0,0 +1,170 @@
+package assign11;
+
+import java.io.IOException;
+
+/**
+ * An immutable copy of everything that is written to a song file: the tempo and,
+ * for every track, its settings and events. A snapshot is taken on the Event
+ * Dispatch Thread and can then be written on any thread while the tracks keep
+ * being edited and played.
+ *
+ * Each track keeps the sequencer's immutable EventSnapshot rather than copying
+ * its events, so taking a snapshot costs the same however long the tracks are.
+ * The events are laid out in an array later, on the thread doing the writing.
+ * Tracks whose events are still waiting in an indexed song file keep a
+ * reference to that block instead.
+ *
+ * @author Olivia Styler
+ * @version December 9, 2024
+ */
+public class SongSnapshot {
+
+	private final int tempo;
+	private final Track[] tracks;
+	private final SongFiles.LazyBlock songPending;
+
+	/**
+	 * Creates a snapshot from already copied tracks.
+	 *
+	 * @param tempo       - tempo of the song
+	 * @param tracks      - copies of the tracks
+	 * @param songPending - block the song's events are still waiting in, or null
+	 */
+	private SongSnapshot(int tempo, Track[] tracks, SongFiles.LazyBlock songPending) {
+		this.tempo = tempo;
+		this.tracks = tracks;
+		this.songPending = songPending;
+	}
+
+	/**
+	 * Takes a snapshot of the given tracks. This must be called on the Event
+	 * Dispatch Thread.
+	 *
+	 * @param tempo  - tempo of the song
+	 * @param tracks - the track panels
+	 * @param song   - the song panel
+	 * @return the snapshot
+	 */
+	public static SongSnapshot take(int tempo, BetterDynamicArray<TrackPanel> tracks, SongPanel song) {
+		Track[] copies = new Track[tracks.size()];
+		for (int i = 0; i < copies.length; i++) {
+			TrackPanel track = tracks.get(i);
+			copies[i] = new Track(i, track.getInstrument(), track.getVolume(), track.getLength(),
+					track.getSequencer().getSnapshot(), track.getPendingBlock());
+		}
+		return new SongSnapshot(tempo, copies, song.getPendingBlock());
+	}
+
+	/**
+	 * Gets the tempo of the song.
+	 *
+	 * @return tempo in beats per minute
+	 */
+	public int getTempo() {
+		return tempo;
+	}
+
+	/**
+	 * Gets the number of tracks.
+	 *
+	 * @return number of tracks
+	 */
+	public int getTrackCount() {
+		return tracks.length;
+	}
+
+	/**
+	 * Gets one track of the snapshot.
+	 *
+	 * @param index - of the track
+	 * @return the track
+	 */
+	public Track getTrack(int index) {
+		return tracks[index];
+	}
+
+	/**
+	 * Gets the block the song's events were still waiting in when the snapshot
+	 * was taken.
+	 *
+	 * @return the pending block, or null
+	 */
+	public SongFiles.LazyBlock getSongPending() {
+		return songPending;
+	}
+
+	/**
+	 * The settings and events of one track.
+	 */
+	public static class Track {
+		private final int trackNumber;
+		private final int instrument;
+		private final int volume;
+		private final int length;
+		private final EventSnapshot events;
+		private final SongFiles.LazyBlock pending;
+
+		/**
+		 * Creates a track copy.
+		 *
+		 * @param trackNumber - number of the track
+		 * @param instrument  - instrument of the track
+		 * @param volume      - volume of the track
+		 * @param length      - length of the track
+		 * @param events      - the track's events
+		 * @param pending     - block the events are still waiting in, or null
+		 */
+		private Track(int trackNumber, int instrument, int volume, int length, EventSnapshot events,
+				SongFiles.LazyBlock pending) {
+			this.trackNumber = trackNumber;
+			this.instrument = instrument;
+			this.volume = volume;
+			this.length = length;
+			this.events = events;
+			this.pending = pending;
+		}
+
+		public int getTrackNumber() {
+			return trackNumber;
+		}
+
+		public int getInstrument() {
+			return instrument;
+		}
+
+		public int getVolume() {
+			return volume;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * Gets the block the track's events were still waiting in when the snapshot
+		 * was taken.
+		 *
+		 * @return the pending block, or null
+		 */
+		public SongFiles.LazyBlock getPending() {
+			return pending;
+		}
+
+		/**
+		 * Gets a new array of the events of the track, reading them from the pending
+		 * block if the track hadn't been loaded. This may be called from any thread.
+		 *
+		 * @return the track's events
+		 * @throws IOException if the pending block can't be read
+		 */
+		public AudioEvent[] getEvents() throws IOException {
+			if (pending == null)
+				return events.toArray();
+			BetterDynamicArray<AudioEvent> loaded = pending.readCopy();
+			AudioEvent[] copy = new AudioEvent[loaded.size()];
+			for (int i = 0; i < copy.length; i++)
+				copy[i] = loaded.get(i);
+			return copy;
+		}
+	}
+}
@@ -10,6 +10,12 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The SoundSketcherFrame class represents the main GUI frame for the
@@ -32,18 +38,34 @@ public class SoundSketcherFrame extends JFrame implements ActionListener, Change
 	private JToggleButton playButton, loopButton;
 	private JSlider tempoSlider;
 	private JLabel tempoLabel;
-	
-	private SongFiles songFiles = new SongFiles();
-
+	private JSpinner transposeSpinner;
+
+	// Save and load run here, one at a time, off the Event Dispatch Thread
+	private ExecutorService fileExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "SongFiles");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private FileTask<?> fileTask; // running, or null
+	private ArrayDeque<FileTask<?>> queuedFileTasks = new ArrayDeque<>(); // chosen while another ran
+	private JProgressBar fileProgress;
+	private JButton cancelFileButton;
+	private SongLibraryDialog libraryDialog;
 
 	private SimpleSynthesizer synthesizer;
+	private MidiPipeline.Transpose transpose;
 
 	/**
 	 * Constructs a new SoundSketcherFrame, initializing all GUI components,
 	 * including the song panel, track panels, and control panel.
 	 */
 	public SoundSketcherFrame() {
+		// Watch for the EDT freezing, including while this frame is built
+		EdtWatchdog.getInstance().start();
+		String previousAction = EdtWatchdog.getInstance().setAction("Start Up");
 		synthesizer = new SimpleSynthesizer();
+		transpose = new MidiPipeline.Transpose();
+		MidiOutput.of(synthesizer).getPipeline().add(transpose);
 
 		// Initialize components
 		songPanel = new SongPanel(900, 900);
@@ -81,6 +103,7 @@ public class SoundSketcherFrame extends JFrame implements ActionListener, Change
 		setDefaultCloseOperation(EXIT_ON_CLOSE);
 		pack();
 		setVisible(true);
+		EdtWatchdog.getInstance().setAction(previousAction);
 
 	}
 	/**
@@ -94,20 +117,41 @@ public class SoundSketcherFrame extends JFrame implements ActionListener, Change
         saveItem.addActionListener(this);
         saveItem.setActionCommand("save");
 
+        JMenuItem saveCompressedItem = new JMenuItem("Save Compressed");
+        saveCompressedItem.addActionListener(this);
+        saveCompressedItem.setActionCommand("saveCompressed");
+
         JMenuItem loadItem = new JMenuItem("Upload");
         loadItem.addActionListener(this);
         loadItem.setActionCommand("load");
 
         fileMenu.add(saveItem);
+        fileMenu.add(saveCompressedItem);
+        JMenuItem libraryItem = new JMenuItem("Library...");
+        libraryItem.addActionListener(this);
+        libraryItem.setActionCommand("library");
+
         fileMenu.add(loadItem);
+        fileMenu.add(libraryItem);
         menuBar.add(fileMenu);
 
+        JMenu viewMenu = new JMenu("View");
+        JCheckBoxMenuItem paintStatsItem = new JCheckBoxMenuItem("Show Paint Stats");
+        paintStatsItem.addActionListener(this);
+        paintStatsItem.setActionCommand("paintStats");
+        viewMenu.add(paintStatsItem);
+        JMenuItem responsivenessItem = new JMenuItem("Responsiveness...");
+        responsivenessItem.addActionListener(this);
+        responsivenessItem.setActionCommand("responsiveness");
+        viewMenu.add(responsivenessItem);
+        menuBar.add(viewMenu);
+
         return menuBar;
     }
 
 	/**
 	 * Creates and configures the control panel containing playback and loop buttons
-	 * as well as a tempo slider.
+	 * as well as a tempo slider and a transpose spinner.
 	 * 
 	 * @return A JPanel containing the control panel elements.
 	 */
@@ -127,10 +171,25 @@ public class SoundSketcherFrame extends JFrame implements ActionListener, Change
 		tempoSlider.setPaintLabels(true);
 		tempoSlider.addChangeListener(this);
 
+		// Transposes what plays without changing the stored notes
+		transposeSpinner = new JSpinner(new SpinnerNumberModel(0, -24, 24, 1));
+		transposeSpinner.addChangeListener(this);
+
 		controlPanel.add(playButton);
 		controlPanel.add(loopButton);
 		controlPanel.add(tempoLabel);
 		controlPanel.add(tempoSlider);
+		controlPanel.add(new JLabel("Transpose:"));
+		controlPanel.add(transposeSpinner);
+
+		fileProgress = new JProgressBar(0, 100);
+		fileProgress.setStringPainted(true);
+		fileProgress.setVisible(false);
+		cancelFileButton = new JButton("Cancel");
+		cancelFileButton.addActionListener(this);
+		cancelFileButton.setVisible(false);
+		controlPanel.add(fileProgress);
+		controlPanel.add(cancelFileButton);
 
 		return controlPanel;
 	}
@@ -155,19 +214,53 @@ public class SoundSketcherFrame extends JFrame implements ActionListener, Change
 	}
 
 	/**
-	 * Responds to changes in the tab selection and tempo slider. Adds a new track
-	 * when the "Add Track" tab is selected. Updates the tempo for all tracks and
-	 * the song panel when the tempo slider is adjusted.
+	 * Responds to changes in the tab selection, tempo slider and transpose spinner.
+	 * Adds a new track when the "Add Track" tab is selected. Updates the tempo for
+	 * all tracks and the song panel when the tempo slider is adjusted.
 	 * 
 	 * @param event The ChangeEvent triggered by user interaction.
 	 */
 	@Override
 	public void stateChanged(ChangeEvent event) {
+		String name = event.getSource() == tempoSlider ? "Tempo"
+				: event.getSource() == transposeSpinner ? "Transpose"
+				: tracksPane.getSelectedIndex() == tracksPane.getTabCount() - 1 ? "Add Track" : "Switch Tab";
+		String previous = EdtWatchdog.getInstance().setAction(name);
+		try {
+			handleStateChange(event);
+		} finally {
+			EdtWatchdog.getInstance().setAction(previous);
+		}
+	}
+
+	/**
+	 * Does the work of stateChanged.
+	 * 
+	 * @param event The ChangeEvent triggered by user interaction.
+	 */
+	private void handleStateChange(ChangeEvent event) {
+		if (event.getSource() == transposeSpinner) {
+			transpose.setSemitones((Integer) transposeSpinner.getValue());
+			return;
+		}
+
 		if ((event.getSource() == tracksPane) && (tracksPane.getSelectedIndex() == tracksPane.getTabCount() - 1)
 				&& !addingTrack) {
 			addTrack();
 		}
 
+		// Tracks of an indexed song file are filled in when their tab is opened, once
+		// their block has been read in the background
+		if (event.getSource() == tracksPane) {
+			Component selected = tracksPane.getSelectedComponent();
+			if (selected instanceof TrackPanel) {
+				((TrackPanel) selected).installPrefetched();
+			} else if (selected instanceof SongPanel) {
+				((SongPanel) selected).installPrefetched();
+			}
+			readSelectedBlocks(); // also retries a block a cancelled or failed read left
+		}
+
 		if (event.getSource() == tempoSlider) {
 	        int tempo = tempoSlider.getValue();
 	        tempoLabel.setText("Tempo: " + tempo + " BPM");
@@ -190,20 +283,63 @@ public class SoundSketcherFrame extends JFrame implements ActionListener, Change
 	 * 
 	 * @param event The ActionEvent triggered by user interaction.
 	 */
-	@SuppressWarnings("static-access")
 	@Override
 	public void actionPerformed(ActionEvent event) {
+		String previous = EdtWatchdog.getInstance().setAction(actionName(event));
+		try {
+			handleAction(event);
+		} finally {
+			EdtWatchdog.getInstance().setAction(previous);
+		}
+	}
+
+	/**
+	 * Names an action for the EdtWatchdog, so a stall can be blamed on it.
+	 * 
+	 * @param event - the action
+	 * @return the name of the action
+	 */
+	private String actionName(ActionEvent event) {
+		Object source = event.getSource();
+		if (source == playButton)
+			return playButton.isSelected() ? "Play" : "Pause";
+		if (source == loopButton)
+			return "Loop";
+		if (source == cancelFileButton)
+			return "Cancel";
+		String command = event.getActionCommand();
+		if ("save".equals(command) || "saveCompressed".equals(command))
+			return "Save";
+		if ("load".equals(command))
+			return "Load";
+		if ("library".equals(command))
+			return "Library";
+		return command;
+	}
+
+	/**
+	 * Does the work of actionPerformed.
+	 * 
+	 * @param event The ActionEvent triggered by user interaction.
+	 */
+	private void handleAction(ActionEvent event) {
 		Object source = event.getSource();
 
 		// Check if the Play button was clicked
 		if (source == playButton) {
 			boolean isPlaying = playButton.isSelected(); // true for play, false for pause
 
-			// Iterate over each track and set the play state
-			for (int i = 0; i < trackPanels.size(); i++) {
-				if (isPlaying) {
-					trackPanels.get(i).play(); // Start playback for each track
-				} else {
+			if (isPlaying) {
+				// Tracks whose tab hasn't been opened are read first, so all start together
+				readBlocks(SongFiles.getPendingBlocks(trackPanels, null), () -> {
+					if (playButton.isSelected()) {
+						for (int i = 0; i < trackPanels.size(); i++) {
+							trackPanels.get(i).play(); // Start playback for each track
+						}
+					}
+				});
+			} else {
+				for (int i = 0; i < trackPanels.size(); i++) {
 					trackPanels.get(i).stop(); // Stop playback for each track
 				}
 			}
@@ -224,43 +360,227 @@ public class SoundSketcherFrame extends JFrame implements ActionListener, Change
 		}
 		String command = event.getActionCommand();
 
-        if ("save".equals(command)) {
+        if (source == cancelFileButton && fileTask != null) {
+            fileTask.cancel(false);
+        } else if ("save".equals(command) || "saveCompressed".equals(command)) {
             JFileChooser chooser = new JFileChooser();
             chooser.setFileFilter(new FileNameExtensionFilter("Song files", "song"));
 
             int result = chooser.showSaveDialog(this);
             if (result == JFileChooser.APPROVE_OPTION) {
                 File selectedFile = chooser.getSelectedFile();
-                
-                int tempo = tempoSlider.getValue();
-    	        
-                songFiles.writeFile(selectedFile, tempo, trackPanels, songPanel);
+                boolean compress = "saveCompressed".equals(command);
+
+                // Copy the song here, so editing and playback can go on while it is written,
+                // and a save chosen during a load writes the song as it was when chosen
+                SongSnapshot snapshot = SongSnapshot.take(tempoSlider.getValue(), trackPanels, songPanel);
+                startFileTask(new FileTask<Void>("Saving", "Save") {
+                    @Override
+                    protected Void doInBackground() throws IOException {
+                        SongFiles.writeSnapshot(selectedFile, snapshot, compress, this);
+                        return null;
+                    }
+                });
             }
         } else if ("load".equals(command)) {
             JFileChooser chooser = new JFileChooser();
             chooser.setFileFilter(new FileNameExtensionFilter("Song files", "song"));
 
             int result = chooser.showOpenDialog(this);
-            if (result == JFileChooser.APPROVE_OPTION) {
-                File selectedFile = chooser.getSelectedFile();
-                SimpleSynthesizer synthesizer = new SimpleSynthesizer(); // Your synthesizer object
-             //   BetterDynamicArray<TrackPanel> tracks = new BetterDynamicArray<>(); // Array for tracks
-                //SongPanel song = new SongPanel(900,900); // Your song panel object
-                int width = 900;  // Example width
-                int height = 900; // Example height
+            if (result == JFileChooser.APPROVE_OPTION)
+                loadFile(chooser.getSelectedFile());
+        } else if ("library".equals(command)) {
+            if (libraryDialog == null)
+                libraryDialog = new SongLibraryDialog(this, synthesizer.getInstrumentNames(), this::loadFile);
+            libraryDialog.setVisible(true);
+        } else if ("paintStats".equals(command)) {
+            GridCanvas.setPaintStatsVisible(((JCheckBoxMenuItem) source).isSelected());
+            repaint();
+        } else if ("responsiveness".equals(command)) {
+            MidiOutput output = MidiOutput.of(synthesizer);
+            JTextArea report = new JTextArea(EdtWatchdog.getInstance().getReport()
+                    + String.format("%nMIDI output: %d sent, %d waiting, %d at most, %d overruns, %d spilled%n",
+                            output.getDeliveredCount(), output.getQueueDepth(), output.getMaxQueueDepth(),
+                            output.getOverrunCount(), output.getSpillCount()));
+            report.setEditable(false);
+            report.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            JOptionPane.showMessageDialog(this, report, "Responsiveness", JOptionPane.INFORMATION_MESSAGE);
+        }
+	}
+
+	/**
+	 * Loads a song file in the background and replaces the current tracks with it
+	 * once it has been read. If a save or load is running, the load waits for it.
+	 * 
+	 * @param file - the song file to load
+	 */
+	private void loadFile(File file) {
+		startFileTask(new FileTask<SongFiles.LoadedSong>("Loading", "Load") {
+			@Override
+			protected SongFiles.LoadedSong doInBackground() throws IOException {
+				return SongFiles.readSong(file, synthesizer, this);
+			}
 
-                // Call the readFile method to load the song
-                int tempo = songFiles.readFile(selectedFile, synthesizer, trackPanels, songPanel, width, height);
+			@Override
+			protected void finished(SongFiles.LoadedSong loaded) {
+				int width = 900;
+				int height = 900;
+				int tempo = SongFiles.install(loaded, synthesizer, trackPanels, songPanel, width, height);
 
-                // After reading the tempo, update the tempo slider and any other necessary UI components
-                tempoSlider.setValue(tempo);
+				// After reading the tempo, update the tempo slider and any other necessary UI components
+				setTempoSlider(tempo);
 
-                // Update the tabs with the loaded tracks
-                updateTabs();
-               songPanel.setTrackList(trackPanels);
-            }
-        }
+				// Update the tabs with the loaded tracks
+				updateTabs();
+				songPanel.setTrackList(trackPanels);
+
+				// Only the header has been read so far; the other tracks wait for their tab
+				readSelectedBlocks();
+			}
+		});
+	}
+
+	/**
+	 * Reads the blocks of an indexed song file that the selected tab needs: a
+	 * track's own block, or on the song tab the song block and the blocks of the
+	 * tracks its playback starts. Other tracks stay pending until their tab is
+	 * opened. Does nothing if a save or load is running; the block is read when
+	 * the tab is next opened.
+	 */
+	private void readSelectedBlocks() {
+		if (fileTask != null)
+			return;
+		Component selected = tracksPane.getSelectedComponent();
+		if (selected instanceof TrackPanel) {
+			readBlocks(new SongFiles.LazyBlock[] { ((TrackPanel) selected).getPendingBlock() }, null);
+		} else if (selected instanceof SongPanel) {
+			readBlocks(SongFiles.getPendingBlocks(trackPanels, songPanel), null);
+		}
 	}
+
+	/**
+	 * Reads blocks of an indexed song file on the file executor, showing the
+	 * progress bar, then fills in the panels waiting in them. If a save or load is
+	 * running, the read waits for it.
+	 * 
+	 * @param blocks - to read; null entries are skipped
+	 * @param then   - run on the Event Dispatch Thread once the panels are filled
+	 *               in, or null. It isn't run if the read fails or is cancelled.
+	 */
+	private void readBlocks(SongFiles.LazyBlock[] blocks, Runnable then) {
+		SongFiles.LazyBlock[] needed = Arrays.stream(blocks).filter(block -> block != null)
+				.toArray(SongFiles.LazyBlock[]::new);
+		if (needed.length == 0) {
+			if (then != null)
+				then.run();
+			return;
+		}
+		startFileTask(new FileTask<Void>("Reading tracks", "Read Tracks") {
+			@Override
+			protected Void doInBackground() throws IOException {
+				SongFiles.prefetchAll(needed, this);
+				return null;
+			}
+
+			@Override
+			protected void finished(Void result) {
+				// Only the panels whose block was read are filled in
+				SongFiles.installPrefetched(trackPanels, songPanel);
+				if (then != null)
+					then.run();
+			}
+		});
+	}
+
+	/**
+	 * Runs a save or load on the file executor, showing its progress and a cancel
+	 * button until it is done. If another one is running, the task waits in a
+	 * queue and starts when the ones before it are done.
+	 * 
+	 * @param task - to run
+	 */
+	private void startFileTask(FileTask<?> task) {
+		if (fileTask != null) {
+			queuedFileTasks.add(task);
+			fileProgress.setString(fileTask.label + "... (" + queuedFileTasks.size() + " waiting)");
+			return;
+		}
+		fileTask = task;
+		fileProgress.setValue(0);
+		fileProgress.setString(task.label + "...");
+		fileProgress.setVisible(true);
+		cancelFileButton.setVisible(true);
+		task.addPropertyChangeListener(e -> {
+			if ("progress".equals(e.getPropertyName()))
+				fileProgress.setValue((Integer) e.getNewValue());
+		});
+		fileExecutor.execute(task);
+	}
+
+	/**
+	 * A background save or load. Progress reported by SongFiles is passed on to
+	 * the progress bar, and the result is handed to finished on the Event Dispatch
+	 * Thread.
+	 * 
+	 * @param <T> the result of the task
+	 */
+	private abstract class FileTask<T> extends SwingWorker<T, Void> implements SongFiles.ProgressListener {
+
+		private final String label; // shown in the progress bar
+		private final String action; // name of the task for the EdtWatchdog
+
+		/**
+		 * Creates a task.
+		 * 
+		 * @param label  - shown in the progress bar, such as "Saving"
+		 * @param action - name of the task for the EdtWatchdog, such as "Save"
+		 */
+		protected FileTask(String label, String action) {
+			this.label = label;
+			this.action = action;
+		}
+
+		@Override
+		public void progress(int done, int total) {
+			setProgress(Math.min(100, done * 100 / Math.max(1, total)));
+		}
+
+		/**
+		 * Called on the Event Dispatch Thread when the task succeeds.
+		 * 
+		 * @param result - of doInBackground
+		 */
+		protected void finished(T result) {
+		}
+
+		@Override
+		protected void done() {
+			fileTask = null;
+			fileProgress.setVisible(false);
+			cancelFileButton.setVisible(false);
+			// Installing a loaded song happens here, on the EDT
+			String previous = EdtWatchdog.getInstance().setAction(action);
+			try {
+				finished(get());
+			} catch (CancellationException e) {
+				// cancelled by the user, nothing was changed
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				if (!(e.getCause() instanceof CancellationException)) {
+					e.getCause().printStackTrace();
+					JOptionPane.showMessageDialog(SoundSketcherFrame.this, e.getCause().getMessage(),
+							"SoundSketcher", JOptionPane.ERROR_MESSAGE);
+				}
+			} finally {
+				EdtWatchdog.getInstance().setAction(previous);
+			}
+			FileTask<?> next = queuedFileTasks.poll();
+			if (next != null)
+				startFileTask(next);
+		}
+	}
+
 	/**
      * Updates the tabbed pane after loading a file.
      */
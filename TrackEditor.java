@@ -1,29 +1,25 @@
 package assign11;
 
-import java.awt.Color;
 import java.awt.Graphics;
 import java.util.Vector;
 
-import javax.swing.Timer;
-
 /**
  * A specialized editor for managing and sequencing a single track in a musical
  * composition. The class provides a grid-based interface where each row
  * represents a musical pitch and columns represent time intervals. Users can
  * interact with the grid to create, modify, and remove musical notes for
- * playback.
+ * playback. The notes shown are read straight from the track's sequencer.
  *
  * @author Olivia Styler
  * @version November 22, 2024
  */
 
-public class TrackEditor extends GridCanvas {
+public class TrackEditor extends GridCanvas implements CellSource {
 	private static final long serialVersionUID = 1L;
 
 	private SimpleSynthesizer synthesizer;
 	private SimpleSequencer sequencer;
 	private int trackNumber;
-	private int width, height;
 	private int currentPitch;
 
 	/**
@@ -35,12 +31,27 @@ public class TrackEditor extends GridCanvas {
 	 * @param synthesizer the SimpleSynthesizer instance
 	 */
 	public TrackEditor(int width, int height, int trackNumber, SimpleSynthesizer synthesizer) {
-		super(width, height, 120, 16, 12, 5);
-		this.height = height;
+		this(width, height, trackNumber, synthesizer, new SimpleSequencer(16));
+	}
+
+	/**
+	 * Constructor initializes the TrackEditor around an existing sequencer. Any
+	 * notes the sequencer already holds are shown.
+	 *
+	 * @param width       the width of the grid
+	 * @param height      the height of the grid
+	 * @param trackNumber the track number
+	 * @param synthesizer the SimpleSynthesizer instance
+	 * @param sequencer   the sequencer holding the track's events
+	 */
+	public TrackEditor(int width, int height, int trackNumber, SimpleSynthesizer synthesizer,
+			SimpleSequencer sequencer) {
+		super(width, height, 128, sequencer.getLength(), 12, 5); // every MIDI pitch
 		this.trackNumber = trackNumber;
 		this.synthesizer = synthesizer;
 
-		this.sequencer = new SimpleSequencer(16);
+		this.sequencer = sequencer;
+		setCellSource(this);
 
 		setRestrictions(1, -1);
 
@@ -139,14 +150,39 @@ public class TrackEditor extends GridCanvas {
 	 */
 	public void setEvents(BetterDynamicArray<AudioEvent> newEvents) {
 		clear();
-		for (int i = 0; i < newEvents.size(); i++) {
-			AudioEvent event = newEvents.get(i);
+		sequencer.updateSequence(newEvents);
+	}
+
+	/**
+	 * Shows each note in the sequencer as a cell, with the pitch as the row and the
+	 * start time as the column. The sequencer's interval index finds the notes
+	 * that overlap the range, however long the other notes are.
+	 *
+	 * @param minRow  the lowest pitch of the range
+	 * @param maxRow  the highest pitch of the range
+	 * @param minCol  the first time of the range
+	 * @param maxCol  the last time of the range
+	 * @param visitor called for each note
+	 */
+	@Override
+	public void visitCells(int minRow, int maxRow, int minCol, int maxCol, CellVisitor visitor) {
+		sequencer.visitOverlapping(minCol, maxCol + 1, event -> {
 			if (event instanceof NoteEvent) {
 				NoteEvent note = (NoteEvent) event;
-				addCell(note.getPitch(), note.getTime(), 1, note.getDuration());
+				if (note.getPitch() >= minRow && note.getPitch() <= maxRow)
+					visitor.visit(note.getPitch(), note.getTime(), 1, note.getDuration());
 			}
-		}
-		sequencer.updateSequence(newEvents);
+		});
+	}
+
+	/**
+	 * Gets the number of events in the sequencer.
+	 *
+	 * @return number of events
+	 */
+	@Override
+	public int getCellCount() {
+		return sequencer.getEventCount();
 	}
 
 	/**
@@ -157,30 +193,25 @@ public class TrackEditor extends GridCanvas {
 	@Override
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g);
+		PlayheadAnimator.getInstance().paintPlayhead(this, g);
+	}
 
-		for (int row = 0; row < height; row++) {
-			for (int col = 0; col < width; col++) {
-
-				g.setColor(Color.BLUE);
-				g.fillRect(col * (getWidth() / sequencer.getLength()), row * (getHeight() / height),
-						getWidth() / sequencer.getLength(), getHeight() / height);
-
-			}
-		}
-
-		// Draw the playback bar
-		int x = 0;
-		if (sequencer.getLength() > 0) {
-			double totalDuration = sequencer.getLength() * (60.0 / sequencer.getLength()); // Total duration
-			double progress = sequencer.getElapsedTime() / totalDuration; // Progress as a fraction
-
-			x = (int) (sequencer.getElapsedTime() * getWidth() / sequencer.getLength()); // Snap to column
-		}
+	/**
+	 * Starts animating the time indicator when the editor is added to a window.
+	 */
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		PlayheadAnimator.getInstance().register(this, sequencer);
+	}
 
-		Color customPurple = new Color(230, 179, 255);
-		g.setColor(customPurple);
-		g.fillRect(x, 0, 5, getHeight());
-		repaint();
+	/**
+	 * Stops animating the time indicator when the editor is removed from a window.
+	 */
+	@Override
+	public void removeNotify() {
+		PlayheadAnimator.getInstance().unregister(this);
+		super.removeNotify();
 	}
 
 	/**
@@ -194,9 +225,8 @@ public class TrackEditor extends GridCanvas {
 	@Override
 	public void onCellPressed(int row, int col, int rowSpan, int colSpan) {
 		currentPitch = row;
-		synthesizer.noteOn(trackNumber, currentPitch);
-		repaint();
-
+		// Previews share the playback output, so its stages apply to them too
+		MidiOutput.of(synthesizer).noteOn(trackNumber, currentPitch);
 	}
 
 	/**
@@ -210,11 +240,10 @@ public class TrackEditor extends GridCanvas {
 	@Override
 	public void onCellDragged(int row, int col, int rowSpan, int colSpan) {
 		if (row != currentPitch) {
-			synthesizer.noteOff(trackNumber, currentPitch);
+			MidiOutput.of(synthesizer).noteOff(trackNumber, currentPitch);
 			currentPitch = row;
-			synthesizer.noteOn(trackNumber, currentPitch);
+			MidiOutput.of(synthesizer).noteOn(trackNumber, currentPitch);
 		}
-		repaint();
 	}
 
 	/**
@@ -232,7 +261,7 @@ public class TrackEditor extends GridCanvas {
 		if (colSpan > 0) {
 			NoteEvent note = new NoteEvent(col, "Note", trackNumber, colSpan, row, synthesizer);
 			sequencer.add(note);
-			synthesizer.noteOff(trackNumber, currentPitch);
+			MidiOutput.of(synthesizer).noteOff(trackNumber, currentPitch);
 		}
 	}
 
@@ -244,14 +273,7 @@ public class TrackEditor extends GridCanvas {
 	 */
 	@Override
 	public void onCellRemoved(int row, int col) {
-		for (AudioEvent event : sequencer) {
-			if (event instanceof NoteEvent) {
-				NoteEvent note = (NoteEvent) event;
-				if (note.getPitch() == row && note.getTime() == col) {
-					sequencer.remove(note);
-				}
-			}
-		}
+		sequencer.remove(EventHashIndex.ANY_CHANNEL, row, col);
 	}
 
 }
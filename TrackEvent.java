@@ -23,7 +23,7 @@ public class TrackEvent extends AudioEvent {
 	 * @param sequencer the SimpleSequencer managing the track
 	 */
 	public TrackEvent(int time, String trackName, int channel, int duration, SimpleSequencer sequencer) {
-		super(time, trackName, channel);
+		super(time, trackName, channel, TRACK_RANK);
 		this.duration = duration;
 		this.sequencer = sequencer;
 	}
@@ -78,16 +78,8 @@ public class TrackEvent extends AudioEvent {
 	 */
 	@Override
 	public int compareTo(AudioEvent other) {
-		// First compare by time
-		if (this.getTime() != other.getTime()) {
-			return Integer.compare(this.getTime(), other.getTime());
-		}
-		// If times are equal, apply class ordering
-		if (other instanceof NoteEvent || other instanceof ChangeEvent) {
-			return 1; // TrackEvents should come last
-		} else {
-			return 0; // Same class, so equal ordering
-		}
+		// The sort keys hold the time and the class ordering
+		return Long.compare(getSortKey(), other.getSortKey());
 	}
 
 	/**
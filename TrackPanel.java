@@ -33,6 +33,9 @@ public class TrackPanel extends SketchingPanel implements ActionListener, Change
 	private int trackNumber;
 	private int instrumentNumber;
 
+	// Events still waiting in an indexed song file, or null once loaded
+	private SongFiles.LazyBlock pendingBlock;
+
 	/**
 	 * Constructs a TrackPanel with the specified width, height, and track number.
 	 * Initializes the TrackEditor and control panel with mute, length, volume, and
@@ -43,14 +46,29 @@ public class TrackPanel extends SketchingPanel implements ActionListener, Change
 	 * @param trackNumber the number of the track
 	 */
 	public TrackPanel(int width, int height, int trackNumber, SimpleSynthesizer synthesizer) {
+		this(width, height, trackNumber, synthesizer, new SimpleSequencer(16));
+	}
+
+	/**
+	 * Constructs a TrackPanel around an existing sequencer, for example one that
+	 * was filled while reading a song file.
+	 *
+	 * @param width       the width of the panel
+	 * @param height      the height of the panel
+	 * @param trackNumber the number of the track
+	 * @param synthesizer the synthesizer the track plays on
+	 * @param sequencer   the sequencer holding the track's events
+	 */
+	public TrackPanel(int width, int height, int trackNumber, SimpleSynthesizer synthesizer,
+			SimpleSequencer sequencer) {
 		setPreferredSize(new Dimension(width, height));
 		setLayout(new BorderLayout());
 
 		this.trackNumber = trackNumber;
-		this.trackEditor = new TrackEditor(width, height, trackNumber, synthesizer);
+		this.trackEditor = new TrackEditor(width, height, trackNumber, synthesizer, sequencer);
 
-		// TrackEditor Panel (Main area)
-		add(trackEditor, BorderLayout.CENTER);
+		// TrackEditor Panel (Main area), scrollable once it is zoomed
+		add(new JScrollPane(trackEditor), BorderLayout.CENTER);
 
 		// Control Panel (For mute button, spinner, slider, and instrument selection)
 		controlPanel = new JPanel();
@@ -161,6 +179,7 @@ public class TrackPanel extends SketchingPanel implements ActionListener, Change
 	 */
 	@Override
 	public void setEvents(BetterDynamicArray<AudioEvent> events) {
+		pendingBlock = null;
 		trackEditor.setEvents(events);
 	}
 
@@ -169,9 +188,54 @@ public class TrackPanel extends SketchingPanel implements ActionListener, Change
 	 */
 	@Override
 	public void clear() {
+		pendingBlock = null;
 		trackEditor.clear();
 	}
 
+	/**
+	 * Sets a block of a song file to read this track's events from the first time
+	 * they are needed.
+	 *
+	 * @param block the block holding the track's events
+	 */
+	public void setPendingBlock(SongFiles.LazyBlock block) {
+		pendingBlock = block;
+	}
+
+	/**
+	 * Gets the block of a song file this track's events are still waiting in.
+	 *
+	 * @return the pending block, or null if the events are loaded
+	 */
+	public SongFiles.LazyBlock getPendingBlock() {
+		return pendingBlock;
+	}
+
+	/**
+	 * Fills in the track's events if they are still waiting in a song file and
+	 * have already been read in the background. The file is never read here, on
+	 * the Event Dispatch Thread; until the block has been read, the track stays
+	 * pending.
+	 */
+	public void installPrefetched() {
+		if (pendingBlock != null) {
+			BetterDynamicArray<AudioEvent> events = pendingBlock.takePrefetched();
+			if (events != null)
+				setEvents(events);
+		}
+	}
+
+	/**
+	 * Fills in the track's events if they have been read in the background, then
+	 * begins playing the sequence and animating its time indicator.
+	 */
+	@Override
+	public void play() {
+		installPrefetched();
+		super.play();
+		PlayheadAnimator.getInstance().wake();
+	}
+
 	/**
 	 * Gets the current volume setting for the track.
 	 *
@@ -0,0 +1,229 @@
+package assign11;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Small pictures of the notes in each track, used to show a track's content in
+ * the song editor. A thumbnail is a density image: time runs across, pitch runs
+ * up in bands of a few pitches, and darker pixels hold more notes. Every
+ * thumbnail has several levels, each half as wide as the one before, so a cell
+ * of any width can be drawn from a level close to its size.
+ *
+ * Thumbnails are rendered on a background thread from a copy of the track's
+ * events, and are rendered again when the track's sequencer changes. Until the
+ * new one is ready the old one is shown. All methods must be called on the
+ * Event Dispatch Thread.
+ *
+ * @author Olivia Styler
+ * @version December 16, 2024
+ */
+public class TrackThumbnailCache {
+
+	/** The widest level of a thumbnail, in pixels. */
+	public static final int MAX_WIDTH = 1024;
+
+	/** Pitches per pixel row of a thumbnail. */
+	public static final int PITCHES_PER_ROW = 4;
+
+	private static final int ROWS = 128 / PITCHES_PER_ROW;
+	private static final int NOTE_RGB = 0x1A3D66;
+
+	// Thumbnails are rendered here, one at a time, for every cache
+	private static final ExecutorService renderer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Thumbnails");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+
+	private Map<SimpleSequencer, Thumbnail> thumbnails;
+	private Map<SimpleSequencer, Long> rendering; // version being rendered
+	private Runnable onReady;
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param onReady - called on the Event Dispatch Thread when a new thumbnail is
+	 *                ready, usually to repaint
+	 */
+	public TrackThumbnailCache(Runnable onReady) {
+		thumbnails = new WeakHashMap<>();
+		rendering = new WeakHashMap<>();
+		this.onReady = onReady;
+	}
+
+	/**
+	 * Gets the thumbnail of a track. If the track changed since it was rendered, a
+	 * new one is started in the background and the old one is returned.
+	 *
+	 * @param sequencer - of the track
+	 * @return the latest thumbnail, or null if none has been rendered yet
+	 */
+	public Thumbnail get(SimpleSequencer sequencer) {
+		Thumbnail thumbnail = thumbnails.get(sequencer);
+		long version = versionOf(sequencer);
+		Long pending = rendering.get(sequencer);
+		if ((thumbnail == null || thumbnail.version != version) && (pending == null || pending != version)) {
+			rendering.put(sequencer, version);
+			AudioEvent[] events = sequencer.toArray();
+			int length = sequencer.getLength();
+			renderer.execute(() -> {
+				Thumbnail rendered = render(events, length, version);
+				SwingUtilities.invokeLater(() -> {
+					Long latest = rendering.get(sequencer);
+					if (latest != null && latest == version)
+						rendering.remove(sequencer);
+					thumbnails.put(sequencer, rendered);
+					onReady.run();
+				});
+			});
+		}
+		return thumbnail;
+	}
+
+	/**
+	 * Combines everything a thumbnail depends on into one number.
+	 *
+	 * @param sequencer - of the track
+	 * @return the version of the track
+	 */
+	private static long versionOf(SimpleSequencer sequencer) {
+		return ((long) sequencer.getModificationCount() << 32) | (sequencer.getLength() & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Renders every level of a thumbnail.
+	 *
+	 * @param events  - of the track
+	 * @param length  - of the track in tics
+	 * @param version - of the track the events were copied from
+	 * @return the thumbnail
+	 */
+	private static Thumbnail render(AudioEvent[] events, int length, long version) {
+		int width = Math.max(1, Math.min(MAX_WIDTH, length));
+
+		// Count how many notes cover each pixel
+		float[] density = new float[width * ROWS];
+		for (AudioEvent event : events) {
+			if (!(event instanceof NoteEvent))
+				continue;
+			NoteEvent note = (NoteEvent) event;
+			int row = ROWS - 1 - Math.max(0, Math.min(127, note.getPitch())) / PITCHES_PER_ROW;
+			int start = (int) ((long) note.getTime() * width / Math.max(1, length));
+			int end = (int) ((long) (note.getTime() + note.getDuration()) * width / Math.max(1, length));
+			for (int x = Math.max(0, start); x <= Math.min(width - 1, Math.max(start, end - 1)); x++)
+				density[row * width + x]++;
+		}
+
+		// Each level averages pairs of columns of the one before
+		BetterDynamicArray<BufferedImage> levels = new BetterDynamicArray<>();
+		while (true) {
+			levels.add(toImage(density, width));
+			if (width == 1)
+				break;
+			int half = (width + 1) / 2;
+			float[] merged = new float[half * ROWS];
+			for (int row = 0; row < ROWS; row++) {
+				for (int x = 0; x < half; x++) {
+					float left = density[row * width + 2 * x];
+					float right = 2 * x + 1 < width ? density[row * width + 2 * x + 1] : left;
+					merged[row * half + x] = (left + right) / 2;
+				}
+			}
+			density = merged;
+			width = half;
+		}
+
+		BufferedImage[] images = new BufferedImage[levels.size()];
+		for (int i = 0; i < images.length; i++)
+			images[i] = levels.get(i);
+		return new Thumbnail(images, length, version);
+	}
+
+	/**
+	 * Turns one level of densities into an image, darkest where the density is
+	 * highest.
+	 *
+	 * @param density - per pixel, row by row
+	 * @param width   - of the level
+	 * @return the image
+	 */
+	private static BufferedImage toImage(float[] density, int width) {
+		float max = 0;
+		for (float value : density)
+			max = Math.max(max, value);
+		BufferedImage image = new BufferedImage(width, ROWS, BufferedImage.TYPE_INT_ARGB);
+		if (max == 0)
+			return image;
+		int[] pixels = new int[density.length];
+		for (int i = 0; i < pixels.length; i++) {
+			// Even a single note should be clearly visible
+			int alpha = density[i] == 0 ? 0 : 96 + (int) (159 * density[i] / max);
+			pixels[i] = (alpha << 24) | NOTE_RGB;
+		}
+		image.setRGB(0, 0, width, ROWS, pixels, 0, width);
+		return image;
+	}
+
+	/**
+	 * The levels of one track's thumbnail.
+	 */
+	public static class Thumbnail {
+		private final BufferedImage[] levels;
+		private final int length;
+		private final long version;
+
+		/**
+		 * Creates a thumbnail.
+		 *
+		 * @param levels  - from widest to narrowest
+		 * @param length  - of the track in tics
+		 * @param version - of the track it was rendered from
+		 */
+		private Thumbnail(BufferedImage[] levels, int length, long version) {
+			this.levels = levels;
+			this.length = length;
+			this.version = version;
+		}
+
+		/**
+		 * Gets the length of the track when the thumbnail was rendered.
+		 *
+		 * @return length in tics
+		 */
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * Draws part of the track into a rectangle, using the narrowest level that is
+		 * still at least as wide as the rectangle.
+		 *
+		 * @param g      - graphics context to draw onto
+		 * @param x      - left edge of the rectangle
+		 * @param y      - top edge of the rectangle
+		 * @param width  - of the rectangle
+		 * @param height - of the rectangle
+		 * @param tics   - how much of the track, from its start, to draw
+		 */
+		public void draw(Graphics g, int x, int y, int width, int height, int tics) {
+			if (width <= 0 || height <= 0 || length <= 0)
+				return;
+			tics = Math.min(tics, length);
+			int level = 0;
+			while (level + 1 < levels.length
+					&& (long) levels[level + 1].getWidth() * tics / length >= width)
+				level++;
+			BufferedImage image = levels[level];
+			int sourceWidth = Math.max(1, (int) ((long) image.getWidth() * tics / length));
+			g.drawImage(image, x, y, x + width, y + height, 0, 0, sourceWidth, image.getHeight(), null);
+		}
+	}
+}
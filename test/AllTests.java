@@ -0,0 +1,38 @@
+package assign11;
+
+/**
+ * Runs every test in this folder. The tests are plain programs rather than
+ * test framework classes, since the project has no build file; each one can
+ * also be run on its own.
+ *
+ * Run from the project folder with:
+ *
+ * <pre>
+ * javac -d out *.java test/*.java
+ * java -cp out assign11.AllTests
+ * </pre>
+ *
+ * @author Olivia Styler
+ * @version December 26, 2024
+ */
+public class AllTests {
+
+	/**
+	 * Runs the tests and exits with status 1 if any check failed.
+	 *
+	 * @param args - not used
+	 * @throws Exception if a test can't run
+	 */
+	public static void main(String[] args) throws Exception {
+		MidiOutputTest.run();
+		EventHashIndexTest.run();
+		EventSnapshotTest.run();
+		GapBufferArrayTest.run();
+		BetterDynamicArrayTest.run();
+		EventSorterTest.run();
+		EventIntervalTreeTest.run();
+		SongFilesTest.run();
+		PatternTableTest.run();
+		Check.exit();
+	}
+}
@@ -0,0 +1,181 @@
+package assign11;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the bulk methods of BetterDynamicArray against an ArrayList: addAll,
+ * including of the array itself, removeRange, both forms of removeIf, and the
+ * capacity methods. Ranges at the front, in the middle and at the end are all
+ * used, since each moves a different part of the backing array.
+ *
+ * Run with: java assign11.BetterDynamicArrayTest, or through AllTests.
+ *
+ * @author Olivia Styler
+ * @version December 27, 2024
+ */
+public class BetterDynamicArrayTest {
+
+	/**
+	 * Runs the checks and exits with status 1 if any fails.
+	 *
+	 * @param args - not used
+	 */
+	public static void main(String[] args) {
+		run();
+		Check.exit();
+	}
+
+	/**
+	 * Runs the checks.
+	 */
+	static void run() {
+		checkAddAll();
+		checkRemoveRange();
+		checkRemoveIf();
+		checkCapacity();
+		checkBounds();
+	}
+
+	/**
+	 * Appends arrays of several sizes, crossing the capacity, and the array to
+	 * itself.
+	 */
+	private static void checkAddAll() {
+		BetterDynamicArray<Integer> array = new BetterDynamicArray<>();
+		List<Integer> model = new ArrayList<>();
+		for (int count : new int[] { 0, 3, 8, 40, 1 }) {
+			BetterDynamicArray<Integer> values = new BetterDynamicArray<>();
+			for (int i = 0; i < count; i++) {
+				values.add(model.size() + i);
+			}
+			array.addAll(values);
+			values.forEach(model::add);
+		}
+		Check.that(matches(array, model), "dynamic array: addAll");
+
+		array.addAll(array);
+		model.addAll(new ArrayList<>(model));
+		Check.that(matches(array, model), "dynamic array: addAll of itself");
+	}
+
+	/**
+	 * Removes random ranges until the array is empty.
+	 */
+	private static void checkRemoveRange() {
+		Random random = new Random(3);
+		BetterDynamicArray<Integer> array = filled(300);
+		List<Integer> model = toList(array);
+		boolean agrees = true;
+		while (!model.isEmpty()) {
+			int from = random.nextInt(model.size() + 1);
+			int to = from + random.nextInt(model.size() - from + 1);
+			array.removeRange(from, to);
+			model.subList(from, to).clear();
+			agrees &= matches(array, model);
+		}
+		Check.that(agrees, "dynamic array: removeRange");
+	}
+
+	/**
+	 * Removes matching elements from the whole array and from ranges of it.
+	 */
+	private static void checkRemoveIf() {
+		BetterDynamicArray<Integer> array = filled(200);
+		List<Integer> model = toList(array);
+		Check.equal(67, array.removeIf(value -> value % 3 == 0), "dynamic array: removeIf count");
+		model.removeIf(value -> value % 3 == 0);
+		Check.that(matches(array, model), "dynamic array: removeIf");
+
+		Random random = new Random(4);
+		boolean agrees = true;
+		for (int round = 0; round < 50; round++) {
+			int from = random.nextInt(model.size() + 1);
+			int to = from + random.nextInt(model.size() - from + 1);
+			int modulus = 2 + random.nextInt(4);
+			int removed = array.removeIf(from, to, value -> value % modulus == 0);
+			int before = model.size();
+			model.subList(from, to).removeIf(value -> value % modulus == 0);
+			agrees &= removed == before - model.size() && matches(array, model);
+		}
+		Check.that(agrees, "dynamic array: removeIf over a range");
+		Check.equal(0, array.removeIf(value -> false), "dynamic array: removeIf of nothing");
+		Check.that(matches(array, model), "dynamic array: removeIf of nothing changed the array");
+	}
+
+	/**
+	 * Grows the array ahead of time and trims it, which must keep the elements.
+	 */
+	private static void checkCapacity() {
+		BetterDynamicArray<Integer> array = filled(25);
+		List<Integer> model = toList(array);
+		array.ensureCapacity(1_000);
+		Check.that(matches(array, model), "dynamic array: ensureCapacity");
+		array.trimToSize();
+		Check.that(matches(array, model), "dynamic array: trimToSize");
+		array.clear();
+		array.trimToSize();
+		array.add(7); // an empty trimmed array must still grow
+		Check.equal(1, array.size(), "dynamic array: add after trimming to nothing");
+	}
+
+	/**
+	 * Checks that bad ranges throw and change nothing.
+	 */
+	private static void checkBounds() {
+		BetterDynamicArray<Integer> array = filled(5);
+		Check.throwsException(IndexOutOfBoundsException.class, () -> array.removeRange(3, 6),
+				"dynamic array: range past the end");
+		Check.throwsException(IndexOutOfBoundsException.class, () -> array.removeRange(3, 2),
+				"dynamic array: reversed range");
+		Check.throwsException(IndexOutOfBoundsException.class, () -> array.removeIf(-1, 2, value -> true),
+				"dynamic array: removeIf before 0");
+		Check.equal(5, array.size(), "dynamic array: size after bad ranges");
+	}
+
+	/**
+	 * Creates an array holding 0 up to a count.
+	 *
+	 * @param count - number of elements
+	 * @return the array
+	 */
+	private static BetterDynamicArray<Integer> filled(int count) {
+		BetterDynamicArray<Integer> array = new BetterDynamicArray<>();
+		for (int i = 0; i < count; i++) {
+			array.add(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Copies an array into a list.
+	 *
+	 * @param array - to copy
+	 * @return the list
+	 */
+	private static List<Integer> toList(BetterDynamicArray<Integer> array) {
+		List<Integer> list = new ArrayList<>();
+		array.forEach(list::add);
+		return list;
+	}
+
+	/**
+	 * Checks the array against a list, by index, by iterator and by stream.
+	 *
+	 * @param array - to read
+	 * @param model - the elements it should hold
+	 * @return true if all agree
+	 */
+	private static boolean matches(BetterDynamicArray<Integer> array, List<Integer> model) {
+		if (array.size() != model.size())
+			return false;
+		int i = 0;
+		for (Integer value : array) {
+			if (!value.equals(model.get(i)) || !value.equals(array.get(i)))
+				return false;
+			i++;
+		}
+		return i == model.size() && array.stream().toList().equals(model);
+	}
+}
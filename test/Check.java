@@ -0,0 +1,71 @@
+package assign11;
+
+/**
+ * The assertions used by the tests in this folder, which run without a test
+ * framework. A failed check is printed and counted instead of thrown, so one
+ * run reports every failure.
+ *
+ * @author Olivia Styler
+ * @version December 26, 2024
+ */
+final class Check {
+
+	private static int checks;
+	private static int failures;
+
+	private Check() {
+	}
+
+	/**
+	 * Checks that a condition holds.
+	 *
+	 * @param condition - should be true
+	 * @param message   - describes the check
+	 */
+	static void that(boolean condition, String message) {
+		checks++;
+		if (!condition) {
+			failures++;
+			System.out.println("FAILED: " + message);
+		}
+	}
+
+	/**
+	 * Checks that two values are equal.
+	 *
+	 * @param expected - the right value
+	 * @param actual   - the value found
+	 * @param message  - describes the check
+	 */
+	static void equal(Object expected, Object actual, String message) {
+		that(expected == null ? actual == null : expected.equals(actual),
+				message + ": expected " + expected + " but was " + actual);
+	}
+
+	/**
+	 * Checks that an action throws an exception of the given type.
+	 *
+	 * @param type    - of the exception expected
+	 * @param action  - that should throw
+	 * @param message - describes the check
+	 */
+	static void throwsException(Class<? extends Throwable> type, Runnable action, String message) {
+		try {
+			action.run();
+			that(false, message + ": nothing was thrown");
+		} catch (Throwable e) {
+			that(type.isInstance(e), message + ": threw " + e);
+		}
+	}
+
+	/**
+	 * Prints the number of checks and failures and ends the program, with status
+	 * 1 if any check failed. Ending the program also stops the sequencers' timer
+	 * threads.
+	 */
+	static void exit() {
+		System.out.println(checks + " checks, " + failures + " failed");
+		System.out.println(failures == 0 ? "PASS" : "FAIL");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+}
@@ -0,0 +1,142 @@
+package assign11;
+
+import java.util.Random;
+
+/**
+ * Checks EventHashIndex against a plain scan of the same events, including
+ * lookups of every channel at once, and the sequencer's removal of the notes
+ * under a cell, which must match the notes of every channel as the track
+ * editor always did.
+ *
+ * Run with: java assign11.EventHashIndexTest, or through AllTests.
+ *
+ * @author Olivia Styler
+ * @version December 27, 2024
+ */
+public class EventHashIndexTest {
+
+	/**
+	 * Runs the checks and exits with status 1 if any fails.
+	 *
+	 * @param args - not used
+	 */
+	public static void main(String[] args) {
+		run();
+		Check.exit();
+	}
+
+	/**
+	 * Runs the checks.
+	 */
+	static void run() {
+		checkFind();
+		checkAddAndRemove();
+		checkSequencerRemove();
+	}
+
+	/**
+	 * Looks up notes and track events by exact channel and by any channel.
+	 */
+	private static void checkFind() {
+		EventHashIndex index = new EventHashIndex();
+		for (int channel = 0; channel < 16; channel++) {
+			index.add(new NoteEvent(8, "Note", channel, 1, 60, null));
+		}
+		index.add(new NoteEvent(8, "Note", 3, 1, 61, null));
+		index.add(new TrackEvent(8, "Track", 3, 4, null));
+
+		Check.equal(1, index.find(3, 60, 8).size(), "hash index: exact channel");
+		Check.equal(16, index.find(EventHashIndex.ANY_CHANNEL, 60, 8).size(), "hash index: any channel");
+		Check.equal(1, index.find(EventHashIndex.ANY_CHANNEL, 61, 8).size(), "hash index: other pitch");
+		Check.equal(1, index.find(3, EventHashIndex.NO_PITCH, 8).size(), "hash index: no pitch");
+		Check.equal(0, index.find(EventHashIndex.ANY_CHANNEL, 60, 9).size(), "hash index: other time");
+	}
+
+	/**
+	 * Adds many events with few distinct keys, so probe runs are long and the
+	 * table grows, then removes them in random order. After each step every
+	 * lookup must agree with a scan.
+	 */
+	private static void checkAddAndRemove() {
+		Random random = new Random(7);
+		EventHashIndex index = new EventHashIndex();
+		BetterDynamicArray<AudioEvent> all = new BetterDynamicArray<>();
+		for (int i = 0; i < 2_000; i++) {
+			NoteEvent note = new NoteEvent(random.nextInt(20), "Note", random.nextInt(16), 1, random.nextInt(10), null);
+			index.add(note);
+			all.add(note);
+		}
+		Check.equal(all.size(), index.size(), "hash index: size after adding");
+		boolean agrees = agrees(index, all);
+		while (all.size() > 0) {
+			AudioEvent event = all.get(random.nextInt(all.size()));
+			all.remove(event);
+			agrees &= index.remove(event);
+			if (all.size() % 100 == 0)
+				agrees &= agrees(index, all);
+		}
+		Check.that(agrees, "hash index: lookups disagree with a scan");
+		Check.equal(0, index.size(), "hash index: size after removing");
+		Check.that(!index.remove(new NoteEvent(0, "Note", 0, 1, 0, null)), "hash index: removed a missing event");
+	}
+
+	/**
+	 * Checks every key in use, by exact channel and by any channel.
+	 *
+	 * @param index - to check
+	 * @param all   - the events it should hold
+	 * @return true if every lookup found the same number of events as a scan
+	 */
+	private static boolean agrees(EventHashIndex index, BetterDynamicArray<AudioEvent> all) {
+		for (int time = 0; time < 20; time++) {
+			for (int pitch = 0; pitch < 10; pitch++) {
+				int any = 0;
+				for (int channel = 0; channel < 16; channel++) {
+					int count = 0;
+					for (AudioEvent event : all) {
+						if (event.getTime() == time && ((NoteEvent) event).getPitch() == pitch
+								&& event.getChannel() == channel)
+							count++;
+					}
+					if (index.find(channel, pitch, time).size() != count)
+						return false;
+					any += count;
+				}
+				if (index.find(EventHashIndex.ANY_CHANNEL, pitch, time).size() != any)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the notes under a cell from a sequencer, whatever their channel,
+	 * and checks that everything else stays in order.
+	 */
+	private static void checkSequencerRemove() {
+		SimpleSequencer sequencer = new SimpleSequencer(100);
+		BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
+		for (int time = 0; time < 10; time++) {
+			events.add(new NoteEvent(time, "Note", 0, 1, 60, null));
+			events.add(new NoteEvent(time, "Note", 5, 1, 60, null));
+			events.add(new NoteEvent(time, "Note", 0, 1, 62, null));
+			events.add(new TrackEvent(time, "Track", 0, 1, null));
+		}
+		sequencer.updateSequence(events);
+
+		Check.equal(2, sequencer.remove(EventHashIndex.ANY_CHANNEL, 60, 4), "sequencer: notes removed");
+		Check.equal(0, sequencer.remove(EventHashIndex.ANY_CHANNEL, 60, 4), "sequencer: removed twice");
+		Check.equal(1, sequencer.remove(0, EventHashIndex.NO_PITCH, 7), "sequencer: track event removed");
+		Check.equal(37, sequencer.getEventCount(), "sequencer: events left");
+		boolean sorted = true;
+		int time = -1;
+		for (AudioEvent event : sequencer) {
+			sorted &= event.getTime() >= time;
+			time = event.getTime();
+			if (event.getTime() == 4 && event instanceof NoteEvent)
+				sorted &= ((NoteEvent) event).getPitch() == 62;
+		}
+		Check.that(sorted, "sequencer: events out of order or not removed");
+		Check.equal(37, sequencer.getSnapshot().size(), "sequencer: snapshot size");
+	}
+}
@@ -0,0 +1,177 @@
+package assign11;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks EventIntervalTree against a scan of the same events. Events are added
+ * one by one, so the tree rebalances, and removed in random order, and after
+ * each batch every overlap query must find the same events as the scan, in
+ * order of start time. The linear rebuild from a sorted sequence is checked the
+ * same way.
+ *
+ * Run with: java assign11.EventIntervalTreeTest, or through AllTests.
+ *
+ * @author Olivia Styler
+ * @version December 27, 2024
+ */
+public class EventIntervalTreeTest {
+
+	private static final int LENGTH = 500; // tics the events are spread over
+
+	/**
+	 * Runs the checks and exits with status 1 if any fails.
+	 *
+	 * @param args - not used
+	 */
+	public static void main(String[] args) {
+		run();
+		Check.exit();
+	}
+
+	/**
+	 * Runs the checks.
+	 */
+	static void run() {
+		checkAddAndRemove();
+		checkRebuild();
+	}
+
+	/**
+	 * Adds and removes random events, checking queries along the way.
+	 */
+	private static void checkAddAndRemove() {
+		Random random = new Random(8);
+		EventIntervalTree tree = new EventIntervalTree();
+		List<AudioEvent> all = new ArrayList<>();
+		boolean agrees = true;
+		for (int i = 0; i < 1_000; i++) {
+			AudioEvent event = randomEvent(random);
+			tree.add(event);
+			all.add(event);
+			if (i % 100 == 0)
+				agrees &= agrees(tree, all, random);
+		}
+		Check.equal(countSpans(all), tree.size(), "interval tree: size after adding");
+		while (!all.isEmpty()) {
+			AudioEvent event = all.remove(random.nextInt(all.size()));
+			boolean indexed = SimpleSequencer.getDuration(event) > 0;
+			agrees &= tree.remove(event) == indexed;
+			if (all.size() % 100 == 0)
+				agrees &= agrees(tree, all, random);
+		}
+		Check.that(agrees, "interval tree: queries disagree with a scan");
+		Check.equal(0, tree.size(), "interval tree: size after removing");
+	}
+
+	/**
+	 * Builds a tree from a sorted sequence and checks its queries.
+	 */
+	private static void checkRebuild() {
+		Random random = new Random(9);
+		BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
+		for (int i = 0; i < 1_000; i++) {
+			events.add(randomEvent(random));
+		}
+		EventSorter.sort(events);
+		List<AudioEvent> all = new ArrayList<>();
+		events.forEach(all::add);
+		EventIntervalTree tree = new EventIntervalTree();
+		tree.add(randomEvent(random)); // replaced by the rebuild
+		tree.rebuild(events);
+		Check.equal(countSpans(all), tree.size(), "interval tree: size after rebuild");
+		Check.that(agrees(tree, all, random), "interval tree: queries after rebuild disagree with a scan");
+		tree.clear();
+		Check.equal(0, tree.getSounding(10).size(), "interval tree: clear");
+	}
+
+	/**
+	 * Compares random range queries and every tic's sounding events with a scan.
+	 *
+	 * @param tree   - to query
+	 * @param all    - the events it should hold, and events without a duration
+	 * @param random - source of the ranges
+	 * @return true if every query agrees
+	 */
+	private static boolean agrees(EventIntervalTree tree, List<AudioEvent> all, Random random) {
+		for (int tic = 0; tic < LENGTH; tic += 7) {
+			if (!matches(tree.getSounding(tic), all, tic, tic + 1))
+				return false;
+		}
+		for (int i = 0; i < 50; i++) {
+			int from = random.nextInt(LENGTH);
+			int to = from + random.nextInt(100);
+			BetterDynamicArray<AudioEvent> found = new BetterDynamicArray<>();
+			tree.visitOverlapping(from, to, found::add);
+			if (!matches(found, all, from, to))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks the events a query found: exactly the events overlapping the range,
+	 * in order of start time.
+	 *
+	 * @param found - the events found
+	 * @param all   - every event
+	 * @param from  - first tic of the range
+	 * @param to    - tic after the last one of the range
+	 * @return true if they are right
+	 */
+	private static boolean matches(BetterDynamicArray<AudioEvent> found, List<AudioEvent> all, int from, int to) {
+		int expected = 0;
+		for (AudioEvent event : all) {
+			int duration = SimpleSequencer.getDuration(event);
+			if (duration > 0 && event.getTime() < to && event.getTime() + duration > from)
+				expected++;
+		}
+		if (found.size() != expected)
+			return false;
+		int start = Integer.MIN_VALUE;
+		for (AudioEvent event : found) {
+			int duration = SimpleSequencer.getDuration(event);
+			if (event.getTime() < start || !all.contains(event) || event.getTime() >= to
+					|| event.getTime() + duration <= from)
+				return false;
+			start = event.getTime();
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the events with a duration.
+	 *
+	 * @param all - the events
+	 * @return how many the tree should hold
+	 */
+	private static int countSpans(List<AudioEvent> all) {
+		int count = 0;
+		for (AudioEvent event : all) {
+			if (SimpleSequencer.getDuration(event) > 0)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Creates a note, track or change event at a random time. Change events have
+	 * no duration and must never be found.
+	 *
+	 * @param random - source of the choices
+	 * @return the event
+	 */
+	private static AudioEvent randomEvent(Random random) {
+		int time = random.nextInt(LENGTH);
+		int duration = 1 + random.nextInt(random.nextInt(10) == 0 ? 200 : 8);
+		switch (random.nextInt(5)) {
+		case 0:
+			return new TrackEvent(time, "Track", 0, duration, null);
+		case 1:
+			return new ChangeEvent(time, "Change", 0, 0, null);
+		default:
+			return new NoteEvent(time, "Note", 0, duration, random.nextInt(128), null);
+		}
+	}
+}
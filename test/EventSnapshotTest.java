@@ -0,0 +1,174 @@
+package assign11;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+
+/**
+ * Checks EventSnapshot against an ArrayList given the same edits. Random
+ * replacements of every size insert into, shrink, merge and split the chunks,
+ * and after each one every way of reading the snapshot must agree with the
+ * list, while the snapshots made before it stay as they were. Also checks that
+ * the sequencer's iterator reads a snapshot, so editing during a loop is safe.
+ *
+ * Run with: java assign11.EventSnapshotTest, or through AllTests.
+ *
+ * @author Olivia Styler
+ * @version December 27, 2024
+ */
+public class EventSnapshotTest {
+
+	/**
+	 * Runs the checks and exits with status 1 if any fails.
+	 *
+	 * @param args - not used
+	 */
+	public static void main(String[] args) {
+		run();
+		Check.exit();
+	}
+
+	/**
+	 * Runs the checks.
+	 */
+	static void run() {
+		checkEdits();
+		checkBounds();
+		checkSequencerReads();
+	}
+
+	/**
+	 * Applies random replacements, from single inserts and removes to ranges of
+	 * several chunks, and compares each result with a list.
+	 */
+	private static void checkEdits() {
+		Random random = new Random(11);
+		List<AudioEvent> model = new ArrayList<>();
+		EventSnapshot snapshot = EventSnapshot.empty();
+		EventSnapshot kept = snapshot;
+		List<AudioEvent> keptModel = new ArrayList<>();
+		boolean agrees = true;
+		for (int step = 0; step < 2_000; step++) {
+			int size = model.size();
+			int from = random.nextInt(size + 1);
+			int longest = random.nextInt(4) == 0 ? 3 * EventSnapshot.CHUNK_SIZE : 3;
+			int to = Math.min(size, from + random.nextInt(longest + 1));
+			// Grow at first, then stay around a few dozen chunks
+			int count = random.nextInt(size < 3_000 ? longest + 2 : longest + 1);
+			AudioEvent[] replacement = new AudioEvent[count];
+			for (int i = 0; i < count; i++) {
+				replacement[i] = new NoteEvent(step, "Note", 0, 1, i, null);
+			}
+			snapshot = snapshot.replace(from, to, replacement);
+			model.subList(from, to).clear();
+			model.addAll(from, List.of(replacement));
+			agrees &= matches(snapshot, model);
+			if (step % 100 == 0) {
+				agrees &= matches(kept, keptModel);
+				kept = snapshot;
+				keptModel = new ArrayList<>(model);
+			}
+		}
+		Check.that(agrees, "snapshot: differs from the list after an edit");
+		Check.that(model.size() > 10 * EventSnapshot.CHUNK_SIZE, "snapshot: edits never grew past a few chunks");
+
+		EventSnapshot copy = EventSnapshot.of(toArray(model));
+		Check.that(matches(copy, model), "snapshot: of differs from its array");
+		Check.that(matches(copy.insert(0, model.get(0)).remove(0), model), "snapshot: insert then remove");
+	}
+
+	/**
+	 * Checks that reads out of range and bad ranges throw.
+	 */
+	private static void checkBounds() {
+		EventSnapshot snapshot = EventSnapshot.empty().insert(0, new NoteEvent(0, "Note", 0, 1, 60, null));
+		Check.throwsException(IndexOutOfBoundsException.class, () -> snapshot.get(1), "snapshot: get past the end");
+		Check.throwsException(IndexOutOfBoundsException.class, () -> snapshot.replace(1, 0, new AudioEvent[0]),
+				"snapshot: reversed range");
+		Check.throwsException(IndexOutOfBoundsException.class, () -> snapshot.remove(1), "snapshot: remove past the end");
+	}
+
+	/**
+	 * Removes events from a sequencer in the middle of a loop over it. The loop
+	 * must see the events as they were when it started.
+	 */
+	private static void checkSequencerReads() {
+		SimpleSequencer sequencer = new SimpleSequencer(1_000);
+		BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
+		for (int i = 0; i < 500; i++) {
+			events.add(new NoteEvent(i, "Note", 0, 1, 60, null));
+		}
+		sequencer.updateSequence(copy(events));
+		int seen = 0;
+		for (AudioEvent event : sequencer) {
+			sequencer.remove(event);
+			seen++;
+		}
+		Check.equal(500, seen, "sequencer: events seen while removing");
+		Check.equal(0, sequencer.getEventCount(), "sequencer: events left");
+
+		sequencer.updateSequence(copy(events));
+		int[] counted = new int[1];
+		sequencer.forEach(event -> counted[0]++);
+		Check.equal(500, counted[0], "sequencer: forEach");
+		Check.equal(250, sequencer.indexOfTime(250), "sequencer: indexOfTime");
+		Check.equal(events.get(499), sequencer.getEvent(499), "sequencer: getEvent");
+		Check.equal(500, sequencer.toArray().length, "sequencer: toArray");
+	}
+
+	/**
+	 * Checks every way of reading a snapshot against a list.
+	 *
+	 * @param snapshot - to read
+	 * @param model    - the events it should hold
+	 * @return true if all agree
+	 */
+	private static boolean matches(EventSnapshot snapshot, List<AudioEvent> model) {
+		if (snapshot.size() != model.size())
+			return false;
+		AudioEvent[] all = snapshot.toArray();
+		int[] index = { 0 };
+		boolean[] same = { all.length == model.size() };
+		snapshot.forEach(event -> same[0] &= event == model.get(index[0]++));
+		int i = 0;
+		for (AudioEvent event : snapshot) {
+			same[0] &= event == model.get(i) && event == all[i] && event == snapshot.get(i);
+			i++;
+		}
+		same[0] &= i == model.size();
+
+		// The halves of a split cover the events in order
+		Spliterator<AudioEvent> second = snapshot.spliterator();
+		Spliterator<AudioEvent> first = second.trySplit();
+		int[] next = { 0 };
+		if (first != null)
+			first.forEachRemaining(event -> same[0] &= event == model.get(next[0]++));
+		second.forEachRemaining(event -> same[0] &= event == model.get(next[0]++));
+		return same[0] && next[0] == model.size();
+	}
+
+	/**
+	 * Copies a dynamic array, since the sequencer keeps the one it is given.
+	 *
+	 * @param events - to copy
+	 * @return the copy
+	 */
+	private static BetterDynamicArray<AudioEvent> copy(BetterDynamicArray<AudioEvent> events) {
+		BetterDynamicArray<AudioEvent> array = new BetterDynamicArray<>();
+		events.forEach(array::add);
+		return array;
+	}
+
+	/**
+	 * Copies a list of events into a dynamic array.
+	 *
+	 * @param model - the events
+	 * @return the array
+	 */
+	private static BetterDynamicArray<AudioEvent> toArray(List<AudioEvent> model) {
+		BetterDynamicArray<AudioEvent> array = new BetterDynamicArray<>();
+		model.forEach(array::add);
+		return array;
+	}
+}
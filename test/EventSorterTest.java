@@ -0,0 +1,84 @@
+package assign11;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks EventSorter against Arrays.sort, which is stable, on mixes of note,
+ * track and change events. Many events share a time and type, so the order of
+ * equal events is checked too. Both the radix sort and the parallel sort for
+ * large arrays are used, with times that fit in one byte and times that need
+ * all four.
+ *
+ * Run with: java assign11.EventSorterTest, or through AllTests.
+ *
+ * @author Olivia Styler
+ * @version December 27, 2024
+ */
+public class EventSorterTest {
+
+	/**
+	 * Runs the checks and exits with status 1 if any fails.
+	 *
+	 * @param args - not used
+	 */
+	public static void main(String[] args) {
+		run();
+		Check.exit();
+	}
+
+	/**
+	 * Runs the checks.
+	 */
+	static void run() {
+		Random random = new Random(2);
+		int[] sizes = { 0, 1, 2, 100, 5_000, EventSorter.PARALLEL_THRESHOLD + 1 };
+		int[] timeRanges = { 1, 200, Integer.MAX_VALUE };
+		for (int size : sizes) {
+			for (int timeRange : timeRanges) {
+				AudioEvent[] events = new AudioEvent[size];
+				for (int i = 0; i < size; i++) {
+					events[i] = randomEvent(random, timeRange);
+				}
+				BetterDynamicArray<AudioEvent> array = new BetterDynamicArray<>();
+				for (AudioEvent event : events) {
+					array.add(event);
+				}
+				EventSorter.sort(array);
+				Arrays.sort(events);
+				boolean same = array.size() == size;
+				for (int i = 0; same && i < size; i++) {
+					same = array.get(i) == events[i];
+				}
+				Check.that(same, "sorter: " + size + " events with times below " + timeRange);
+			}
+		}
+
+		BetterDynamicArray<AudioEvent> sorted = new BetterDynamicArray<>();
+		for (int i = 0; i < 1_000; i++) {
+			sorted.add(new NoteEvent(i, "Note", 0, 1, 60, null));
+		}
+		AudioEvent first = sorted.get(0);
+		EventSorter.sort(sorted);
+		Check.that(sorted.get(0) == first && sorted.size() == 1_000, "sorter: sorted input changed");
+	}
+
+	/**
+	 * Creates a note, track or change event at a random time.
+	 *
+	 * @param random    - source of the choices
+	 * @param timeRange - times are from 0 up to this, exclusive
+	 * @return the event
+	 */
+	private static AudioEvent randomEvent(Random random, int timeRange) {
+		int time = random.nextInt(timeRange);
+		switch (random.nextInt(3)) {
+		case 0:
+			return new NoteEvent(time, "Note", random.nextInt(16), 1, random.nextInt(128), null);
+		case 1:
+			return new TrackEvent(time, "Track", random.nextInt(16), 1, null);
+		default:
+			return new ChangeEvent(time, "Change", random.nextInt(16), 0, null);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package assign11;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks GapBufferArray against an ArrayList given the same edits. The edits
+ * mix runs close together, which leave the gap in place, with jumps that move
+ * it both ways and with growing, so every path through moveGap and grow is
+ * taken with the gap at the front, in the middle and at the end.
+ *
+ * Run with: java assign11.GapBufferArrayTest, or through AllTests.
+ *
+ * @author Olivia Styler
+ * @version December 27, 2024
+ */
+public class GapBufferArrayTest {
+
+	/**
+	 * Runs the checks and exits with status 1 if any fails.
+	 *
+	 * @param args - not used
+	 */
+	public static void main(String[] args) {
+		run();
+		Check.exit();
+	}
+
+	/**
+	 * Runs the checks.
+	 */
+	static void run() {
+		checkEdits();
+		checkBulk();
+		checkBounds();
+	}
+
+	/**
+	 * Applies random single edits near a position that jumps now and then.
+	 */
+	private static void checkEdits() {
+		Random random = new Random(5);
+		GapBufferArray<Integer> array = new GapBufferArray<>();
+		List<Integer> model = new ArrayList<>();
+		int position = 0;
+		boolean agrees = true;
+		for (int step = 0; step < 20_000; step++) {
+			if (random.nextInt(20) == 0)
+				position = random.nextInt(model.size() + 1);
+			position = Math.max(0, Math.min(model.size(), position + random.nextInt(5) - 2));
+			int choice = random.nextInt(10);
+			if (choice < 5 || model.isEmpty()) {
+				array.insert(position, step);
+				model.add(position, step);
+			} else if (choice < 8) {
+				int index = Math.min(position, model.size() - 1);
+				array.remove(index);
+				model.remove(index);
+			} else if (choice < 9) {
+				int index = random.nextInt(model.size());
+				array.set(index, -step);
+				model.set(index, -step);
+			} else {
+				array.add(step);
+				model.add(step);
+			}
+			if (step % 97 == 0)
+				agrees &= matches(array, model);
+		}
+		Check.that(agrees && matches(array, model), "gap buffer: differs from the list after an edit");
+	}
+
+	/**
+	 * Checks the methods that change many elements at once.
+	 */
+	private static void checkBulk() {
+		Random random = new Random(9);
+		GapBufferArray<Integer> array = new GapBufferArray<>();
+		List<Integer> model = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			int value = random.nextInt(100);
+			array.insert(i / 2, value);
+			model.add(i / 2, value);
+		}
+
+		array.removeRange(100, 250);
+		model.subList(100, 250).clear();
+		Check.that(matches(array, model), "gap buffer: removeRange");
+
+		int removed = array.removeIf(value -> value % 3 == 0);
+		int expected = model.size();
+		model.removeIf(value -> value % 3 == 0);
+		Check.equal(expected - model.size(), removed, "gap buffer: removeIf count");
+		Check.that(matches(array, model), "gap buffer: removeIf");
+
+		Integer first = model.get(7);
+		array.remove(first);
+		model.remove(first);
+		Check.that(matches(array, model), "gap buffer: remove by value");
+
+		array.insert(40, 1_000); // leaves the gap in the middle
+		model.add(40, 1_000);
+		array.sort();
+		model.sort(null);
+		Check.that(matches(array, model), "gap buffer: sort");
+
+		array.addAll(array);
+		model.addAll(new ArrayList<>(model));
+		Check.that(matches(array, model), "gap buffer: addAll of itself");
+
+		array.clear();
+		Check.equal(0, array.size(), "gap buffer: clear");
+		Check.that(!array.iterator().hasNext(), "gap buffer: iterator after clear");
+	}
+
+	/**
+	 * Checks that bad indexes throw.
+	 */
+	private static void checkBounds() {
+		GapBufferArray<Integer> array = new GapBufferArray<>();
+		array.add(1);
+		Check.throwsException(IndexOutOfBoundsException.class, () -> array.get(1), "gap buffer: get past the end");
+		Check.throwsException(IndexOutOfBoundsException.class, () -> array.insert(2, 0),
+				"gap buffer: insert past the end");
+		Check.throwsException(IndexOutOfBoundsException.class, () -> array.remove(-1), "gap buffer: remove before 0");
+		Check.throwsException(IndexOutOfBoundsException.class, () -> array.removeRange(0, 2),
+				"gap buffer: range past the end");
+	}
+
+	/**
+	 * Checks every way of reading the array against a list.
+	 *
+	 * @param array - to read
+	 * @param model - the elements it should hold
+	 * @return true if all agree
+	 */
+	private static boolean matches(GapBufferArray<Integer> array, List<Integer> model) {
+		if (array.size() != model.size())
+			return false;
+		Object[] all = array.toArray();
+		int i = 0;
+		for (Integer value : array) {
+			if (!value.equals(model.get(i)) || !value.equals(array.get(i)) || !value.equals(all[i]))
+				return false;
+			i++;
+		}
+		return i == model.size();
+	}
+}
@@ -0,0 +1,320 @@
+package assign11;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Checks that MidiOutput never leaves a note sounding when note ons and note
+ * offs come from different threads. The synthesizer used here only records the
+ * notes, without opening the sound hardware, and is slow, so the rings back up
+ * the way they do behind a slow MIDI device.
+ *
+ * The first check has one thread send note ons and hand each note to a second
+ * thread, whose ring was created first, to send the note off. The second check
+ * starts a sequence and stops it while its notes are sounding. The third
+ * restarts a sequence right after stopping it, and checks that the new notes
+ * are not silenced by note offs of the old playback. The last stalls the
+ * synthesizer and sends more note offs than a ring holds, which must be spilled
+ * quickly and still be sent in order.
+ *
+ * Run with: java assign11.MidiOutputTest, or through AllTests.
+ *
+ * @author Olivia Styler
+ * @version December 26, 2024
+ */
+public class MidiOutputTest {
+
+	// Every channel and pitch, played once per round
+	private static final int NOTES = 16 * 128;
+	private static final int ROUNDS = 10;
+
+	/**
+	 * Runs the checks and exits with status 1 if any fails.
+	 *
+	 * @param args - not used
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		run();
+		Check.exit();
+	}
+
+	/**
+	 * Runs the checks.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	static void run() throws InterruptedException {
+		checkTwoProducers();
+		checkStop();
+		checkRestart();
+		checkSpill();
+	}
+
+	/**
+	 * Sends each note on from one thread and its note off from another. Each
+	 * round plays every channel and pitch once, so a note left sounding by one
+	 * round is not hidden by a later note of the same pitch.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static void checkTwoProducers() throws InterruptedException {
+		RecordingSynthesizer synthesizer = new RecordingSynthesizer();
+		MidiOutput output = MidiOutput.of(synthesizer);
+		int stuck = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			BlockingQueue<Integer> handOff = new ArrayBlockingQueue<>(64);
+			CountDownLatch registered = new CountDownLatch(1);
+
+			Thread offs = new Thread(() -> {
+				try {
+					// Registers this thread's ring before the note on thread's
+					output.noteOff(0, 0);
+					registered.countDown();
+					for (int i = 0; i < NOTES; i++) {
+						int note = handOff.take();
+						output.noteOff(note / 128, note % 128);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, "note offs");
+			Thread ons = new Thread(() -> {
+				try {
+					for (int note = 0; note < NOTES; note++) {
+						output.noteOn(note / 128, note % 128);
+						handOff.put(note);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, "note ons");
+
+			offs.start();
+			registered.await();
+			ons.start();
+			ons.join();
+			offs.join();
+			waitUntilSent(output);
+			stuck += synthesizer.countSounding();
+		}
+		report("two producers", stuck, output);
+	}
+
+	/**
+	 * Starts a sequence of long notes, then stops it while they sound.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static void checkStop() throws InterruptedException {
+		RecordingSynthesizer synthesizer = new RecordingSynthesizer();
+		MidiOutput output = MidiOutput.of(synthesizer);
+		SimpleSequencer sequencer = new SimpleSequencer(10_000);
+		BetterDynamicArray<AudioEvent> notes = new BetterDynamicArray<>();
+		for (int i = 0; i < 2_000; i++) {
+			notes.add(new NoteEvent(i / 20, "Note", i % 16, 5_000, i % 128, synthesizer));
+		}
+		sequencer.updateSequence(notes);
+		for (int round = 0; round < 5; round++) {
+			sequencer.start();
+			Thread.sleep(40);
+			sequencer.stop();
+		}
+		Thread.sleep(200); // the cancels run on the old timer threads
+		waitUntilSent(output);
+		report("stop", synthesizer.countSounding(), output);
+	}
+
+	/**
+	 * Stops a sequence while its notes sound and starts it again at once. The
+	 * notes at the start of the sequence must be sounding afterwards. A slow event
+	 * keeps the old timer thread busy while it is stopped, so anything the stop
+	 * leaves to that thread happens late.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static void checkRestart() throws InterruptedException {
+		RecordingSynthesizer synthesizer = new RecordingSynthesizer();
+		MidiOutput output = MidiOutput.of(synthesizer);
+		SimpleSequencer sequencer = new SimpleSequencer(10_000);
+		BetterDynamicArray<AudioEvent> notes = new BetterDynamicArray<>();
+		for (int i = 0; i < 64; i++) {
+			notes.add(new NoteEvent(0, "Note", i % 16, 5_000, 60 + i / 16, synthesizer));
+		}
+		notes.add(new SlowEvent(10));
+		sequencer.updateSequence(notes);
+		int silenced = 0;
+		for (int round = 0; round < 20; round++) {
+			sequencer.start();
+			Thread.sleep(20); // during the slow event
+			sequencer.stop();
+			sequencer.start();
+			Thread.sleep(20);
+			waitUntilSent(output);
+			silenced += notes.size() - 1 - synthesizer.countSounding();
+			sequencer.stop();
+		}
+		waitUntilSent(output);
+		Check.equal(0, silenced, "restart: notes silenced by the stopped playback");
+		report("restart", synthesizer.countSounding(), output);
+	}
+
+	/**
+	 * Stalls the synthesizer and sends more note offs than fit in the ring. The
+	 * ones that do not fit must be spilled after a short wait, and all of them
+	 * must be sent in order once the synthesizer catches up.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static void checkSpill() throws InterruptedException {
+		RecordingSynthesizer synthesizer = new RecordingSynthesizer();
+		MidiOutput output = MidiOutput.of(synthesizer);
+		int extra = 64;
+		int count = MidiOutput.RING_CAPACITY + extra;
+		synthesizer.stalled = true;
+		output.noteOn(0, 0);
+		Thread.sleep(20); // the output thread is now stuck in this note on
+		long longest = 0;
+		for (int key = 0; key < count; key++) {
+			long start = System.nanoTime();
+			output.noteOff(key / 128, key % 128);
+			longest = Math.max(longest, System.nanoTime() - start);
+		}
+		Check.that(output.getSpillCount() >= extra, "spill: full ring not spilled");
+		Check.that(longest < 20 * MidiOutput.SPILL_WAIT_NANOS, "spill: a note off waited " + longest + " ns");
+		synthesizer.stalled = false;
+		waitUntilSent(output);
+		Check.equal(count, synthesizer.offs, "spill: note offs sent");
+		Check.that(synthesizer.inOrder, "spill: note offs sent out of order");
+		System.out.printf("spill: %d spilled, longest note off %d us%n", output.getSpillCount(), longest / 1000);
+		report("spill", synthesizer.countSounding(), output);
+	}
+
+	/**
+	 * Waits for the output thread to send everything queued.
+	 *
+	 * @param output - to wait for
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static void waitUntilSent(MidiOutput output) throws InterruptedException {
+		while (output.getQueueDepth() > 0) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(50); // the last message may still be in the synthesizer
+	}
+
+	/**
+	 * Prints the statistics of a check and checks that no note was left sounding.
+	 *
+	 * @param name   - of the check
+	 * @param stuck  - number of notes left sounding
+	 * @param output - that sent the notes
+	 */
+	private static void report(String name, int stuck, MidiOutput output) {
+		System.out.printf("%s: %d sent, %d at most waiting, %d overruns, %d spilled%n", name,
+				output.getDeliveredCount(), output.getMaxQueueDepth(), output.getOverrunCount(),
+				output.getSpillCount());
+		Check.equal(0, stuck, name + ": notes left sounding");
+	}
+
+	/**
+	 * An event that takes a while to execute and plays nothing.
+	 */
+	private static class SlowEvent extends AudioEvent {
+
+		/**
+		 * Creates a slow event.
+		 *
+		 * @param time - when it executes
+		 */
+		private SlowEvent(int time) {
+			super(time, "Slow", 0, CHANGE_RANK);
+		}
+
+		@Override
+		public void execute() {
+			try {
+				Thread.sleep(30);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void complete() {
+		}
+
+		@Override
+		public void cancel() {
+		}
+
+		@Override
+		public int compareTo(AudioEvent other) {
+			return Long.compare(getSortKey(), other.getSortKey());
+		}
+	}
+
+	/**
+	 * A synthesizer that only records which notes are sounding, and takes a
+	 * little while over each call. It never opens the midi system.
+	 */
+	private static class RecordingSynthesizer extends SimpleSynthesizer {
+		private final boolean[] sounding = new boolean[16 * 128]; // used on the output thread only
+		private int offs; // note offs received
+		private int lastOff = -1; // channel * 128 + pitch of the latest note off
+		private boolean inOrder = true; // whether each note off had a higher key than the one before
+		private volatile boolean stalled; // holds the output thread in the synthesizer while set
+
+		/**
+		 * Creates a silent recording synthesizer.
+		 */
+		private RecordingSynthesizer() {
+			super(false);
+		}
+
+		@Override
+		public void noteOn(int channel, int pitch, int velocity) {
+			sounding[channel * 128 + pitch] = true;
+			pause();
+		}
+
+		@Override
+		public void noteOff(int channel, int pitch) {
+			int key = channel * 128 + pitch;
+			sounding[key] = false;
+			inOrder &= key > lastOff;
+			lastOff = key;
+			offs++;
+			pause();
+		}
+
+		/**
+		 * Counts the notes still sounding.
+		 *
+		 * @return number of notes sounding
+		 */
+		private int countSounding() {
+			int count = 0;
+			for (boolean on : sounding) {
+				if (on) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Stands in for a slow MIDI device.
+		 */
+		private void pause() {
+			while (stalled) {
+				Thread.onSpinWait();
+			}
+			long end = System.nanoTime() + 20_000;
+			while (System.nanoTime() < end) {
+				Thread.onSpinWait();
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package assign11;
+
+import java.util.Arrays;
+import java.util.Scanner;
+
+/**
+ * Checks PatternTable: that the same notes in any order make one pattern, that
+ * a pattern whose hash is taken by different notes is stored under the next
+ * free hash, and that a table written as a pattern block reads back with the
+ * same patterns under the same hashes.
+ *
+ * Run with: java assign11.PatternTableTest, or through AllTests.
+ *
+ * @author Olivia Styler
+ * @version December 27, 2024
+ */
+public class PatternTableTest {
+
+	/**
+	 * Runs the checks and exits with status 1 if any fails.
+	 *
+	 * @param args - not used
+	 */
+	public static void main(String[] args) {
+		run();
+		Check.exit();
+	}
+
+	/**
+	 * Runs the checks.
+	 */
+	static void run() {
+		checkIntern();
+		checkCollision();
+		checkWriteAndRead();
+	}
+
+	/**
+	 * Interns the same notes given in two orders, and different notes.
+	 */
+	private static void checkIntern() {
+		PatternTable table = new PatternTable();
+		int[] first = PatternTable.pack(new int[] { 0, 4, 8 }, new int[] { 60, 64, 67 }, new int[] { 2, 2, 4 }, 3);
+		int[] shuffled = PatternTable.pack(new int[] { 8, 0, 4 }, new int[] { 67, 60, 64 }, new int[] { 4, 2, 2 }, 3);
+		int[] other = PatternTable.pack(new int[] { 0, 4, 8 }, new int[] { 60, 64, 67 }, new int[] { 2, 2, 3 }, 3);
+		Check.that(Arrays.equals(first, shuffled), "patterns: packing depends on the order of the notes");
+
+		long hash = table.intern(first);
+		Check.equal(hash, table.intern(shuffled), "patterns: same notes, different hash");
+		Check.that(table.intern(other) != hash, "patterns: different notes, same hash");
+		Check.equal(2, table.size(), "patterns: size");
+		Check.that(Arrays.equals(first, table.get(hash)), "patterns: get");
+		Check.throwsException(IllegalStateException.class, () -> table.get(hash + 12_345), "patterns: unknown hash");
+	}
+
+	/**
+	 * Reads a table in which a pattern's hash already holds other notes, then
+	 * interns that pattern.
+	 */
+	private static void checkCollision() {
+		int[] pattern = PatternTable.pack(new int[] { 1 }, new int[] { 50 }, new int[] { 1 }, 1);
+		long hash = PatternTable.hash(pattern);
+		String block = "patterns\n1\n" + Long.toHexString(hash) + " 1 0 0 1\n";
+		PatternTable table = PatternTable.read(new Scanner(block));
+
+		long stored = table.intern(pattern);
+		Check.equal(hash + 1, stored, "patterns: collision not probed");
+		Check.that(Arrays.equals(pattern, table.get(stored)), "patterns: pattern after a collision");
+		Check.that(!Arrays.equals(pattern, table.get(hash)), "patterns: collision overwrote a pattern");
+		Check.equal(stored, table.intern(pattern), "patterns: collided pattern interned twice");
+	}
+
+	/**
+	 * Writes a table of many patterns and reads it back.
+	 */
+	private static void checkWriteAndRead() {
+		PatternTable table = new PatternTable();
+		long[] hashes = new long[100];
+		for (int i = 0; i < hashes.length; i++) {
+			int count = 1 + i % 5;
+			int[] times = new int[count];
+			int[] pitches = new int[count];
+			int[] durations = new int[count];
+			for (int j = 0; j < count; j++) {
+				times[j] = (i + j) % PatternTable.SEGMENT_LENGTH;
+				pitches[j] = (i * 7 + j) % 128;
+				durations[j] = 1 + j;
+			}
+			hashes[i] = table.intern(PatternTable.pack(times, pitches, durations, count));
+		}
+
+		StringBuilder sb = new StringBuilder();
+		table.write(sb);
+		PatternTable read = PatternTable.read(new Scanner(sb.toString()));
+		Check.equal(table.size(), read.size(), "patterns: size after reading");
+		boolean same = true;
+		for (long hash : hashes) {
+			same &= Arrays.equals(table.get(hash), read.get(hash));
+		}
+		Check.that(same, "patterns: patterns read back differ");
+		StringBuilder again = new StringBuilder();
+		read.write(again);
+		Check.equal(sb.toString(), again.toString(), "patterns: written again differently");
+	}
+}
@@ -0,0 +1,259 @@
+package assign11;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Checks indexed song files. The first check writes blocks with
+ * SongFileIndex.Writer and reads them back through the table of contents, and
+ * checks that a damaged block is caught by its checksum without spoiling the
+ * others. The second writes a song from track and song panels and reads it
+ * back, block by block, the way a loaded song's panels do. Both are run on
+ * plain and on compressed files.
+ *
+ * The panels are created without a window, and their synthesizer never opens
+ * the midi system.
+ *
+ * Run with: java assign11.SongFilesTest, or through AllTests.
+ *
+ * @author Olivia Styler
+ * @version December 27, 2024
+ */
+public class SongFilesTest {
+
+	/**
+	 * Runs the checks and exits with status 1 if any fails.
+	 *
+	 * @param args - not used
+	 * @throws IOException if a temporary file can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		run();
+		Check.exit();
+	}
+
+	/**
+	 * Runs the checks.
+	 *
+	 * @throws IOException if a temporary file can't be written
+	 */
+	static void run() throws IOException {
+		System.setProperty("java.awt.headless", "true");
+		for (boolean compress : new boolean[] { false, true }) {
+			checkIndex(compress);
+			checkSong(compress);
+		}
+	}
+
+	/**
+	 * Writes three blocks, reads them back, then damages the middle one.
+	 *
+	 * @param compress - true to deflate the blocks
+	 * @throws IOException if the temporary file can't be written
+	 */
+	private static void checkIndex(boolean compress) throws IOException {
+		String name = compress ? "compressed index: " : "index: ";
+		File file = File.createTempFile("index", ".song");
+		try {
+			byte[][] blocks = new byte[3][];
+			for (int i = 0; i < blocks.length; i++) {
+				blocks[i] = "note\nNote\n12\n0\n60\n4\n".repeat(50 * (i + 1)).getBytes(StandardCharsets.UTF_8);
+			}
+			try (SongFileIndex.Writer writer = new SongFileIndex.Writer(file, 140, 2,
+					compress ? SongFileIndex.FLAG_DEFLATE : 0)) {
+				writer.writeBlock(new SongFileIndex.Entry(50, 0, 5, 90, 32), blocks[0]);
+				writer.writeBlock(new SongFileIndex.Entry(100, 1, 7, 80, 64), blocks[1]);
+				writer.writeBlock(new SongFileIndex.Entry(150, -1, 0, 0, 2), blocks[2]);
+			}
+
+			Check.that(SongFileIndex.isIndexed(file), name + "file not recognized");
+			SongFileIndex index = SongFileIndex.open(file);
+			Check.equal(140, index.getTempo(), name + "tempo");
+			Check.equal(2, index.getTrackCount(), name + "track count");
+			SongFileIndex.Entry entry = index.getTrackEntry(1);
+			Check.that(entry.getEventCount() == 100 && entry.getTrackNumber() == 1 && entry.getInstrument() == 7
+					&& entry.getVolume() == 80 && entry.getLength() == 64, name + "track entry");
+			Check.equal(2, index.getSongEntry().getLength(), name + "song entry");
+			Check.equal(compress, entry.getStoredLength() < blocks[1].length, name + "blocks deflated");
+			boolean same = true;
+			for (int i = 0; i < blocks.length; i++) {
+				same &= Arrays.equals(blocks[i], index.readBlock(i));
+			}
+			Check.that(same, name + "blocks read back differ");
+
+			damage(file, index.getTrackEntry(1));
+			Check.throwsException(IllegalStateException.class, () -> readQuietly(index, 1), name + "damaged block");
+			Check.that(Arrays.equals(blocks[2], index.readBlock(2)), name + "block after the damaged one");
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Writes a song with two tracks from panels, then reads it into new panels
+	 * and compares the events of every block.
+	 *
+	 * @param compress - true to write a compressed song file
+	 * @throws IOException if the temporary file can't be written
+	 */
+	private static void checkSong(boolean compress) throws IOException {
+		String name = compress ? "compressed song: " : "song: ";
+		File file = File.createTempFile("song", ".song");
+		try {
+			SilentSynthesizer synthesizer = new SilentSynthesizer();
+			BetterDynamicArray<TrackPanel> tracks = new BetterDynamicArray<>();
+			for (int t = 0; t < 2; t++) {
+				TrackPanel track = new TrackPanel(200, 100, t, synthesizer);
+				track.setLength(64);
+				BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
+				for (int bar = 0; bar < 4; bar++) {
+					// Two bars that alternate, so their patterns repeat
+					int start = bar * PatternTable.SEGMENT_LENGTH;
+					events.add(new NoteEvent(start, "Note", t, 2, 60 + bar % 2, synthesizer));
+					events.add(new NoteEvent(start + 4, "Note", t, 4, 64, synthesizer));
+				}
+				events.add(new NoteEvent(63, "Note", t, 1, 40 + t, synthesizer));
+				events.add(new ChangeEvent(8, "PitchBend", t, 3_000, synthesizer));
+				track.setEvents(events);
+				tracks.add(track);
+			}
+			SongPanel song = new SongPanel(200, 100);
+			song.setLength(2);
+			String[] expected = { describe(tracks.get(0).getSequencer()), describe(tracks.get(1).getSequencer()) };
+			BetterDynamicArray<AudioEvent> all = new BetterDynamicArray<>();
+			tracks.forEach(track -> track.getSequencer().forEach(all::add));
+			String expectedSong = describe(all); // the song block holds every track's events
+
+			SongFiles.writeSnapshot(file, SongSnapshot.take(120, tracks, song), compress, null);
+
+			SongFileIndex index = SongFileIndex.open(file);
+			Check.equal(compress, (index.getFlags() & SongFileIndex.FLAG_DEFLATE) != 0, name + "compression flag");
+			// Two bars shared by both tracks, and a last bar of each track's own
+			Check.equal(4, index.getPatternTable().size(), name + "patterns shared between tracks");
+
+			SongFiles.LoadedSong loaded = SongFiles.readSong(file, synthesizer, null);
+			BetterDynamicArray<TrackPanel> read = new BetterDynamicArray<>();
+			SongPanel readSong = new SongPanel(200, 100);
+			Check.equal(120, SongFiles.install(loaded, synthesizer, read, readSong, 200, 100), name + "tempo");
+			Check.equal(2, read.size(), name + "track count");
+			Check.equal(64, read.get(1).getLength(), name + "track length");
+			for (int t = 0; t < read.size(); t++) {
+				Check.that(read.get(t).getPendingBlock() != null,
+						name + "track " + t + " read before it was opened");
+				read.get(t).getPendingBlock().prefetch();
+				read.get(t).installPrefetched();
+				Check.equal(expected[t], describe(read.get(t).getSequencer()), name + "events of track " + t);
+			}
+			Check.equal(expectedSong, describe(readSong.getPendingBlock().readCopy()),
+					name + "events of the song block");
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Describes the events of a sequencer, one per line in sorted order.
+	 *
+	 * @param sequencer - holding the events
+	 * @return the description
+	 */
+	private static String describe(SimpleSequencer sequencer) {
+		BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<>();
+		sequencer.forEach(events::add);
+		return describe(events);
+	}
+
+	/**
+	 * Describes events, one per line, sorted so that the order they were stored
+	 * in doesn't matter.
+	 *
+	 * @param events - to describe
+	 * @return the description
+	 */
+	private static String describe(BetterDynamicArray<AudioEvent> events) {
+		ArrayList<String> lines = new ArrayList<>();
+		for (AudioEvent event : events) {
+			String line = event.getClass().getSimpleName() + " " + event.getName() + " " + event.getTime() + " "
+					+ event.getChannel();
+			if (event instanceof NoteEvent)
+				line += " " + ((NoteEvent) event).getPitch() + " " + ((NoteEvent) event).getDuration();
+			if (event instanceof ChangeEvent)
+				line += " " + ((ChangeEvent) event).getValue();
+			lines.add(line);
+		}
+		lines.sort(null);
+		return String.join("\n", lines) + "\n";
+	}
+
+	/**
+	 * Flips one byte in the middle of a block.
+	 *
+	 * @param file  - the song file
+	 * @param entry - of the block to damage
+	 * @throws IOException if the file can't be changed
+	 */
+	private static void damage(File file, SongFileIndex.Entry entry) throws IOException {
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			long position = entry.getOffset() + entry.getStoredLength() / 2;
+			out.seek(position);
+			int value = out.read();
+			out.seek(position);
+			out.write(value ^ 0xFF);
+		}
+	}
+
+	/**
+	 * Reads a block, turning a failure to read the file into an unchecked
+	 * exception.
+	 *
+	 * @param index - of the file
+	 * @param block - to read
+	 */
+	private static void readQuietly(SongFileIndex index, int block) {
+		try {
+			index.readBlock(block);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * A synthesizer for panels that never opens the midi system. Settings are
+	 * accepted and forgotten.
+	 */
+	static class SilentSynthesizer extends SimpleSynthesizer {
+
+		/**
+		 * Creates a silent synthesizer.
+		 */
+		SilentSynthesizer() {
+			super(false);
+		}
+
+		@Override
+		public ArrayList<String> getInstrumentNames() {
+			return new ArrayList<>(Arrays.asList("Piano", "Organ"));
+		}
+
+		@Override
+		public void setInstrument(int channel, int instrumentIndex) {
+		}
+
+		@Override
+		public void setVolume(int channel, int volume) {
+		}
+
+		@Override
+		public int getVolume(int channel) {
+			return 100;
+		}
+
+		@Override
+		public void setMute(int channel, boolean mute) {
+		}
+	}
+}